@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Area;
+import model.Component;
+import model.Door;
+import model.Factory;
+import model.Machine;
+import model.Room;
+import model.shapes.RectangularShape;
+
+/**
+ * Factory shared by the benchmarks, made of a square grid of rooms separated by
+ * corridors. Each room has a door in its bottom wall and a machine in the
+ * middle of an area.
+ */
+final class BenchmarkFactory {
+
+	private static final int MACHINE_SIZE = 10;
+
+	private BenchmarkFactory() {
+	}
+
+	/**
+	 * @param roomSpacing The distance between the origins of two neighbouring
+	 *                    rooms. A room takes three fifths of it, the rest being
+	 *                    left to the corridors.
+	 * @param doorWidth   The width of the door of each room.
+	 */
+	static Factory create(final int factorySize, final int roomSpacing, final int doorWidth) {
+		final Factory factory = new Factory(factorySize, factorySize, "Benchmark Factory");
+		final int roomsPerRow = factorySize / roomSpacing;
+		final int roomSize = 3 * roomSpacing / 5;
+		final int areaMargin = roomSpacing / 10;
+
+		for (int xIndex = 0; xIndex < roomsPerRow; xIndex++) {
+			for (int yIndex = 0; yIndex < roomsPerRow; yIndex++) {
+				final int xCoordinate = xIndex * roomSpacing + roomSpacing / 5;
+				final int yCoordinate = yIndex * roomSpacing + roomSpacing / 10;
+				final Room room = new Room(factory,
+						new RectangularShape(xCoordinate, yCoordinate, roomSize, roomSize), "Room");
+				new Door(room, Room.WALL.BOTTOM, roomSpacing / 5, doorWidth, true, "Door");
+				final Area area = new Area(room, new RectangularShape(xCoordinate + areaMargin,
+						yCoordinate + areaMargin, roomSize - 2 * areaMargin, roomSize - 2 * areaMargin), "Area");
+				new Machine(area, new RectangularShape(xCoordinate + roomSpacing / 5, yCoordinate + roomSpacing / 5,
+						MACHINE_SIZE, MACHINE_SIZE), "Machine");
+			}
+		}
+
+		return factory;
+	}
+
+	/**
+	 * @return The machines of the factory, in the order of the components.
+	 */
+	static List<Machine> getMachines(final Factory factory) {
+		final List<Machine> machines = new ArrayList<>();
+
+		for (final Component component : factory.getComponents()) {
+			if (component instanceof Machine) {
+				machines.add((Machine) component);
+			}
+		}
+
+		return machines;
+	}
+}
@@ -0,0 +1,108 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Factory;
+import model.Machine;
+import model.Robot;
+import model.SimulationScheduler;
+import model.path.FactoryPathFinder;
+import model.path.ReservationFactoryPathFinder;
+import model.path.ReservationTable;
+import model.path.RoutingGraph;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.CircularShape;
+
+/**
+ * Compares the robots avoiding each other reactively with the robots planning
+ * their paths through a shared reservation table, on a dense fleet shuttling
+ * between the machines of rooms that each have a single door. The simulation is
+ * run by its scheduler for a fixed duration, after which the ticks the robots
+ * spent blocked and the number of times they planned again are reported.
+ */
+public class CooperativePlanningBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(CooperativePlanningBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 200;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 10;
+
+	private static final int RESOLUTION = 5;
+
+	private static final int ROBOTS = 24;
+
+	private static final int TICK_PERIOD = 1;
+
+	private static final long DURATION = 5000;
+
+	public static void main(String[] args) throws InterruptedException {
+		final Function<ReservationTable, FactoryPathFinder> reactivePathFinders = reservationTable -> //
+		new SparseIntAStarFactoryPathFinder(reservationTable.getRoutingGraph());
+
+		// Warm up the code paths before measuring
+		run("warm-up", reactivePathFinders, DURATION);
+		run("warm-up", ReservationFactoryPathFinder::new, DURATION);
+
+		run("reactive", reactivePathFinders, DURATION);
+		run("reservation table", ReservationFactoryPathFinder::new, DURATION);
+	}
+
+	private static void run(final String name, final Function<ReservationTable, FactoryPathFinder> pathFinders,
+			final long duration) throws InterruptedException {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final ReservationTable reservationTable = new ReservationTable(new RoutingGraph(factory, RESOLUTION));
+		final List<Robot> robots = createRobots(factory, reservationTable, pathFinders);
+
+		factory.startSimulation();
+		final SimulationScheduler scheduler = factory.getScheduler();
+		Thread.sleep(duration);
+		final long tickCount = scheduler.getTickCount();
+		final long averageTickDuration = scheduler.getAverageTickDuration();
+		final long maxTickDuration = scheduler.getMaxTickDuration();
+		factory.stopSimulation();
+
+		long blockedTickCount = 0;
+		long replanCount = 0;
+
+		for (final Robot robot : robots) {
+			blockedTickCount += robot.getBlockedTickCount();
+			replanCount += robot.getReplanCount();
+		}
+
+		LOGGER.info(String.format("%s: %d ticks, blocked %.1f%% of robot ticks, %d replans, tick %.1f us (max %.1f us)",
+				name, tickCount, 100.0 * blockedTickCount / (tickCount * robots.size()), replanCount,
+				averageTickDuration / 1e3, maxTickDuration / 1e3));
+	}
+
+	/**
+	 * The routing graph of the reservation table is also the one of the reactive
+	 * path finders, so that both fleets route on the same cells.
+	 */
+	private static List<Robot> createRobots(final Factory factory, final ReservationTable reservationTable,
+			final Function<ReservationTable, FactoryPathFinder> pathFinders) {
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+
+		factory.setTickPeriod(TICK_PERIOD);
+
+		final List<Robot> robots = new ArrayList<>();
+
+		for (int robotIndex = 0; robotIndex < ROBOTS; robotIndex++) {
+			final Robot robot = new Robot(factory, pathFinders.apply(reservationTable),
+					new CircularShape(10 + robotIndex % 12 * 2 * RESOLUTION,
+							FACTORY_SIZE - 4 * RESOLUTION + robotIndex / 12 * 2 * RESOLUTION, 2),
+					new Battery(10), "Robot " + robotIndex);
+			robot.addTargetComponent(machines.get(robotIndex % machines.size()));
+			robot.addTargetComponent(machines.get((robotIndex + 1) % machines.size()));
+			robots.add(robot);
+		}
+
+		return robots;
+	}
+}
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Component;
+import model.Door;
+import model.Factory;
+import model.Machine;
+import model.Robot;
+import model.path.DistanceFieldFactoryPathFinder;
+import model.path.DistanceFields;
+import model.path.FactoryPathFinder;
+import model.path.RoutingGraph;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.CircularShape;
+
+/**
+ * Compares the paths of robots to the machines of a grid of rooms found with an
+ * A* search and by descending the precomputed distance fields of the machines.
+ * The memory and the computation time of the fields are reported, as well as
+ * the cost of the first paths found after a door closed, which compute the
+ * fields of their targets again.
+ */
+public class DistanceFieldBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(DistanceFieldBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 400;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int RESOLUTION = 5;
+
+	private static final int ROBOTS = 200;
+
+	private static final int PATHS = 20_000;
+
+	public static void main(String[] args) {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final List<Machine> machines = new ArrayList<>();
+		final List<Door> doors = new ArrayList<>();
+
+		for (final Component component : factory.getComponents()) {
+			if (component instanceof Machine) {
+				machines.add((Machine) component);
+			} else if (component instanceof Door) {
+				doors.add((Door) component);
+			}
+		}
+
+		final List<Robot> robots = createRobots(factory);
+		final RoutingGraph routingGraph = new RoutingGraph(factory, RESOLUTION);
+		final DistanceFields distanceFields = new DistanceFields(routingGraph);
+		final FactoryPathFinder aStarPathFinder = new SparseIntAStarFactoryPathFinder(routingGraph);
+		final FactoryPathFinder distanceFieldPathFinder = new DistanceFieldFactoryPathFinder(distanceFields);
+
+		// Warm up the code paths and rasterize the obstacles before measuring
+		run("warm-up", aStarPathFinder, robots, machines);
+
+		final long startTime = System.nanoTime();
+		final int targetCount = distanceFields.precomputeTargets();
+		final long precomputeDuration = System.nanoTime() - startTime;
+
+		LOGGER.info(String.format("%d target fields computed in %.1f ms, %d bytes per field, %d bytes in total",
+				targetCount, precomputeDuration / 1e6, distanceFields.getMemorySize() / distanceFields.size(),
+				distanceFields.getMemorySize()));
+
+		run("warm-up", distanceFieldPathFinder, robots, machines);
+
+		run("A*", aStarPathFinder, robots, machines);
+		run("distance fields", distanceFieldPathFinder, robots, machines);
+
+		final long rebuildCount = distanceFields.getRebuildCount();
+		final long rebuildDuration = distanceFields.getTotalRebuildDuration();
+		doors.get(0).close();
+		run("distance fields after a door closed", distanceFieldPathFinder, robots, machines);
+
+		LOGGER.info(String.format("%d fields computed again lazily in %.1f us per field",
+				distanceFields.getRebuildCount() - rebuildCount,
+				(distanceFields.getTotalRebuildDuration() - rebuildDuration) / 1e3
+						/ (distanceFields.getRebuildCount() - rebuildCount)));
+	}
+
+	private static void run(final String name, final FactoryPathFinder pathFinder, final List<Robot> robots,
+			final List<Machine> machines) {
+		final Random random = new Random(42);
+		long pathLength = 0;
+		long expandedVertexCount = 0;
+		final long startTime = System.nanoTime();
+
+		for (int path = 0; path < PATHS; path++) {
+			pathLength += pathFinder.findPath(robots.get(random.nextInt(robots.size())),
+					machines.get(random.nextInt(machines.size()))).size();
+			expandedVertexCount += pathFinder.getExpandedVertexCount();
+		}
+
+		final long duration = System.nanoTime() - startTime;
+
+		LOGGER.info(String.format("%s: %.1f us per path, %.1f cells per path, %.1f expanded vertexes per path", name,
+				duration / 1e3 / PATHS, (double) pathLength / PATHS, (double) expandedVertexCount / PATHS));
+	}
+
+	private static List<Robot> createRobots(final Factory factory) {
+		final Random random = new Random(7);
+		final List<Robot> robots = new ArrayList<>();
+		final int rows = FACTORY_SIZE / ROOM_SPACING;
+
+		for (int robotIndex = 0; robotIndex < ROBOTS; robotIndex++) {
+			// Robots are spread along the corridors below the rows of rooms
+			final int xCoordinate = RESOLUTION + random.nextInt(FACTORY_SIZE - 2 * RESOLUTION);
+			final int yCoordinate = ROOM_SPACING * random.nextInt(rows) + 85;
+			robots.add(new Robot(factory, null, new CircularShape(xCoordinate, yCoordinate, 2), new Battery(10),
+					"Robot " + robotIndex));
+		}
+
+		return robots;
+	}
+}
@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.ChargingStation;
+import model.EnergyModel;
+import model.Factory;
+import model.Machine;
+import model.Robot;
+import model.SimulationScheduler;
+import model.path.ReservationFactoryPathFinder;
+import model.path.ReservationTable;
+import model.path.RoutingGraph;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+/**
+ * Sizes the charging capacity of a fleet shuttling between the machines of a
+ * grid of rooms through a shared reservation table, by simulating a day of
+ * ticks of one second as fast as possible with an increasing number of
+ * charging stations. The time the robots spend waiting for a station or with an
+ * empty battery is reported for each station count, as well as the simulation
+ * speed and the bytes allocated per tick.
+ */
+public class EnergyBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(EnergyBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 400;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int RESOLUTION = 5;
+
+	private static final int ROBOTS = 40;
+
+	private static final float BATTERY_CAPACITY = 100;
+
+	private static final float ENERGY_PER_DISTANCE = 0.01f;
+
+	private static final float CHARGE_RATE = 1;
+
+	private static final long TICKS = 24 * 60 * 60;
+
+	public static void main(String[] args) {
+		// Warm up the code paths before measuring
+		run(2, TICKS / 24);
+
+		for (final int stationCount : new int[] { 1, 2, 4, 8 }) {
+			run(stationCount, TICKS);
+		}
+	}
+
+	private static void run(final int stationCount, final long ticks) {
+		final Factory factory = createFactory(stationCount);
+		final ReservationTable reservationTable = new ReservationTable(new RoutingGraph(factory, RESOLUTION));
+		final List<Robot> robots = createRobots(factory, reservationTable);
+		final EnergyModel energyModel = new EnergyModel(factory, reservationTable.getDistanceFields(),
+				ENERGY_PER_DISTANCE, EnergyModel.DEFAULT_CHARGE_THRESHOLD, CHARGE_RATE);
+		factory.setEnergyModel(energyModel);
+
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		final long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+		final long startTime = System.nanoTime();
+		final SimulationScheduler scheduler = factory.runSimulation(ticks);
+		final long duration = System.nanoTime() - startTime;
+		final long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+		long travelledDistance = 0;
+
+		for (final Robot robot : robots) {
+			travelledDistance += robot.getTravelledDistance();
+		}
+
+		final double robotTicks = (double) scheduler.getTickCount() * robots.size();
+
+		LOGGER.info(String.format(
+				"%d stations: %.1f%% of robot ticks waiting, %.1f%% depleted, %d charges, utilization %.1f%%, "
+						+ "fleet level %.1f%%, %.0f travelled per robot, %.0f ticks/s, %.1f bytes allocated per tick",
+				stationCount, 100.0 * energyModel.getWaitingTickCount() / robotTicks,
+				100.0 * energyModel.getDepletedTickCount() / robotTicks, energyModel.getChargeCount(),
+				100.0 * energyModel.getStationUtilization(), 100.0 * energyModel.getFleetLevel(),
+				(double) travelledDistance / robots.size(), scheduler.getTickCount() / (duration / 1e9),
+				(double) allocatedBytes / scheduler.getTickCount()));
+	}
+
+	private static List<Robot> createRobots(final Factory factory, final ReservationTable reservationTable) {
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+
+		final List<Robot> robots = new ArrayList<>();
+		final int robotsPerRow = ROBOTS / (FACTORY_SIZE / ROOM_SPACING);
+
+		for (int robotIndex = 0; robotIndex < ROBOTS; robotIndex++) {
+			// Robots start in the corridors below the rows of rooms
+			final int xCoordinate = 2 * RESOLUTION * (1 + robotIndex % robotsPerRow);
+			final int yCoordinate = ROOM_SPACING * (robotIndex / robotsPerRow) + 85;
+			final Robot robot = new Robot(factory, new ReservationFactoryPathFinder(reservationTable),
+					new CircularShape(xCoordinate, yCoordinate, 2), new Battery(BATTERY_CAPACITY),
+					"Robot " + robotIndex);
+			robot.addTargetComponent(machines.get(robotIndex % machines.size()));
+			robot.addTargetComponent(machines.get((robotIndex * 7 + 5) % machines.size()));
+			robots.add(robot);
+		}
+
+		return robots;
+	}
+
+	private static Factory createFactory(final int stationCount) {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+
+		for (int station = 0; station < stationCount; station++) {
+			// Stations line the right edge of the factory, between the rooms
+			new ChargingStation(factory, new RectangularShape(FACTORY_SIZE - 15,
+					(station * FACTORY_SIZE / stationCount + 85) % FACTORY_SIZE, 10, 10), "Charging Station " + station);
+		}
+
+		return factory;
+	}
+}
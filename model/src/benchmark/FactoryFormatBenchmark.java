@@ -0,0 +1,134 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Factory;
+import model.FactoryFormat;
+import model.Machine;
+import model.Robot;
+import model.path.CachingFactoryPathFinder;
+import model.path.PathCache;
+import model.path.RoutingGraph;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.CircularShape;
+
+/**
+ * Compares the size of a stored factory and the mean time taken to save and load
+ * it with the factory format and with Java serialization.
+ */
+public class FactoryFormatBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(FactoryFormatBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 1000;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int ROBOTS = 50;
+
+	private static final int ITERATIONS = 200;
+
+	private interface Format {
+
+		byte[] save(Factory factory) throws IOException;
+
+		Factory load(byte[] data) throws IOException;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Factory factory = createFactory();
+
+		run("factory format", factory, new Format() {
+
+			@Override
+			public byte[] save(final Factory factory) throws IOException {
+				final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+				FactoryFormat.write(factory, outputStream);
+
+				return outputStream.toByteArray();
+			}
+
+			@Override
+			public Factory load(final byte[] data) throws IOException {
+				return FactoryFormat.read(new ByteArrayInputStream(data));
+			}
+		});
+
+		run("java serialization", factory, new Format() {
+
+			@Override
+			public byte[] save(final Factory factory) throws IOException {
+				final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+				try (final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+					objectOutputStream.writeObject(factory);
+				}
+
+				return outputStream.toByteArray();
+			}
+
+			@Override
+			public Factory load(final byte[] data) throws IOException {
+				try (final ObjectInputStream objectInputStream = new ObjectInputStream(
+						new ByteArrayInputStream(data))) {
+					return (Factory) objectInputStream.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+			}
+		});
+	}
+
+	private static void run(final String name, final Factory factory, final Format format) throws IOException {
+		// Warm up the code paths before measuring
+		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+			format.load(format.save(factory));
+		}
+
+		byte[] data = null;
+		long startTime = System.nanoTime();
+
+		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+			data = format.save(factory);
+		}
+
+		final long saveDuration = (System.nanoTime() - startTime) / ITERATIONS;
+		startTime = System.nanoTime();
+
+		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+			format.load(data);
+		}
+
+		final long loadDuration = (System.nanoTime() - startTime) / ITERATIONS;
+
+		LOGGER.info(String.format("%s: %d bytes, save %.1f us, load %.1f us", name, data.length, saveDuration / 1e3,
+				loadDuration / 1e3));
+	}
+
+	private static Factory createFactory() {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+
+		final RoutingGraph routingGraph = new RoutingGraph(factory, 5);
+		final PathCache pathCache = new PathCache(factory, 5, 256);
+
+		for (int robotIndex = 0; robotIndex < ROBOTS; robotIndex++) {
+			final Robot robot = new Robot(factory,
+					new CachingFactoryPathFinder(new SparseIntAStarFactoryPathFinder(routingGraph), pathCache),
+					new CircularShape(robotIndex * 10, 0, 2), new Battery(10), "Robot " + robotIndex);
+			robot.addTargetComponent(machines.get(robotIndex % machines.size()));
+			robot.addTargetComponent(machines.get((robotIndex + 1) % machines.size()));
+		}
+
+		return factory;
+	}
+}
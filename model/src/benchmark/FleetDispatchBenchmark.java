@@ -0,0 +1,111 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Factory;
+import model.FleetDispatcher;
+import model.Machine;
+import model.Robot;
+import model.SimulationScheduler;
+import model.path.ReservationFactoryPathFinder;
+import model.path.ReservationTable;
+import model.path.RoutingGraph;
+import model.shapes.CircularShape;
+
+/**
+ * Compares the dispatch of targets to the first idle robots with the dispatch
+ * minimizing the total distance travelled, on a fleet serving the machines of a
+ * grid of rooms. Machines request visits at random, the queue of pending
+ * targets being kept as long as the fleet, and the simulation is run by its
+ * scheduler for a fixed duration.
+ */
+public class FleetDispatchBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(FleetDispatchBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 400;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int RESOLUTION = 5;
+
+	private static final int ROBOTS = 60;
+
+	private static final int TICK_PERIOD = 1;
+
+	private static final long DURATION = 10000;
+
+	public static void main(String[] args) throws InterruptedException {
+		// Warm up the code paths before measuring
+		run(FleetDispatcher.Strategy.MIN_TOTAL_DISTANCE, DURATION / 2);
+
+		run(FleetDispatcher.Strategy.FIRST_IDLE, DURATION);
+		run(FleetDispatcher.Strategy.MIN_TOTAL_DISTANCE, DURATION);
+	}
+
+	private static void run(final FleetDispatcher.Strategy strategy, final long duration)
+			throws InterruptedException {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+
+		final ReservationTable reservationTable = new ReservationTable(new RoutingGraph(factory, RESOLUTION));
+		final List<Robot> robots = createRobots(factory, reservationTable);
+		// The dispatcher reads the distance fields the path finders already computed
+		final FleetDispatcher dispatcher = new FleetDispatcher(reservationTable.getDistanceFields(),
+				FleetDispatcher.DEFAULT_DISPATCH_PERIOD, strategy);
+		final Random random = new Random(42);
+		factory.setDispatcher(dispatcher);
+		factory.setTickPeriod(TICK_PERIOD);
+
+		factory.startSimulation();
+		final SimulationScheduler scheduler = factory.getScheduler();
+		final long endTime = System.currentTimeMillis() + duration;
+
+		while (System.currentTimeMillis() < endTime) {
+			while (dispatcher.getPendingCount() < ROBOTS) {
+				dispatcher.submit(machines.get(random.nextInt(machines.size())));
+			}
+
+			Thread.sleep(1);
+		}
+
+		final long tickCount = scheduler.getTickCount();
+		factory.stopSimulation();
+
+		long travelledDistance = 0;
+
+		for (final Robot robot : robots) {
+			travelledDistance += robot.getTravelledDistance();
+		}
+
+		final long completedCount = dispatcher.getCompletedCount();
+
+		LOGGER.info(String.format(
+				"%s: %d ticks, %d targets visited (%.1f per 1000 ticks), %.1f ticks per target, "
+						+ "%.1f travelled per target, last dispatch %.1f us",
+				strategy, tickCount, completedCount, 1000.0 * completedCount / tickCount,
+				dispatcher.getAverageCompletionTicks(), (double) travelledDistance / completedCount,
+				dispatcher.getLastDispatchDuration() / 1e3));
+	}
+
+	private static List<Robot> createRobots(final Factory factory, final ReservationTable reservationTable) {
+		final List<Robot> robots = new ArrayList<>();
+		final int robotsPerRow = ROBOTS / (FACTORY_SIZE / ROOM_SPACING);
+
+		for (int robotIndex = 0; robotIndex < ROBOTS; robotIndex++) {
+			// Robots start in the corridors below the rows of rooms
+			final int xCoordinate = 2 * RESOLUTION * (1 + robotIndex % robotsPerRow);
+			final int yCoordinate = ROOM_SPACING * (robotIndex / robotsPerRow) + 85;
+			robots.add(new Robot(factory, new ReservationFactoryPathFinder(reservationTable),
+					new CircularShape(xCoordinate, yCoordinate, 2), new Battery(10), "Robot " + robotIndex));
+		}
+
+		return robots;
+	}
+}
@@ -0,0 +1,108 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Factory;
+import model.Position;
+import model.Robot;
+import model.motion.Motion;
+import model.shapes.CircularShape;
+
+/**
+ * Measures the throughput of concurrent robot motions in a factory, with the
+ * motions performed through {@link Factory#moveComponent(Motion, model.Component)}
+ * and, as a baseline, with all motions serialized behind the factory monitor.
+ * Each robot performs a random walk on its own thread.
+ */
+public class MotionContentionBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(MotionContentionBenchmark.class.getName());
+
+	private static final int[] ROBOT_COUNTS = { 1, 10, 50, 100, 250, 500 };
+
+	private static final int FACTORY_SIZE = 2000;
+
+	private static final int STEP = 5;
+
+	private static final int MOVES_PER_ROBOT = 2000;
+
+	public static void main(String[] args) throws InterruptedException {
+		// Warm up the JIT before measuring
+		run(ROBOT_COUNTS[ROBOT_COUNTS.length - 1], false);
+
+		for (final int robotCount : ROBOT_COUNTS) {
+			final double stripedThroughput = run(robotCount, false);
+			final double serializedThroughput = run(robotCount, true);
+
+			LOGGER.info(String.format("%d robots: striped locks %.0f moves/s, factory monitor %.0f moves/s",
+					robotCount, stripedThroughput, serializedThroughput));
+		}
+	}
+
+	private static double run(final int robotCount, final boolean serialized) throws InterruptedException {
+		final Factory factory = new Factory(FACTORY_SIZE, FACTORY_SIZE, "Contention Factory");
+		final List<Robot> robots = new ArrayList<>();
+		final int robotsPerRow = (int) Math.ceil(Math.sqrt(robotCount));
+		final int spacing = FACTORY_SIZE / (robotsPerRow + 1);
+
+		for (int index = 0; index < robotCount; index++) {
+			final int xCoordinate = spacing * (1 + index % robotsPerRow);
+			final int yCoordinate = spacing * (1 + index / robotsPerRow);
+			robots.add(new Robot(factory, null, new CircularShape(xCoordinate, yCoordinate, 2), new Battery(10),
+					"Robot " + index));
+		}
+
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		final CountDownLatch doneSignal = new CountDownLatch(robotCount);
+
+		for (int index = 0; index < robotCount; index++) {
+			final Robot robot = robots.get(index);
+			final Random random = new Random(index);
+
+			new Thread(() -> {
+				try {
+					startSignal.await();
+
+					for (int move = 0; move < MOVES_PER_ROBOT; move++) {
+						final Motion motion = randomStep(robot, random);
+
+						if (serialized) {
+							synchronized (factory) {
+								factory.moveComponent(motion, robot);
+							}
+						} else {
+							factory.moveComponent(motion, robot);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					doneSignal.countDown();
+				}
+			}).start();
+		}
+
+		final long startTime = System.nanoTime();
+		startSignal.countDown();
+		doneSignal.await();
+		final long duration = System.nanoTime() - startTime;
+
+		return (double) robotCount * MOVES_PER_ROBOT / (duration / 1e9);
+	}
+
+	private static Motion randomStep(final Robot robot, final Random random) {
+		final Position position = robot.getPosition();
+		final int direction = random.nextInt(4);
+		final int xCoordinate = position.getxCoordinate() + (direction == 0 ? STEP : direction == 1 ? -STEP : 0);
+		final int yCoordinate = position.getyCoordinate() + (direction == 2 ? STEP : direction == 3 ? -STEP : 0);
+		final int maxCoordinate = FACTORY_SIZE - STEP;
+
+		return new Motion(position, new Position(Math.max(0, Math.min(maxCoordinate, xCoordinate)),
+				Math.max(0, Math.min(maxCoordinate, yCoordinate))));
+	}
+}
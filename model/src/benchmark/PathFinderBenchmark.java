@@ -0,0 +1,95 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Component;
+import model.Factory;
+import model.Machine;
+import model.Robot;
+import model.path.CustomDijkstraFactoryPathFinder;
+import model.path.FactoryPathFinder;
+import model.path.JGraphTDijkstraFactoryPathFinder;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.path.SparseIntDijkstraFactoryPathFinder;
+import model.shapes.CircularShape;
+
+/**
+ * Compares the memory retained by the graph of each path finder, the time taken
+ * to build it, the mean latency of a path query and the mean number of vertexes
+ * it expands, on a factory made of a grid of rooms each holding a machine.
+ */
+public class PathFinderBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(PathFinderBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 500;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int RESOLUTION = 5;
+
+	private static final int QUERIES = 20;
+
+	public static void main(String[] args) {
+		run("JGraphT Dijkstra", JGraphTDijkstraFactoryPathFinder::new);
+		run("Custom Dijkstra", CustomDijkstraFactoryPathFinder::new);
+		run("Sparse int Dijkstra", SparseIntDijkstraFactoryPathFinder::new);
+		run("Sparse int A*", SparseIntAStarFactoryPathFinder::new);
+		run("Sparse int bidirectional A*",
+				(factory, resolution) -> new SparseIntAStarFactoryPathFinder(factory, resolution, true));
+	}
+
+	private static void run(final String name, final BiFunction<Factory, Integer, FactoryPathFinder> finderFactory) {
+		// Release the graph of the previous run before measuring
+		usedMemory();
+
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+		final FactoryPathFinder pathFinder = finderFactory.apply(factory, RESOLUTION);
+		final Robot robot = new Robot(factory, pathFinder, new CircularShape(0, 0, 2), new Battery(10), "Robot");
+		final Random random = new Random(0);
+
+		final long usedMemoryBefore = usedMemory();
+		long startTime = System.nanoTime();
+		pathFinder.findPath(robot, machines.get(0));
+		final long buildDuration = System.nanoTime() - startTime;
+		final long graphMemory = usedMemory() - usedMemoryBefore;
+
+		long pathLengths = 0;
+		long expandedVertexCounts = 0;
+		startTime = System.nanoTime();
+
+		for (int query = 0; query < QUERIES; query++) {
+			robot.getPosition().setxCoordinate(random.nextInt(FACTORY_SIZE / RESOLUTION) * RESOLUTION);
+			robot.getPosition().setyCoordinate(random.nextInt(FACTORY_SIZE / RESOLUTION) * RESOLUTION);
+
+			final Component target = machines.get(random.nextInt(machines.size()));
+			final List<?> path = pathFinder.findPath(robot, target);
+			pathLengths += path.size();
+			expandedVertexCounts += pathFinder.getExpandedVertexCount();
+		}
+
+		final long queryDuration = (System.nanoTime() - startTime) / QUERIES;
+
+		LOGGER.info(String.format(
+				"%s: graph %d KiB, build %.1f ms, query %.3f ms, %d expanded vertexes (total path length %d)", name,
+				graphMemory / 1024, buildDuration / 1e6, queryDuration / 1e6, expandedVertexCounts / QUERIES,
+				pathLengths));
+	}
+
+	private static long usedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+
+		for (int run = 0; run < 3; run++) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import model.Battery;
+import model.Component;
+import model.Factory;
+import model.Machine;
+import model.Robot;
+import model.path.RoutingGraph;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.CircularShape;
+import simulation.BinarySimulationEventCodec;
+import simulation.ComponentState;
+import simulation.JsonSimulationEventCodec;
+import simulation.SimulationEvent;
+import simulation.SimulationEventCodec;
+
+/**
+ * Compares the size of the messages written by each simulation event codec and
+ * the mean time taken to encode and decode them, for a keyframe and for a delta
+ * in which all the robots of the factory moved.
+ */
+public class SimulationEventCodecBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(SimulationEventCodecBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 500;
+
+	private static final int ROOM_SPACING = 100;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int ROBOTS = 10;
+
+	private static final int KEYFRAME_ITERATIONS = 200;
+
+	private static final int DELTA_ITERATIONS = 20000;
+
+	public static void main(String[] args) throws IOException {
+		final Factory factory = createFactory();
+		final SimulationEvent keyframe = SimulationEvent.keyframe(0, factory);
+		final SimulationEvent delta = SimulationEvent.delta(1, createRobotStates(factory));
+
+		for (final SimulationEventCodec codec : new SimulationEventCodec[] { new JsonSimulationEventCodec(),
+				new BinarySimulationEventCodec() }) {
+			run(codec, "keyframe", keyframe, KEYFRAME_ITERATIONS);
+			run(codec, "delta of " + ROBOTS + " robots", delta, DELTA_ITERATIONS);
+		}
+	}
+
+	private static void run(final SimulationEventCodec codec, final String name, final SimulationEvent event,
+			final int iterations) throws IOException {
+		// Warm up the code paths before measuring
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			codec.decode(codec.encode(event));
+		}
+
+		byte[] data = null;
+		long startTime = System.nanoTime();
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			data = codec.encode(event);
+		}
+
+		final long encodeDuration = (System.nanoTime() - startTime) / iterations;
+		startTime = System.nanoTime();
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			codec.decode(data);
+		}
+
+		final long decodeDuration = (System.nanoTime() - startTime) / iterations;
+
+		LOGGER.info(String.format("%s %s: %d bytes, encode %.1f us, decode %.1f us", codec.getName(), name,
+				data.length, encodeDuration / 1e3, decodeDuration / 1e3));
+	}
+
+	private static Factory createFactory() {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+
+		final RoutingGraph routingGraph = new RoutingGraph(factory, 5);
+
+		for (int robotIndex = 0; robotIndex < ROBOTS; robotIndex++) {
+			final Robot robot = new Robot(factory, new SparseIntAStarFactoryPathFinder(routingGraph),
+					new CircularShape(robotIndex * 10, 0, 2), new Battery(10), "Robot " + robotIndex);
+			robot.addTargetComponent(machines.get(robotIndex % machines.size()));
+		}
+
+		return factory;
+	}
+
+	private static List<ComponentState> createRobotStates(final Factory factory) {
+		final List<ComponentState> componentStates = new ArrayList<>();
+		final List<Component> components = factory.getComponents();
+
+		for (int index = 0; index < components.size(); index++) {
+			if (components.get(index) instanceof Robot) {
+				componentStates.add(ComponentState.of(index, components.get(index)));
+			}
+		}
+
+		return componentStates;
+	}
+}
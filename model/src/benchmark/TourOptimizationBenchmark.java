@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import model.Component;
+import model.Factory;
+import model.Machine;
+import model.path.DistanceFields;
+import model.path.RoutingGraph;
+import model.path.TourOptimizer;
+
+/**
+ * Measures the length of the closed tours of robots visiting random machines of
+ * a grid of rooms in their order of insertion and in the order of the tour
+ * optimizer, as well as the duration of an optimization and of a lookup of the
+ * cached tour.
+ */
+public class TourOptimizationBenchmark {
+
+	private static final Logger LOGGER = Logger.getLogger(TourOptimizationBenchmark.class.getName());
+
+	private static final int FACTORY_SIZE = 400;
+
+	private static final int ROOM_SPACING = 50;
+
+	private static final int DOOR_WIDTH = 10;
+
+	private static final int RESOLUTION = 5;
+
+	private static final int TARGETS = 8;
+
+	private static final int TOURS = 1000;
+
+	private static final int LOOKUPS = 1_000_000;
+
+	public static void main(String[] args) {
+		final Factory factory = BenchmarkFactory.create(FACTORY_SIZE, ROOM_SPACING, DOOR_WIDTH);
+		final List<Machine> machines = BenchmarkFactory.getMachines(factory);
+
+		final DistanceFields distanceFields = new DistanceFields(new RoutingGraph(factory, RESOLUTION),
+				machines.size());
+		final Random random = new Random(42);
+
+		// Warm up the code paths and compute the distance fields of all the machines
+		run(distanceFields, machines, random, TOURS);
+
+		final TourOptimizer tourOptimizer = run(distanceFields, machines, random, TOURS);
+		final List<Component> targets = new ArrayList<>(tourOptimizer.getTour(randomTargets(machines, random)));
+		final long startTime = System.nanoTime();
+
+		for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+			tourOptimizer.getTour(targets);
+		}
+
+		LOGGER.info(String.format("cached tour lookup %.1f ns", (double) (System.nanoTime() - startTime) / LOOKUPS));
+	}
+
+	private static TourOptimizer run(final DistanceFields distanceFields, final List<Machine> machines,
+			final Random random, final int tourCount) {
+		final TourOptimizer tourOptimizer = new TourOptimizer(distanceFields);
+		long insertionOrderLength = 0;
+		long tourLength = 0;
+		long optimizationDuration = 0;
+
+		for (int tourIndex = 0; tourIndex < tourCount; tourIndex++) {
+			tourOptimizer.getTour(randomTargets(machines, random));
+			insertionOrderLength += tourOptimizer.getInsertionOrderLength();
+			tourLength += tourOptimizer.getTourLength();
+			optimizationDuration += tourOptimizer.getLastOptimizationDuration();
+		}
+
+		LOGGER.info(String.format(
+				"%d tours of %d machines: insertion order %.1f, optimized %.1f, saved %.1f%%, optimization %.1f us",
+				tourCount, TARGETS, (double) insertionOrderLength / tourCount, (double) tourLength / tourCount,
+				100.0 * (insertionOrderLength - tourLength) / insertionOrderLength,
+				optimizationDuration / 1e3 / tourCount));
+
+		return tourOptimizer;
+	}
+
+	private static List<Component> randomTargets(final List<Machine> machines, final Random random) {
+		final List<Component> targets = new ArrayList<>(TARGETS);
+
+		while (targets.size() < TARGETS) {
+			final Machine machine = machines.get(random.nextInt(machines.size()));
+
+			if (!targets.contains(machine)) {
+				targets.add(machine);
+			}
+		}
+
+		return targets;
+	}
+}
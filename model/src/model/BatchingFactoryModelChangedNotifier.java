@@ -0,0 +1,170 @@
+package model;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.canvas.controller.Observer;
+
+/**
+ * Notifier that batches the notifications of a factory before forwarding them
+ * to another notifier. A notification only marks the model as changed, and the
+ * wrapped notifier is notified on a dedicated thread at most once per frame
+ * window, so that a burst of changes, such as all the robots moving during the
+ * same tick, results in a single notification.
+ */
+public class BatchingFactoryModelChangedNotifier implements FactoryModelChangedNotifier {
+
+	private static final Logger LOGGER = Logger.getLogger(BatchingFactoryModelChangedNotifier.class.getName());
+
+	private final FactoryModelChangedNotifier notifier;
+
+	private final long frameWindow;
+
+	private final ScheduledExecutorService executor;
+
+	private final AtomicBoolean changed;
+
+	private volatile boolean closed;
+
+	private volatile long lastFlushTime;
+
+	private final AtomicLong notificationCount;
+
+	private final AtomicLong coalescedCount;
+
+	private final AtomicLong droppedCount;
+
+	private final AtomicLong flushCount;
+
+	/**
+	 * @param notifier    The notifier to which the batched notifications are
+	 *                    forwarded.
+	 * @param frameWindow The minimum time in milliseconds between two
+	 *                    notifications forwarded to the notifier.
+	 * @param threadName  The name of the thread forwarding the notifications.
+	 */
+	public BatchingFactoryModelChangedNotifier(final FactoryModelChangedNotifier notifier, final long frameWindow,
+			final String threadName) {
+		if (frameWindow < 0) {
+			throw new IllegalArgumentException("The frame window must not be negative: " + frameWindow);
+		}
+
+		this.notifier = notifier;
+		this.frameWindow = frameWindow;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+
+			return thread;
+		});
+		this.changed = new AtomicBoolean(false);
+		this.closed = false;
+		this.lastFlushTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(frameWindow);
+		this.notificationCount = new AtomicLong();
+		this.coalescedCount = new AtomicLong();
+		this.droppedCount = new AtomicLong();
+		this.flushCount = new AtomicLong();
+	}
+
+	public long getFrameWindow() {
+		return frameWindow;
+	}
+
+	@Override
+	public void notifyObservers() {
+		notificationCount.incrementAndGet();
+
+		if (closed) {
+			droppedCount.incrementAndGet();
+
+			return;
+		}
+
+		// A flush is already pending and will include this change
+		if (changed.getAndSet(true)) {
+			coalescedCount.incrementAndGet();
+
+			return;
+		}
+
+		final long delay = Math.max(0, lastFlushTime + TimeUnit.MILLISECONDS.toNanos(frameWindow) - System.nanoTime());
+
+		try {
+			executor.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			changed.set(false);
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	private synchronized void flush() {
+		if (!changed.getAndSet(false)) {
+			return;
+		}
+
+		lastFlushTime = System.nanoTime();
+		flushCount.incrementAndGet();
+
+		try {
+			notifier.notifyObservers();
+		} catch (Exception e) {
+			LOGGER.log(Level.SEVERE, "Notification of the model change failed.", e);
+		}
+	}
+
+	/**
+	 * Stops the forwarding thread after forwarding the pending notification, if
+	 * any. The notifications received afterwards are dropped.
+	 */
+	public void close() {
+		closed = true;
+		executor.shutdown();
+		flush();
+	}
+
+	@Override
+	public boolean addObserver(final Observer observer) {
+		return notifier.addObserver(observer);
+	}
+
+	@Override
+	public boolean removeObserver(final Observer observer) {
+		return notifier.removeObserver(observer);
+	}
+
+	/**
+	 * @return The number of notifications received.
+	 */
+	public long getNotificationCount() {
+		return notificationCount.get();
+	}
+
+	/**
+	 * @return The number of notifications merged into a notification already
+	 *         pending.
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return The number of notifications discarded because the notifier was
+	 *         closed.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return The number of notifications forwarded to the wrapped notifier.
+	 */
+	public long getFlushCount() {
+		return flushCount.get();
+	}
+}
@@ -35,6 +35,10 @@ public class Battery implements Serializable {
 		return level;
 	}
 
+	void setLevel(final float level) {
+		this.level = level;
+	}
+
 	public float charge(float energy) {
 		level += energy;
 
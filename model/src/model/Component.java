@@ -1,8 +1,8 @@
 package model;
 
 import java.io.Serializable;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Collection;
+import java.util.Collections;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -18,10 +18,7 @@ import model.shapes.PositionedShape;
     include = JsonTypeInfo.As.PROPERTY, 
     property = "@class"
 )
-public abstract class Component implements Figure, Serializable, Runnable {
-
-	@JsonIgnore
-	private static transient Logger LOGGER = Logger.getLogger(Component.class.getName());
+public abstract class Component implements Figure, Serializable {
 
 	private static final long serialVersionUID = -5960950869184030220L;
 
@@ -75,6 +72,7 @@ public abstract class Component implements Figure, Serializable, Runnable {
 
 	protected boolean setxCoordinate(int xCoordinate) {
 		if (getPositionedShape().setxCoordinate(xCoordinate)) {
+			positionChanged();
 			notifyObservers();
 
 			return true;
@@ -90,6 +88,7 @@ public abstract class Component implements Figure, Serializable, Runnable {
 
 	protected boolean setyCoordinate(final int yCoordinate) {
 		if (getPositionedShape().setyCoordinate(yCoordinate)) {
+			positionChanged();
 			notifyObservers();
 
 			return true;
@@ -98,6 +97,12 @@ public abstract class Component implements Figure, Serializable, Runnable {
 		return false;
 	}
 
+	private void positionChanged() {
+		if (getFactory() != null) {
+			getFactory().componentMoved(this);
+		}
+	}
+
 	protected void notifyObservers() {
 		getFactory().notifyObservers();
 	}
@@ -125,6 +130,14 @@ public abstract class Component implements Figure, Serializable, Runnable {
 		return false;
 	}
 
+	/**
+	 * @return {@code true} if this component acts during the simulation, in which
+	 *         case its {@link #behave()} method is invoked at each tick.
+	 */
+	public boolean hasBehavior() {
+		return false;
+	}
+
 	public boolean isMobile() {
 		return false;
 	}
@@ -141,6 +154,14 @@ public abstract class Component implements Figure, Serializable, Runnable {
 		return false;
 	}
 
+	/**
+	 * @return The shapes in which this component may overlay other shapes, used to
+	 *         index the component in the factory.
+	 */
+	protected Collection<PositionedShape> getOccupiedShapes() {
+		return Collections.singletonList(getPositionedShape());
+	}
+
 	@Override
 	public Style getStyle() {
 		return ComponentStyle.DEFAULT;
@@ -155,19 +176,4 @@ public abstract class Component implements Figure, Serializable, Runnable {
 	public boolean isSimulationStarted() {
 		return getFactory().isSimulationStarted();
 	}
-
-	@Override
-	public void run() {
-		while (isSimulationStarted() && !Thread.currentThread().isInterrupted()) {
-			try {
-				behave();
-				Thread.sleep(50);
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				break;
-			} catch (Exception e) {
-				LOGGER.log(Level.SEVERE, e.getStackTrace().toString());
-			}
-		}
-	}
 }
@@ -88,12 +88,44 @@ public class Door extends Component {
 		this.open = open;
 	}
 
+	Room getRoom() {
+		return room;
+	}
+
+	/**
+	 * @return The wall of the room in which the door is, found from its shape.
+	 */
+	Room.WALL getWall() {
+		if (isHorizontal()) {
+			return getyCoordinate() == room.getyCoordinate() ? Room.WALL.TOP : Room.WALL.BOTTOM;
+		}
+
+		return getxCoordinate() == room.getxCoordinate() ? Room.WALL.LEFT : Room.WALL.RIGHT;
+	}
+
+	/**
+	 * @return The distance between the door and the corner of the room along its
+	 *         wall.
+	 */
+	int getOffset() {
+		return isHorizontal() ? getxCoordinate() - room.getxCoordinate() : getyCoordinate() - room.getyCoordinate();
+	}
+
+	int getDoorWidth() {
+		return isHorizontal() ? getWidth() : getHeight();
+	}
+
+	private boolean isHorizontal() {
+		return getHeight() == THICKNESS && (getyCoordinate() == room.getyCoordinate()
+				|| getyCoordinate() == room.getyCoordinate() + room.getHeight());
+	}
+
 	@Override
 	public Style getStyle() {
 		return isOpen() ? OPEN_STYLE : ComponentStyle.DEFAULT_BLACK;
 	}
 
-	private boolean isOpen() {
+	public boolean isOpen() {
 		return open;
 	}
 
@@ -104,6 +136,7 @@ public class Door extends Component {
 
 		open = true;
 
+		doorToggled();
 		notifyObservers();
 
 		return true;
@@ -113,6 +146,7 @@ public class Door extends Component {
 		if (isOpen()) {
 			open = false;
 
+			doorToggled();
 			notifyObservers();
 
 			return true;
@@ -121,6 +155,12 @@ public class Door extends Component {
 		return false;
 	}
 
+	private void doorToggled() {
+		if (getFactory() != null) {
+			getFactory().obstaclesChanged(this);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "]";
@@ -0,0 +1,458 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.path.DistanceField;
+import model.path.DistanceFields;
+
+/**
+ * Energy model of the robots of a factory. The battery of a robot is drained in
+ * proportion to the distance it moves, and a robot whose battery level falls
+ * below a threshold leaves its targets for the charging station with the
+ * shortest queue, the nearest one among the free stations. Each station charges
+ * the robot at the head of its queue once it reached the station, at a fixed
+ * rate per tick until its battery is full, while the other queued robots wait
+ * where they are until called. A robot whose battery is empty stops
+ * until the end of the simulation, and leaves the queue of its station.
+ *
+ * The stations and their queues are only allocated again when components are
+ * added to or removed from the factory, so that the simulation of long horizons
+ * does not allocate anything per tick for the energy of the robots.
+ */
+public class EnergyModel {
+
+	public static final float DEFAULT_ENERGY_PER_DISTANCE = 0.01f;
+
+	public static final float DEFAULT_CHARGE_THRESHOLD = 0.2f;
+
+	public static final float DEFAULT_CHARGE_RATE = 0.05f;
+
+	private final Factory factoryModel;
+
+	private final DistanceFields distanceFields;
+
+	private final float energyPerDistance;
+
+	private final float chargeThreshold;
+
+	private final float chargeRate;
+
+	/**
+	 * Layout epoch of the factory when the stations and the robots were collected.
+	 */
+	private long layoutEpoch;
+
+	private volatile Robot[] robots;
+
+	private ChargingStation[] stations;
+
+	private int[] stationCells;
+
+	/**
+	 * Queues of the stations, as circular buffers of the size of the fleet.
+	 */
+	private Robot[][] queues;
+
+	private int[] queueHeads;
+
+	private int[] queueSizes;
+
+	private volatile double consumedEnergy;
+
+	private volatile double chargedEnergy;
+
+	private volatile long chargeCount;
+
+	private volatile long waitingTickCount;
+
+	private volatile long chargingTickCount;
+
+	private volatile long stationTickCount;
+
+	private volatile long depletedTickCount;
+
+	public EnergyModel(final Factory factoryModel) {
+		this(factoryModel, null, DEFAULT_ENERGY_PER_DISTANCE, DEFAULT_CHARGE_THRESHOLD, DEFAULT_CHARGE_RATE);
+	}
+
+	/**
+	 * @param distanceFields    The distance fields giving the distances from the
+	 *                          robots to the stations, or {@code null} to use
+	 *                          the Manhattan distance.
+	 * @param energyPerDistance The energy consumed per unit of distance moved.
+	 * @param chargeThreshold   The fraction of the battery capacity below which a
+	 *                          robot goes charging.
+	 * @param chargeRate        The energy a station charges per tick.
+	 */
+	public EnergyModel(final Factory factoryModel, final DistanceFields distanceFields,
+			final float energyPerDistance, final float chargeThreshold, final float chargeRate) {
+		if (energyPerDistance < 0 || chargeThreshold < 0 || chargeThreshold > 1 || chargeRate <= 0) {
+			throw new IllegalArgumentException("Invalid energy model: " + energyPerDistance + ", "
+					+ chargeThreshold + ", " + chargeRate);
+		}
+
+		this.factoryModel = factoryModel;
+		this.distanceFields = distanceFields;
+		this.energyPerDistance = energyPerDistance;
+		this.chargeThreshold = chargeThreshold;
+		this.chargeRate = chargeRate;
+		this.layoutEpoch = -1;
+	}
+
+	public Factory getFactoryModel() {
+		return factoryModel;
+	}
+
+	public float getEnergyPerDistance() {
+		return energyPerDistance;
+	}
+
+	public float getChargeThreshold() {
+		return chargeThreshold;
+	}
+
+	public float getChargeRate() {
+		return chargeRate;
+	}
+
+	public double getConsumedEnergy() {
+		return consumedEnergy;
+	}
+
+	public double getChargedEnergy() {
+		return chargedEnergy;
+	}
+
+	/**
+	 * @return The number of robots charged up to the capacity of their battery.
+	 */
+	public long getChargeCount() {
+		return chargeCount;
+	}
+
+	/**
+	 * @return The number of ticks robots spent queued behind another robot.
+	 */
+	public long getWaitingTickCount() {
+		return waitingTickCount;
+	}
+
+	/**
+	 * @return The number of ticks stations spent charging a robot.
+	 */
+	public long getChargingTickCount() {
+		return chargingTickCount;
+	}
+
+	/**
+	 * @return The fraction of the ticks the stations spent charging a robot.
+	 */
+	public double getStationUtilization() {
+		final long count = stationTickCount;
+
+		return count == 0 ? 0 : (double) chargingTickCount / count;
+	}
+
+	/**
+	 * @return The number of ticks robots spent with an empty battery.
+	 */
+	public long getDepletedTickCount() {
+		return depletedTickCount;
+	}
+
+	/**
+	 * @return The sum of the battery levels of the robots divided by the sum of
+	 *         their capacities.
+	 */
+	public double getFleetLevel() {
+		final Robot[] currentRobots = robots;
+
+		if (currentRobots == null) {
+			return 0;
+		}
+
+		double level = 0;
+		double capacity = 0;
+
+		for (final Robot robot : currentRobots) {
+			level += robot.getBattery().getLevel();
+			capacity += robot.getBattery().getCapacity();
+		}
+
+		return capacity == 0 ? 0 : level / capacity;
+	}
+
+	/**
+	 * Drains the battery of a robot that moved, called by the factory.
+	 */
+	void consume(final Robot robot, final int displacement) {
+		final Battery battery = robot.getBattery();
+
+		if (battery == null) {
+			return;
+		}
+
+		final float energy = Math.min(displacement * energyPerDistance, Math.max(battery.getLevel(), 0));
+		battery.consume(energy);
+		consumedEnergy += energy;
+	}
+
+	/**
+	 * @return {@code true} if the battery level of the robot is below the
+	 *         threshold.
+	 */
+	boolean needsCharge(final Robot robot) {
+		final Battery battery = robot.getBattery();
+
+		return battery != null && battery.getLevel() < chargeThreshold * battery.getCapacity();
+	}
+
+	/**
+	 * Queues the robot at the reachable station with the shortest queue, the
+	 * nearest one on equal queues. A station the robot cannot reach is never
+	 * chosen, since the robot would hold it once at the head of its queue.
+	 *
+	 * @return The chosen station, or {@code null} if the robot can reach none.
+	 */
+	ChargingStation requestCharge(final Robot robot) {
+		update();
+
+		int bestStation = -1;
+		long bestDistance = Long.MAX_VALUE;
+
+		for (int station = 0; station < stations.length; station++) {
+			if (bestStation >= 0 && queueSizes[station] > queueSizes[bestStation]) {
+				continue;
+			}
+
+			final long distance = computeDistance(robot, station);
+
+			if (distance == Long.MAX_VALUE) {
+				continue;
+			}
+
+			if (bestStation < 0 || queueSizes[station] < queueSizes[bestStation] || distance < bestDistance) {
+				bestStation = station;
+				bestDistance = distance;
+			}
+		}
+
+		if (bestStation < 0) {
+			return null;
+		}
+
+		final Robot[] queue = queues[bestStation];
+		queue[(queueHeads[bestStation] + queueSizes[bestStation]) % queue.length] = robot;
+		queueSizes[bestStation]++;
+
+		return stations[bestStation];
+	}
+
+	/**
+	 * @return {@code true} if the robot is at the head of the queue of its
+	 *         station, and should therefore go to it.
+	 */
+	boolean isCalled(final Robot robot, final ChargingStation station) {
+		final int stationIndex = indexOf(station);
+
+		return stationIndex >= 0 && queueSizes[stationIndex] > 0
+				&& queues[stationIndex][queueHeads[stationIndex]] == robot;
+	}
+
+	/**
+	 * Charges the robots at the head of the queues, called by the scheduler before
+	 * the components behave.
+	 */
+	void tick() {
+		update();
+
+		long waitingTicks = 0;
+		long chargingTicks = 0;
+		double charged = 0;
+
+		for (int station = 0; station < stations.length; station++) {
+			final int queueSize = removeDepletedRobots(station);
+
+			if (queueSize == 0) {
+				stations[station].setCharging(false);
+				continue;
+			}
+
+			final Robot robot = findRobotAtStation(station);
+			final boolean charging = robot != null;
+			stations[station].setCharging(charging);
+			waitingTicks += queueSize - 1;
+
+			if (!charging) {
+				continue;
+			}
+
+			final Battery battery = robot.getBattery();
+			final float energy = Math.min(chargeRate, battery.getCapacity() - battery.getLevel());
+			battery.charge(energy);
+			charged += energy;
+			chargingTicks++;
+
+			if (battery.getLevel() >= battery.getCapacity()) {
+				queues[station][queueHeads[station]] = null;
+				queueHeads[station] = (queueHeads[station] + 1) % queues[station].length;
+				queueSizes[station]--;
+				stations[station].setCharging(false);
+				robot.chargeCompleted();
+				chargeCount++;
+			}
+		}
+
+		long depletedTicks = 0;
+
+		for (final Robot robot : robots) {
+			if (robot.getBattery().getLevel() <= 0) {
+				depletedTicks++;
+			}
+		}
+
+		waitingTickCount += waitingTicks;
+		chargingTickCount += chargingTicks;
+		stationTickCount += stations.length;
+		chargedEnergy += charged;
+		depletedTickCount += depletedTicks;
+	}
+
+	/**
+	 * Collects the stations and the robots with a battery again once components
+	 * were added to or removed from the factory, the robots that were queued
+	 * being sent back to their targets.
+	 */
+	private void update() {
+		final long currentLayoutEpoch = factoryModel.getLayoutEpoch();
+
+		if (currentLayoutEpoch == layoutEpoch) {
+			return;
+		}
+
+		final List<Robot> currentRobots = new ArrayList<>();
+		final List<ChargingStation> currentStations = new ArrayList<>();
+
+		for (final Component component : factoryModel.getComponents()) {
+			if (component instanceof Robot && ((Robot) component).getBattery() != null) {
+				currentRobots.add((Robot) component);
+			} else if (component instanceof ChargingStation) {
+				currentStations.add((ChargingStation) component);
+			}
+		}
+
+		if (queues != null) {
+			for (int station = 0; station < queues.length; station++) {
+				for (int index = 0; index < queueSizes[station]; index++) {
+					queues[station][(queueHeads[station] + index) % queues[station].length].chargeCompleted();
+				}
+			}
+		}
+
+		robots = currentRobots.toArray(new Robot[currentRobots.size()]);
+		stations = currentStations.toArray(new ChargingStation[currentStations.size()]);
+		stationCells = new int[stations.length];
+		queues = new Robot[stations.length][Math.max(robots.length, 1)];
+		queueHeads = new int[stations.length];
+		queueSizes = new int[stations.length];
+
+		for (int station = 0; station < stations.length; station++) {
+			stationCells[station] = distanceFields == null ? -1
+					: distanceFields.findCell(stations[station].getPosition());
+		}
+
+		layoutEpoch = currentLayoutEpoch;
+	}
+
+	/**
+	 * Removes the robots whose battery is empty from the queue of the station, so
+	 * that they do not hold it.
+	 *
+	 * @return The size of the queue.
+	 */
+	private int removeDepletedRobots(final int station) {
+		final Robot[] queue = queues[station];
+		final int head = queueHeads[station];
+		final int queueSize = queueSizes[station];
+		int keptCount = 0;
+
+		for (int index = 0; index < queueSize; index++) {
+			final Robot robot = queue[(head + index) % queue.length];
+
+			if (robot.getBattery().getLevel() > 0) {
+				queue[(head + keptCount++) % queue.length] = robot;
+			} else {
+				robot.chargeCompleted();
+			}
+		}
+
+		for (int index = keptCount; index < queueSize; index++) {
+			queue[(head + index) % queue.length] = null;
+		}
+
+		queueSizes[station] = keptCount;
+
+		return keptCount;
+	}
+
+	/**
+	 * Finds the queued robot located on the station, which is normally the robot
+	 * at the head of the queue. Another robot may however have been on the station
+	 * when it was queued, for instance because the station was one of its
+	 * targets, in which case it is moved to the head of the queue so that it does
+	 * not block the station.
+	 *
+	 * @return The robot at the head of the queue if it is on the station, or
+	 *         {@code null} if no queued robot is.
+	 */
+	private Robot findRobotAtStation(final int station) {
+		final Robot[] queue = queues[station];
+		final int head = queueHeads[station];
+
+		for (int index = 0; index < queueSizes[station]; index++) {
+			final int queueIndex = (head + index) % queue.length;
+			final Robot robot = queue[queueIndex];
+
+			if (robot.getPositionedShape().overlays(stations[station].getPositionedShape())) {
+				queue[queueIndex] = queue[head];
+				queue[head] = robot;
+
+				return robot;
+			}
+		}
+
+		return null;
+	}
+
+	private int indexOf(final ChargingStation station) {
+		for (int index = 0; index < stations.length; index++) {
+			if (stations[index] == station) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return The length of the shortest path from the robot to the station if
+	 *         known, or else the Manhattan distance between them.
+	 */
+	private long computeDistance(final Robot robot, final int station) {
+		if (stationCells[station] >= 0) {
+			final DistanceField field = distanceFields.get(stationCells[station]);
+			final int robotCell = distanceFields.findCell(robot.getPosition());
+
+			if (robotCell >= 0) {
+				final int distance = field.get(robotCell);
+
+				return distance == DistanceFields.UNREACHABLE ? Long.MAX_VALUE
+						: (long) distance * distanceFields.getRoutingGraph().getResolution();
+			}
+		}
+
+		return Math.abs((long) robot.getxCoordinate() - stations[station].getxCoordinate())
+				+ Math.abs((long) robot.getyCoordinate() - stations[station].getyCoordinate());
+	}
+}
@@ -1,8 +1,19 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
@@ -13,6 +24,7 @@ import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.Figure;
 import fr.tp.inf112.projects.canvas.model.Style;
 import model.motion.Motion;
+import model.path.OccupancyGrid;
 import model.shapes.PositionedShape;
 import model.shapes.RectangularShape;
 
@@ -22,6 +34,8 @@ public class Factory extends Component implements Canvas, Observable {
 
 	private static final ComponentStyle DEFAULT = new ComponentStyle(5.0f);
 
+	private static final int DEFAULT_TICK_PERIOD = 50;
+
 	@JsonManagedReference
 	private final List<Component> components;
 
@@ -32,12 +46,63 @@ public class Factory extends Component implements Canvas, Observable {
 	private transient boolean simulationStarted;
 
 	@JsonIgnore
-	private transient List<Thread> activeThreads = new ArrayList<>();
+	private transient SimulationScheduler scheduler;
+
+	@JsonIgnore
+	private transient FleetDispatcher dispatcher;
+
+	@JsonIgnore
+	private transient EnergyModel energyModel;
+
+	@JsonIgnore
+	private transient volatile SpatialIndex spatialIndex;
+
+	/**
+	 * Motions hold the read lock while they use the spatial index, so that it is
+	 * never rebuilt in the middle of a motion.
+	 */
+	@JsonIgnore
+	private transient ReadWriteLock spatialIndexLock;
+
+	/**
+	 * Incremented each time the layout of the obstacles of the factory changes, so
+	 * that the paths computed for a previous layout can be detected as stale.
+	 */
+	@JsonIgnore
+	private transient AtomicLong obstacleEpoch;
+
+	/**
+	 * Weakly referenced, so that the path finders and routing graphs that are
+	 * discarded stop being notified without having to unregister.
+	 */
+	@JsonIgnore
+	private transient Set<ObstacleListener> obstacleListeners;
+
+	/**
+	 * Incremented each time components are added or removed.
+	 */
+	@JsonIgnore
+	private transient AtomicLong layoutEpoch;
+
+	/**
+	 * Components that moved or changed state since the last call to
+	 * {@link #pollChangedComponents()}.
+	 */
+	@JsonIgnore
+	private transient Set<Component> changedComponents;
+
+	private int tickPeriod;
 
 	public Factory() {
 		super();
 		this.components = new ArrayList<>();
 		this.notifier = new LocalFactoryModelChangedNotifier();
+		this.tickPeriod = DEFAULT_TICK_PERIOD;
+		this.spatialIndexLock = new ReentrantReadWriteLock();
+		this.obstacleEpoch = new AtomicLong();
+		this.obstacleListeners = createObstacleListeners();
+		this.layoutEpoch = new AtomicLong();
+		this.changedComponents = ConcurrentHashMap.newKeySet();
 	}
 
 	public Factory(final int width, final int height, final String name) {
@@ -46,9 +111,68 @@ public class Factory extends Component implements Canvas, Observable {
 		components = new ArrayList<>();
 		notifier = new LocalFactoryModelChangedNotifier();
 		simulationStarted = false;
+		tickPeriod = DEFAULT_TICK_PERIOD;
+		spatialIndexLock = new ReentrantReadWriteLock();
+		obstacleEpoch = new AtomicLong();
+		obstacleListeners = createObstacleListeners();
+		layoutEpoch = new AtomicLong();
+		changedComponents = ConcurrentHashMap.newKeySet();
 		this.setId(name);
 	}
 
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		spatialIndexLock = new ReentrantReadWriteLock();
+		obstacleEpoch = new AtomicLong();
+		obstacleListeners = createObstacleListeners();
+		layoutEpoch = new AtomicLong();
+		changedComponents = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * @return The period in milliseconds between two simulation ticks.
+	 */
+	public int getTickPeriod() {
+		return tickPeriod > 0 ? tickPeriod : DEFAULT_TICK_PERIOD;
+	}
+
+	public void setTickPeriod(final int tickPeriod) {
+		this.tickPeriod = tickPeriod;
+	}
+
+	@JsonIgnore
+	public SimulationScheduler getScheduler() {
+		return scheduler;
+	}
+
+	@JsonIgnore
+	public FleetDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+	/**
+	 * Sets the dispatcher assigning targets to the idle robots of the factory at
+	 * each tick of the simulation, or removes it if {@code null}.
+	 */
+	public void setDispatcher(final FleetDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	@JsonIgnore
+	public EnergyModel getEnergyModel() {
+		return energyModel;
+	}
+
+	/**
+	 * Sets the model draining the batteries of the moving robots and charging them
+	 * at the charging stations, or removes it if {@code null}, in which case the
+	 * batteries are never used.
+	 */
+	public void setEnergyModel(final EnergyModel energyModel) {
+		this.energyModel = energyModel;
+	}
+
 	public void setNotifier(FactoryModelChangedNotifier notifier) {
         this.notifier = notifier;
     }
@@ -79,6 +203,7 @@ public class Factory extends Component implements Canvas, Observable {
 
 	public boolean addComponent(final Component component) {
 		if (components.add(component)) {
+			componentsChanged(component);
 			notifyObservers();
 
 			return true;
@@ -89,6 +214,7 @@ public class Factory extends Component implements Canvas, Observable {
 
 	public boolean removeComponent(final Component component) {
 		if (components.remove(component)) {
+			componentsChanged(component);
 			notifyObservers();
 
 			return true;
@@ -97,6 +223,140 @@ public class Factory extends Component implements Canvas, Observable {
 		return false;
 	}
 
+	private void componentsChanged(final Component component) {
+		spatialIndex = null;
+		layoutEpoch.incrementAndGet();
+		obstaclesChanged(component);
+
+		if (scheduler != null) {
+			scheduler.componentsChanged();
+		}
+	}
+
+	/**
+	 * Lazily (re)builds the spatial index, since components register themselves
+	 * before their subclass state, such as room walls, is initialized.
+	 */
+	private SpatialIndex getSpatialIndex() {
+		SpatialIndex index = spatialIndex;
+
+		if (index == null) {
+			spatialIndexLock.writeLock().lock();
+
+			try {
+				index = spatialIndex;
+
+				if (index == null) {
+					index = new SpatialIndex(getWidth(), getHeight(), SpatialIndex.DEFAULT_CELL_SIZE);
+
+					for (final Component component : getComponents()) {
+						index.add(component);
+					}
+
+					spatialIndex = index;
+				}
+			} finally {
+				spatialIndexLock.writeLock().unlock();
+			}
+		}
+
+		return index;
+	}
+
+	@JsonIgnore
+	public long getObstacleEpoch() {
+		return obstacleEpoch.get();
+	}
+
+	private static Set<ObstacleListener> createObstacleListeners() {
+		return Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	}
+
+	/**
+	 * Registers a listener, which is only weakly referenced by the factory and
+	 * must therefore be referenced by its owner as long as it is needed.
+	 */
+	public boolean addObstacleListener(final ObstacleListener listener) {
+		return obstacleListeners.add(listener);
+	}
+
+	public boolean removeObstacleListener(final ObstacleListener listener) {
+		return obstacleListeners.remove(listener);
+	}
+
+	/**
+	 * Called when the given component is added or removed, or when it is a door
+	 * that opens or closes.
+	 */
+	void obstaclesChanged(final Component component) {
+		obstacleEpoch.incrementAndGet();
+		changedComponents.add(component);
+
+		if (component.getPositionedShape() != null) {
+			final ObstacleListener[] listeners;
+
+			synchronized (obstacleListeners) {
+				listeners = obstacleListeners.toArray(new ObstacleListener[obstacleListeners.size()]);
+			}
+
+			for (final ObstacleListener listener : listeners) {
+				listener.obstaclesChanged(component.getPositionedShape());
+			}
+		}
+	}
+
+	@JsonIgnore
+	public long getLayoutEpoch() {
+		return layoutEpoch.get();
+	}
+
+	/**
+	 * Collects the components that moved or changed state since the previous call,
+	 * so that only their changes need to be published.
+	 */
+	public Set<Component> pollChangedComponents() {
+		final Set<Component> polledComponents = new HashSet<>();
+
+		for (final Component component : changedComponents) {
+			if (changedComponents.remove(component)) {
+				polledComponents.add(component);
+			}
+		}
+
+		return polledComponents;
+	}
+
+	/**
+	 * Moves the given component without checking for obstacles, to mirror the
+	 * state of a simulation running elsewhere.
+	 */
+	public void setComponentPosition(final Component component, final int xCoordinate, final int yCoordinate) {
+		component.setxCoordinate(xCoordinate);
+		component.setyCoordinate(yCoordinate);
+	}
+
+	void componentMoved(final Component component) {
+		changedComponents.add(component);
+
+		if (!component.isMobile()) {
+			return;
+		}
+
+		spatialIndexLock.readLock().lock();
+
+		try {
+			final SpatialIndex index = spatialIndex;
+
+			// Locks the region as moveComponent does, so that the collision checks of a
+			// concurrent tick see either position
+			if (index != null) {
+				index.updateInRegion(component);
+			}
+		} finally {
+			spatialIndexLock.readLock().unlock();
+		}
+	}
+
 	public List<Component> getComponents() {
 		return components;
 	}
@@ -127,17 +387,41 @@ public class Factory extends Component implements Canvas, Observable {
 		}
 	}
 
+	/**
+	 * Runs the given number of ticks of the simulation on the calling thread
+	 * without waiting for the tick period between them, for instance to simulate
+	 * long horizons.
+	 *
+	 * @return The scheduler that ran the ticks, which gives their statistics.
+	 * @throws IllegalStateException If the simulation is already started.
+	 */
+	public SimulationScheduler runSimulation(final long tickCount) {
+		if (isSimulationStarted()) {
+			throw new IllegalStateException("The simulation is already started.");
+		}
+
+		final SimulationScheduler batchScheduler = new SimulationScheduler(this, getTickPeriod());
+		this.simulationStarted = true;
+		this.scheduler = batchScheduler;
+
+		try {
+			batchScheduler.run(tickCount);
+		} finally {
+			this.simulationStarted = false;
+			this.scheduler = null;
+			batchScheduler.stop();
+		}
+
+		return batchScheduler;
+	}
+
 	public void stopSimulation() {
 		if (isSimulationStarted()) {
 			this.simulationStarted = false;
 
-			if (activeThreads != null) {
-				for (Thread th : activeThreads) {
-					if (th != null && th.isAlive()) {
-						th.interrupt();
-					}
-				}
-				activeThreads.clear();
+			if (scheduler != null) {
+				scheduler.stop();
+				scheduler = null;
 			}
 
 			notifyObservers();
@@ -146,19 +430,12 @@ public class Factory extends Component implements Canvas, Observable {
 
 	@Override
 	public boolean behave() {
-		boolean behaved = true;
-
-		if (activeThreads == null) {
-			activeThreads = new ArrayList<>();
+		if (scheduler == null) {
+			scheduler = new SimulationScheduler(this, getTickPeriod());
+			scheduler.start();
 		}
 
-		for (final Component component : getComponents()) {
-			Thread th = new Thread(component);
-			activeThreads.add(th);
-			th.start();
-		}
-
-		return behaved;
+		return true;
 	}
 
 	@Override
@@ -167,23 +444,111 @@ public class Factory extends Component implements Canvas, Observable {
 	}
 
 	public boolean hasObstacleAt(final PositionedShape shape) {
-		for (final Component component : getComponents()) {
-			if (component.overlays(shape) && !component.canBeOverlayed(shape)) {
-				return true;
+		return getSpatialIndex().hasObstacleAt(shape);
+	}
+
+	/**
+	 * Rasterizes the static obstacles of the factory, such as room walls and closed
+	 * doors, in a single pass over the components. A cell is occupied if
+	 * {@link #hasObstacleAt(PositionedShape)} would report an obstacle for a square
+	 * shape of the resolution size located at that cell.
+	 */
+	public OccupancyGrid rasterizeObstacles(final int resolution) {
+		final int xSize = getWidth() / resolution;
+		final int ySize = getHeight() / resolution;
+		final OccupancyGrid occupancyGrid = new OccupancyGrid(xSize, ySize, resolution);
+
+		rasterizeObstacles(occupancyGrid, 0, 0, xSize - 1, ySize - 1);
+
+		return occupancyGrid;
+	}
+
+	/**
+	 * Rasterizes again the cells of the given grid around the given region, after
+	 * the obstacles overlaying it changed. The cells bordering the region are
+	 * included since room walls may slightly exceed the bounds of their room.
+	 *
+	 * @return The indexes of the cells whose occupancy changed.
+	 */
+	public int[] rasterizeObstacles(final OccupancyGrid occupancyGrid, final PositionedShape region) {
+		final int resolution = occupancyGrid.getResolution();
+		final int minxIndex = Math.max(0, Math.floorDiv(region.getxCoordinate(), resolution) - 2);
+		final int minyIndex = Math.max(0, Math.floorDiv(region.getyCoordinate(), resolution) - 2);
+		final int maxxIndex = Math.min(occupancyGrid.getxSize() - 1,
+				Math.floorDiv(region.getxCoordinate() + region.getWidth(), resolution) + 2);
+		final int maxyIndex = Math.min(occupancyGrid.getySize() - 1,
+				Math.floorDiv(region.getyCoordinate() + region.getHeight(), resolution) + 2);
+
+		if (minxIndex > maxxIndex || minyIndex > maxyIndex) {
+			return new int[0];
+		}
+
+		final OccupancyGrid regionGrid = new OccupancyGrid(maxxIndex - minxIndex + 1, maxyIndex - minyIndex + 1,
+				resolution);
+		rasterizeObstacles(regionGrid, minxIndex, minyIndex, maxxIndex, maxyIndex);
+
+		final int[] changedCells = new int[regionGrid.getxSize() * regionGrid.getySize()];
+		int changedCellCount = 0;
+
+		for (int xIndex = minxIndex; xIndex <= maxxIndex; xIndex++) {
+			for (int yIndex = minyIndex; yIndex <= maxyIndex; yIndex++) {
+				final boolean occupied = regionGrid.isOccupied(xIndex - minxIndex, yIndex - minyIndex);
+
+				if (occupied != occupancyGrid.isOccupied(xIndex, yIndex)) {
+					if (occupied) {
+						occupancyGrid.setOccupied(xIndex, yIndex);
+					} else {
+						occupancyGrid.setFree(xIndex, yIndex);
+					}
+
+					changedCells[changedCellCount++] = occupancyGrid.getCellIndex(xIndex, yIndex);
+				}
 			}
 		}
 
-		return false;
+		return Arrays.copyOf(changedCells, changedCellCount);
 	}
 
-	public boolean hasMobileComponentAt(final PositionedShape shape, final Component movingComponent) {
+	/**
+	 * Rasterizes the cells with indexes in the given ranges into the given grid,
+	 * whose first cell is the cell of minimum indexes.
+	 */
+	private void rasterizeObstacles(final OccupancyGrid occupancyGrid, final int minxIndex, final int minyIndex,
+			final int maxxIndex, final int maxyIndex) {
+		final int resolution = occupancyGrid.getResolution();
+		final RectangularShape cellShape = new RectangularShape(0, 0, resolution, resolution);
+
 		for (final Component component : getComponents()) {
-			if (component != movingComponent && component.isMobile() && component.overlays(shape)) {
-				return true;
+			if (component.isMobile()) {
+				continue;
+			}
+
+			for (final PositionedShape shape : component.getOccupiedShapes()) {
+				final int shapeMinxIndex = Math.max(minxIndex, Math.floorDiv(shape.getxCoordinate(), resolution) - 1);
+				final int shapeMinyIndex = Math.max(minyIndex, Math.floorDiv(shape.getyCoordinate(), resolution) - 1);
+				final int shapeMaxxIndex = Math.min(maxxIndex,
+						Math.floorDiv(shape.getxCoordinate() + shape.getWidth(), resolution) + 1);
+				final int shapeMaxyIndex = Math.min(maxyIndex,
+						Math.floorDiv(shape.getyCoordinate() + shape.getHeight(), resolution) + 1);
+
+				for (int xIndex = shapeMinxIndex; xIndex <= shapeMaxxIndex; xIndex++) {
+					for (int yIndex = shapeMinyIndex; yIndex <= shapeMaxyIndex; yIndex++) {
+						if (occupancyGrid.isFree(xIndex - minxIndex, yIndex - minyIndex)) {
+							cellShape.setxCoordinate(xIndex * resolution);
+							cellShape.setyCoordinate(yIndex * resolution);
+
+							if (component.overlays(cellShape) && !component.canBeOverlayed(cellShape)) {
+								occupancyGrid.setOccupied(xIndex - minxIndex, yIndex - minyIndex);
+							}
+						}
+					}
+				}
 			}
 		}
+	}
 
-		return false;
+	public boolean hasMobileComponentAt(final PositionedShape shape, final Component movingComponent) {
+		return getSpatialIndex().getMobileComponentAt(shape, movingComponent) != null;
 	}
 
 	public Component getMobileComponentAt(final Position position, final Component ignoredComponent) {
@@ -200,24 +565,56 @@ public class Factory extends Component implements Canvas, Observable {
 			return null;
 		}
 
-		for (final Component component : getComponents()) {
-			if (component != ignoredComponent && component.isMobile() && component.overlays(shape)) {
-				return component;
-			}
-		}
-
-		return null;
+		return getSpatialIndex().getMobileComponentAt(shape, ignoredComponent);
 	}
 
-	public synchronized int moveComponent(final Motion motion, final Component component) {
+	/**
+	 * Moves the component if its target position is free. Only the regions of the
+	 * factory covered by the current and target positions of the component are
+	 * locked, so that motions in distinct regions can be performed concurrently.
+	 */
+	public int moveComponent(final Motion motion, final Component component) {
 		final Position targetPosition = motion.getTargetPosition();
 		final PositionedShape shape = new RectangularShape(targetPosition.getxCoordinate(),
 				targetPosition.getyCoordinate(), component.getWidth(), component.getHeight());
 
-		if (hasObstacleAt(shape) || hasMobileComponentAt(shape, component)) {
-			return 0;
-		}
+		while (true) {
+			final SpatialIndex index = getSpatialIndex();
+
+			spatialIndexLock.readLock().lock();
+
+			try {
+				// The index was invalidated while waiting for the lock
+				if (index != spatialIndex) {
+					continue;
+				}
+
+				final long lockedRegion = index.lockRegion(component.getPositionedShape(), shape);
 
-		return motion.moveToTarget();
+				try {
+					if (index.hasObstacleAt(shape) || index.getMobileComponentAt(shape, component) != null) {
+						return 0;
+					}
+
+					final int displacement = motion.moveToTarget();
+
+					if (displacement != 0) {
+						// The motion changes the position directly, bypassing componentMoved
+						index.update(component);
+						changedComponents.add(component);
+
+						if (energyModel != null && component instanceof Robot) {
+							energyModel.consume((Robot) component, displacement);
+						}
+					}
+
+					return displacement;
+				} finally {
+					index.unlockRegion(lockedRegion);
+				}
+			} finally {
+				spatialIndexLock.readLock().unlock();
+			}
+		}
 	}
 }
\ No newline at end of file
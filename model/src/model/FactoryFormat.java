@@ -0,0 +1,674 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.tp.inf112.projects.canvas.model.Vertex;
+import fr.tp.inf112.projects.canvas.model.impl.BasicVertex;
+import model.path.CachingFactoryPathFinder;
+import model.path.CustomDijkstraFactoryPathFinder;
+import model.path.DistanceFieldFactoryPathFinder;
+import model.path.DistanceFields;
+import model.path.FactoryPathFinder;
+import model.path.JGraphTDijkstraFactoryPathFinder;
+import model.path.PathCache;
+import model.path.ReservationFactoryPathFinder;
+import model.path.ReservationTable;
+import model.path.RoutingGraph;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.path.SparseIntDijkstraFactoryPathFinder;
+import model.shapes.BasicPolygonShape;
+import model.shapes.CircularShape;
+import model.shapes.PositionedShape;
+import model.shapes.RectangularShape;
+
+/**
+ * Versioned binary storage format of factories. A file starts with a magic
+ * number and the version of the format, followed by a sequence of records,
+ * each made of a one byte tag, the length of its payload and the payload.
+ *
+ * The first record describes the factory, then each component of the factory
+ * is written in its own record, in the order of the components, and an end
+ * record closes the file. Components refer to each other, such as a door to its
+ * room or a robot to its targets, by their index in this order. Records whose
+ * tag is unknown are skipped, so that a record type added by a later version
+ * does not prevent older readers from loading the rest of the factory.
+ *
+ * Components are written and read one at a time, so that the records of a
+ * large factory are never held in memory all at once. Only the layout and the
+ * configuration of the components are stored, not their simulation state such
+ * as the current path of a robot.
+ */
+public final class FactoryFormat {
+
+	/**
+	 * "FCTY" in ASCII.
+	 */
+	public static final int MAGIC = 0x46435459;
+
+	public static final short VERSION = 1;
+
+	private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+	private static final byte END_RECORD = 0;
+
+	private static final byte FACTORY_RECORD = 1;
+
+	private static final byte ROOM_RECORD = 2;
+
+	private static final byte AREA_RECORD = 3;
+
+	private static final byte DOOR_RECORD = 4;
+
+	private static final byte MACHINE_RECORD = 5;
+
+	private static final byte CHARGING_STATION_RECORD = 6;
+
+	private static final byte CONVEYOR_RECORD = 7;
+
+	private static final byte PUCK_RECORD = 8;
+
+	private static final byte ROBOT_RECORD = 9;
+
+	private static final byte RECTANGULAR_SHAPE = 0;
+
+	private static final byte CIRCULAR_SHAPE = 1;
+
+	private static final byte POLYGON_SHAPE = 2;
+
+	private static final byte NO_PATH_FINDER = 0;
+
+	private static final byte JGRAPHT_DIJKSTRA_PATH_FINDER = 1;
+
+	private static final byte CUSTOM_DIJKSTRA_PATH_FINDER = 2;
+
+	private static final byte SPARSE_INT_DIJKSTRA_PATH_FINDER = 3;
+
+	private static final byte SPARSE_INT_ASTAR_PATH_FINDER = 4;
+
+	private static final byte SPARSE_INT_BIDIRECTIONAL_ASTAR_PATH_FINDER = 5;
+
+	private static final byte RESERVATION_PATH_FINDER = 6;
+
+	private static final byte DISTANCE_FIELD_PATH_FINDER = 7;
+
+	private FactoryFormat() {
+	}
+
+	/**
+	 * @return {@code true} if the given bytes start with the magic number of this
+	 *         format.
+	 */
+	public static boolean hasMagic(final byte[] header) {
+		return header.length >= Integer.BYTES && ((header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16
+				| (header[2] & 0xFF) << 8 | (header[3] & 0xFF)) == MAGIC;
+	}
+
+	/**
+	 * Writes a factory to a stream, which is flushed but not closed.
+	 *
+	 * @throws NotSerializableException If a component or a path finder of the
+	 *                                  factory has no record type.
+	 */
+	public static void write(final Factory factory, final OutputStream outputStream) throws IOException {
+		final DataOutputStream out = new DataOutputStream(outputStream);
+		final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+		final DataOutputStream payload = new DataOutputStream(payloadBytes);
+		final Map<Component, Integer> indexes = new IdentityHashMap<>();
+		final Map<Component, Component> owners = new IdentityHashMap<>();
+
+		for (final Component component : factory.getComponents()) {
+			indexes.put(component, indexes.size());
+
+			if (component instanceof Room) {
+				for (final Area area : ((Room) component).getAreas()) {
+					owners.put(area, component);
+				}
+			} else if (component instanceof Area && ((Area) component).getMachine() != null) {
+				owners.put(((Area) component).getMachine(), component);
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+
+		writeString(payload, factory.getId());
+		writeString(payload, factory.getName());
+		payload.writeInt(factory.getWidth());
+		payload.writeInt(factory.getHeight());
+		payload.writeInt(factory.getTickPeriod());
+		writeRecord(out, FACTORY_RECORD, payloadBytes);
+
+		for (final Component component : factory.getComponents()) {
+			writeString(payload, component.getId());
+			writeString(payload, component.getName());
+			writeShape(payload, component.getPositionedShape());
+
+			writeRecord(out, writeComponent(payload, component, indexes, owners), payloadBytes);
+		}
+
+		writeRecord(out, END_RECORD, payloadBytes);
+		out.flush();
+	}
+
+	private static byte writeComponent(final DataOutputStream payload, final Component component,
+			final Map<Component, Integer> indexes, final Map<Component, Component> owners) throws IOException {
+		final Class<?> componentClass = component.getClass();
+
+		if (componentClass == Room.class) {
+			return ROOM_RECORD;
+		}
+
+		if (componentClass == Area.class) {
+			payload.writeInt(indexOf(owners.get(component), indexes));
+
+			return AREA_RECORD;
+		}
+
+		if (componentClass == Door.class) {
+			final Door door = (Door) component;
+			payload.writeInt(indexOf(door.getRoom(), indexes));
+			payload.writeByte(door.getWall().ordinal());
+			payload.writeInt(door.getOffset());
+			payload.writeInt(door.getDoorWidth());
+			payload.writeBoolean(door.isOpen());
+
+			return DOOR_RECORD;
+		}
+
+		if (componentClass == Machine.class) {
+			payload.writeInt(indexOf(owners.get(component), indexes));
+
+			return MACHINE_RECORD;
+		}
+
+		if (componentClass == ChargingStation.class) {
+			return CHARGING_STATION_RECORD;
+		}
+
+		if (componentClass == Conveyor.class) {
+			return CONVEYOR_RECORD;
+		}
+
+		if (componentClass == Puck.class) {
+			return PUCK_RECORD;
+		}
+
+		if (componentClass == Robot.class) {
+			final Robot robot = (Robot) component;
+			payload.writeInt(robot.getSpeed());
+			writeBattery(payload, robot.getBattery());
+			writePathFinder(payload, robot.getPathFinder());
+
+			final List<Component> targetComponents = robot.getTargetComponents();
+			payload.writeInt(targetComponents.size());
+
+			for (final Component targetComponent : targetComponents) {
+				payload.writeInt(indexOf(targetComponent, indexes));
+			}
+
+			return ROBOT_RECORD;
+		}
+
+		throw new NotSerializableException(componentClass.getName());
+	}
+
+	private static int indexOf(final Component component, final Map<Component, Integer> indexes)
+			throws IOException {
+		final Integer index = component == null ? null : indexes.get(component);
+
+		if (index == null) {
+			throw new NotSerializableException("Reference to a component that is not in the factory: " + component);
+		}
+
+		return index;
+	}
+
+	private static void writeRecord(final DataOutputStream out, final byte tag,
+			final ByteArrayOutputStream payloadBytes) throws IOException {
+		out.writeByte(tag);
+		out.writeInt(payloadBytes.size());
+		payloadBytes.writeTo(out);
+		payloadBytes.reset();
+	}
+
+	private static void writeString(final DataOutputStream payload, final String string) throws IOException {
+		payload.writeBoolean(string != null);
+
+		if (string != null) {
+			payload.writeUTF(string);
+		}
+	}
+
+	private static void writeShape(final DataOutputStream payload, final PositionedShape shape) throws IOException {
+		if (shape instanceof RectangularShape) {
+			payload.writeByte(RECTANGULAR_SHAPE);
+			payload.writeInt(shape.getxCoordinate());
+			payload.writeInt(shape.getyCoordinate());
+			payload.writeInt(shape.getWidth());
+			payload.writeInt(shape.getHeight());
+		} else if (shape instanceof CircularShape) {
+			payload.writeByte(CIRCULAR_SHAPE);
+			payload.writeInt(shape.getxCoordinate());
+			payload.writeInt(shape.getyCoordinate());
+			payload.writeInt(((CircularShape) shape).getRadius());
+		} else if (shape instanceof BasicPolygonShape) {
+			payload.writeByte(POLYGON_SHAPE);
+			payload.writeInt(((BasicPolygonShape) shape).getVertices().size());
+
+			for (final Vertex vertex : ((BasicPolygonShape) shape).getVertices()) {
+				payload.writeInt(vertex.getxCoordinate());
+				payload.writeInt(vertex.getyCoordinate());
+			}
+		} else {
+			throw new NotSerializableException(shape == null ? "null shape" : shape.getClass().getName());
+		}
+	}
+
+	private static void writeBattery(final DataOutputStream payload, final Battery battery) throws IOException {
+		payload.writeBoolean(battery != null);
+
+		if (battery != null) {
+			payload.writeFloat(battery.getCapacity());
+			payload.writeFloat(battery.getLevel());
+		}
+	}
+
+	/**
+	 * Writes the kind and the resolution of a path finder, and whether it is
+	 * wrapped with a path cache. The routing graphs, the reservation tables, the
+	 * distance fields and the path caches are not stored, and are shared again
+	 * between the robots of the factory when read.
+	 */
+	private static void writePathFinder(final DataOutputStream payload, final FactoryPathFinder pathFinder)
+			throws IOException {
+		FactoryPathFinder wrappedPathFinder = pathFinder;
+		PathCache pathCache = null;
+
+		if (pathFinder instanceof CachingFactoryPathFinder) {
+			wrappedPathFinder = ((CachingFactoryPathFinder) pathFinder).getPathFinder();
+			pathCache = ((CachingFactoryPathFinder) pathFinder).getPathCache();
+		}
+
+		if (wrappedPathFinder == null) {
+			payload.writeByte(NO_PATH_FINDER);
+			return;
+		}
+
+		if (wrappedPathFinder instanceof ReservationFactoryPathFinder) {
+			final ReservationFactoryPathFinder reservationPathFinder = (ReservationFactoryPathFinder) wrappedPathFinder;
+			payload.writeByte(RESERVATION_PATH_FINDER);
+			payload.writeInt(reservationPathFinder.getReservationTable().getResolution());
+			payload.writeInt(reservationPathFinder.getMaxDelay());
+		} else if (wrappedPathFinder instanceof DistanceFieldFactoryPathFinder) {
+			payload.writeByte(DISTANCE_FIELD_PATH_FINDER);
+			payload.writeInt(((DistanceFieldFactoryPathFinder) wrappedPathFinder).getResolution());
+		} else if (wrappedPathFinder instanceof SparseIntAStarFactoryPathFinder) {
+			final SparseIntAStarFactoryPathFinder aStarPathFinder = (SparseIntAStarFactoryPathFinder) wrappedPathFinder;
+			payload.writeByte(aStarPathFinder.isBidirectional() ? SPARSE_INT_BIDIRECTIONAL_ASTAR_PATH_FINDER
+					: SPARSE_INT_ASTAR_PATH_FINDER);
+			payload.writeInt(aStarPathFinder.getResolution());
+		} else if (wrappedPathFinder instanceof SparseIntDijkstraFactoryPathFinder) {
+			payload.writeByte(SPARSE_INT_DIJKSTRA_PATH_FINDER);
+			payload.writeInt(((SparseIntDijkstraFactoryPathFinder) wrappedPathFinder).getResolution());
+		} else if (wrappedPathFinder instanceof JGraphTDijkstraFactoryPathFinder) {
+			payload.writeByte(JGRAPHT_DIJKSTRA_PATH_FINDER);
+			payload.writeInt(((JGraphTDijkstraFactoryPathFinder) wrappedPathFinder).getResolution());
+		} else if (wrappedPathFinder instanceof CustomDijkstraFactoryPathFinder) {
+			payload.writeByte(CUSTOM_DIJKSTRA_PATH_FINDER);
+			payload.writeInt(((CustomDijkstraFactoryPathFinder) wrappedPathFinder).getResolution());
+		} else {
+			throw new NotSerializableException(wrappedPathFinder.getClass().getName());
+		}
+
+		payload.writeBoolean(pathCache != null);
+
+		if (pathCache != null) {
+			payload.writeInt(pathCache.getResolution());
+			payload.writeInt(pathCache.getCapacity());
+		}
+	}
+
+	/**
+	 * Reads a factory from a stream positioned at the magic number of the format,
+	 * up to its end record.
+	 *
+	 * @throws StreamCorruptedException If the stream is not a factory of a
+	 *                                  supported version.
+	 */
+	public static Factory read(final InputStream inputStream) throws IOException {
+		final DataInputStream in = new DataInputStream(inputStream);
+
+		final int magic = in.readInt();
+
+		if (magic != MAGIC) {
+			throw new StreamCorruptedException("Not a factory: " + Integer.toHexString(magic));
+		}
+
+		final short version = in.readShort();
+
+		if (version != VERSION) {
+			throw new StreamCorruptedException("Unsupported factory format version: " + version);
+		}
+
+		return new Reader().read(in);
+	}
+
+	/**
+	 * State of the reading of a factory.
+	 */
+	private static class Reader {
+
+		private Factory factory;
+
+		private final Map<Long, RoutingGraph> routingGraphs = new HashMap<>();
+
+		private final Map<Long, PathCache> pathCaches = new HashMap<>();
+
+		private final Map<Integer, ReservationTable> reservationTables = new HashMap<>();
+
+		private final Map<Integer, DistanceFields> distanceFields = new HashMap<>();
+
+		/**
+		 * Target indexes of the robots, resolved once all the components are read
+		 * since a robot may target a component that follows it.
+		 */
+		private final Map<Robot, int[]> robotTargets = new IdentityHashMap<>();
+
+		private Factory read(final DataInputStream in) throws IOException {
+			while (true) {
+				final byte tag = in.readByte();
+				final int length = in.readInt();
+
+				if (length < 0 || length > MAX_RECORD_LENGTH) {
+					throw new StreamCorruptedException("Invalid record length: " + length);
+				}
+
+				if (tag == END_RECORD) {
+					in.skipNBytes(length);
+					break;
+				}
+
+				final byte[] payloadBytes = in.readNBytes(length);
+
+				if (payloadBytes.length < length) {
+					throw new EOFException("Truncated record " + tag);
+				}
+
+				final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(payloadBytes));
+
+				if (tag == FACTORY_RECORD) {
+					readFactory(payload);
+				} else if (tag >= ROOM_RECORD && tag <= ROBOT_RECORD) {
+					readComponent(tag, payload);
+				}
+			}
+
+			if (factory == null) {
+				throw new StreamCorruptedException("Missing factory record");
+			}
+
+			for (final Map.Entry<Robot, int[]> robotTarget : robotTargets.entrySet()) {
+				for (final int targetIndex : robotTarget.getValue()) {
+					robotTarget.getKey().addTargetComponent(getComponent(targetIndex, Component.class));
+				}
+			}
+
+			return factory;
+		}
+
+		private void readFactory(final DataInputStream payload) throws IOException {
+			if (factory != null) {
+				throw new StreamCorruptedException("Duplicate factory record");
+			}
+
+			final String id = readString(payload);
+			final String name = readString(payload);
+			final int width = payload.readInt();
+			final int height = payload.readInt();
+
+			factory = new Factory(width, height, name);
+			factory.setId(id);
+			factory.setTickPeriod(payload.readInt());
+		}
+
+		private void readComponent(final byte tag, final DataInputStream payload) throws IOException {
+			if (factory == null) {
+				throw new StreamCorruptedException("Component record before the factory record");
+			}
+
+			final String id = readString(payload);
+			final String name = readString(payload);
+			final PositionedShape shape = readShape(payload);
+			final Component component;
+
+			switch (tag) {
+			case ROOM_RECORD:
+				component = new Room(factory, cast(shape, RectangularShape.class), name);
+				break;
+			case AREA_RECORD:
+				component = new Area(getComponent(payload.readInt(), Room.class), cast(shape, RectangularShape.class),
+						name);
+				break;
+			case DOOR_RECORD:
+				component = readDoor(payload, name);
+				break;
+			case MACHINE_RECORD:
+				component = new Machine(getComponent(payload.readInt(), Area.class),
+						cast(shape, RectangularShape.class), name);
+				break;
+			case CHARGING_STATION_RECORD:
+				component = new ChargingStation(factory, cast(shape, RectangularShape.class), name);
+				break;
+			case CONVEYOR_RECORD:
+				component = new Conveyor(factory, shape, name);
+				break;
+			case PUCK_RECORD:
+				component = new Puck(factory, cast(shape, CircularShape.class), name);
+				break;
+			default:
+				component = readRobot(payload, cast(shape, CircularShape.class), name);
+				break;
+			}
+
+			component.setId(id);
+		}
+
+		private Door readDoor(final DataInputStream payload, final String name) throws IOException {
+			final Room room = getComponent(payload.readInt(), Room.class);
+			final int wallIndex = payload.readByte();
+
+			if (wallIndex < 0 || wallIndex >= Room.WALL.values().length) {
+				throw new StreamCorruptedException("Invalid wall: " + wallIndex);
+			}
+
+			final int offset = payload.readInt();
+			final int doorWidth = payload.readInt();
+			final boolean open = payload.readBoolean();
+
+			return new Door(room, Room.WALL.values()[wallIndex], offset, doorWidth, open, name);
+		}
+
+		private Robot readRobot(final DataInputStream payload, final CircularShape shape, final String name)
+				throws IOException {
+			final int speed = payload.readInt();
+			final Battery battery = readBattery(payload);
+			final FactoryPathFinder pathFinder = readPathFinder(payload);
+			final Robot robot = new Robot(factory, pathFinder, shape, battery, name);
+			robot.setSpeed(speed);
+
+			final int targetCount = payload.readInt();
+
+			if (targetCount < 0 || targetCount > payload.available() / Integer.BYTES) {
+				throw new StreamCorruptedException("Invalid number of targets: " + targetCount);
+			}
+
+			final int[] targetIndexes = new int[targetCount];
+
+			for (int targetIndex = 0; targetIndex < targetCount; targetIndex++) {
+				targetIndexes[targetIndex] = payload.readInt();
+			}
+
+			robotTargets.put(robot, targetIndexes);
+
+			return robot;
+		}
+
+		private FactoryPathFinder readPathFinder(final DataInputStream payload) throws IOException {
+			final byte kind = payload.readByte();
+
+			if (kind == NO_PATH_FINDER) {
+				return null;
+			}
+
+			final int resolution = payload.readInt();
+
+			if (resolution <= 0) {
+				throw new StreamCorruptedException("Invalid path finder resolution: " + resolution);
+			}
+
+			final FactoryPathFinder pathFinder;
+
+			switch (kind) {
+			case JGRAPHT_DIJKSTRA_PATH_FINDER:
+				pathFinder = new JGraphTDijkstraFactoryPathFinder(factory, resolution);
+				break;
+			case CUSTOM_DIJKSTRA_PATH_FINDER:
+				pathFinder = new CustomDijkstraFactoryPathFinder(factory, resolution);
+				break;
+			case SPARSE_INT_DIJKSTRA_PATH_FINDER:
+				pathFinder = new SparseIntDijkstraFactoryPathFinder(getRoutingGraph(resolution, false));
+				break;
+			case SPARSE_INT_ASTAR_PATH_FINDER:
+				pathFinder = new SparseIntAStarFactoryPathFinder(getRoutingGraph(resolution, false));
+				break;
+			case SPARSE_INT_BIDIRECTIONAL_ASTAR_PATH_FINDER:
+				pathFinder = new SparseIntAStarFactoryPathFinder(getRoutingGraph(resolution, true), true);
+				break;
+			case RESERVATION_PATH_FINDER:
+				final int maxDelay = payload.readInt();
+
+				if (maxDelay < 0) {
+					throw new StreamCorruptedException("Invalid path finder delay: " + maxDelay);
+				}
+
+				pathFinder = new ReservationFactoryPathFinder(reservationTables.computeIfAbsent(resolution,
+						key -> new ReservationTable(getRoutingGraph(resolution, false))), maxDelay);
+				break;
+			case DISTANCE_FIELD_PATH_FINDER:
+				pathFinder = new DistanceFieldFactoryPathFinder(distanceFields.computeIfAbsent(resolution,
+						key -> new DistanceFields(getRoutingGraph(resolution, false))));
+				break;
+			default:
+				throw new StreamCorruptedException("Unknown path finder: " + kind);
+			}
+
+			if (!payload.readBoolean()) {
+				return pathFinder;
+			}
+
+			final int cacheResolution = payload.readInt();
+			final int cacheCapacity = payload.readInt();
+
+			if (cacheResolution <= 0 || cacheCapacity <= 0) {
+				throw new StreamCorruptedException("Invalid path cache: " + cacheResolution + ", " + cacheCapacity);
+			}
+
+			if (pathFinder.isCooperative()) {
+				throw new StreamCorruptedException("Path cache of a cooperative path finder: " + kind);
+			}
+
+			final PathCache pathCache = pathCaches.computeIfAbsent((long) cacheResolution << 32 | cacheCapacity,
+					key -> new PathCache(factory, cacheResolution, cacheCapacity));
+
+			return new CachingFactoryPathFinder(pathFinder, pathCache);
+		}
+
+		private RoutingGraph getRoutingGraph(final int resolution, final boolean incomingEdges) {
+			return routingGraphs.computeIfAbsent((long) resolution << 1 | (incomingEdges ? 1 : 0),
+					key -> new RoutingGraph(factory, resolution, incomingEdges));
+		}
+
+		private <C extends Component> C getComponent(final int index, final Class<C> componentClass)
+				throws IOException {
+			final List<Component> components = factory.getComponents();
+
+			if (index < 0 || index >= components.size() || !componentClass.isInstance(components.get(index))) {
+				throw new StreamCorruptedException(
+						"Invalid reference to a " + componentClass.getSimpleName() + ": " + index);
+			}
+
+			return componentClass.cast(components.get(index));
+		}
+	}
+
+	private static String readString(final DataInputStream payload) throws IOException {
+		return payload.readBoolean() ? payload.readUTF() : null;
+	}
+
+	private static PositionedShape readShape(final DataInputStream payload) throws IOException {
+		final byte kind = payload.readByte();
+
+		switch (kind) {
+		case RECTANGULAR_SHAPE:
+			return new RectangularShape(payload.readInt(), payload.readInt(), payload.readInt(), payload.readInt());
+		case CIRCULAR_SHAPE:
+			return new CircularShape(payload.readInt(), payload.readInt(), payload.readInt());
+		case POLYGON_SHAPE:
+			final int vertexCount = payload.readInt();
+
+			if (vertexCount < 0 || vertexCount > payload.available() / (2 * Integer.BYTES)) {
+				throw new StreamCorruptedException("Invalid number of vertices: " + vertexCount);
+			}
+
+			final List<Vertex> vertices = new ArrayList<>(vertexCount);
+
+			for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+				vertices.add(new BasicVertex(payload.readInt(), payload.readInt()));
+			}
+
+			final BasicPolygonShape shape = new BasicPolygonShape();
+
+			for (final Vertex vertex : vertices) {
+				shape.addVertex(vertex);
+			}
+
+			return shape;
+		default:
+			throw new StreamCorruptedException("Unknown shape: " + kind);
+		}
+	}
+
+	private static <S extends PositionedShape> S cast(final PositionedShape shape, final Class<S> shapeClass)
+			throws IOException {
+		if (!shapeClass.isInstance(shape)) {
+			throw new StreamCorruptedException("Expected a " + shapeClass.getSimpleName() + " instead of " + shape);
+		}
+
+		return shapeClass.cast(shape);
+	}
+
+	private static Battery readBattery(final DataInputStream payload) throws IOException {
+		if (!payload.readBoolean()) {
+			return null;
+		}
+
+		final Battery battery = new Battery(payload.readFloat());
+		battery.setLevel(payload.readFloat());
+
+		return battery;
+	}
+}
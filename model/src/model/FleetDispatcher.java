@@ -0,0 +1,410 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jgrapht.Graph;
+import org.jgrapht.alg.interfaces.MatchingAlgorithm.Matching;
+import org.jgrapht.alg.matching.KuhnMunkresMinimalWeightBipartitePerfectMatching;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
+
+import model.path.DistanceField;
+import model.path.DistanceFields;
+import model.path.RoutingGraph;
+
+/**
+ * Assigns the targets submitted to it, such as machines requesting a visit, to
+ * the idle robots of a factory, which are the robots without target components
+ * of their own. Targets are dispatched periodically by the
+ * {@link SimulationScheduler} of the factory, each robot visiting its assigned
+ * target once before becoming idle again.
+ *
+ * To minimize the total travel distance, the distances between the idle robots
+ * and the pending targets are read from the distance fields of the targets,
+ * which cost one breadth-first search per target cell until the obstacles
+ * change, and the robots are matched to the targets with the Kuhn-Munkres
+ * algorithm. So that older targets are not postponed for ever, only
+ * the oldest targets, up to twice the number of idle robots, are considered at
+ * each dispatch.
+ */
+public class FleetDispatcher {
+
+	public enum Strategy {
+
+		/**
+		 * The targets are assigned in the order they were submitted to the idle
+		 * robots in the order of the components of the factory.
+		 */
+		FIRST_IDLE,
+
+		/**
+		 * The targets are assigned so that the sum of the distances between the robots
+		 * and their targets is minimal.
+		 */
+		MIN_TOTAL_DISTANCE
+	}
+
+	public static final int DEFAULT_DISPATCH_PERIOD = 10;
+
+	/**
+	 * Maximum number of idle robots considered by a dispatch, which bounds the
+	 * cubic duration of the matching.
+	 */
+	private static final int MAX_ROBOTS_PER_DISPATCH = 64;
+
+	/**
+	 * Weight of a robot and target pair with no path in between, which is never
+	 * assigned.
+	 */
+	private static final double UNREACHABLE_WEIGHT = 1e9;
+
+	private final Factory factoryModel;
+
+	private final DistanceFields distanceFields;
+
+	private final int dispatchPeriod;
+
+	private final Strategy strategy;
+
+	private final Deque<Component> pendingTargets;
+
+	/**
+	 * Ticks at which the robots were assigned their current target.
+	 */
+	private final Map<Robot, Long> assignmentTicks;
+
+	private volatile long assignedCount;
+
+	private volatile long completedCount;
+
+	private volatile long totalCompletionTicks;
+
+	private volatile double totalAssignedDistance;
+
+	private volatile long lastDispatchDuration;
+
+	public FleetDispatcher(final RoutingGraph routingGraph) {
+		this(new DistanceFields(routingGraph), DEFAULT_DISPATCH_PERIOD, Strategy.MIN_TOTAL_DISTANCE);
+	}
+
+	/**
+	 * @param distanceFields The distance fields giving the distances between the
+	 *                       robots and the targets, which can be shared with the
+	 *                       path finders of the robots.
+	 * @param dispatchPeriod The number of ticks between two dispatches.
+	 */
+	public FleetDispatcher(final DistanceFields distanceFields, final int dispatchPeriod,
+			final Strategy strategy) {
+		if (dispatchPeriod <= 0) {
+			throw new IllegalArgumentException("The dispatch period must be positive: " + dispatchPeriod);
+		}
+
+		this.factoryModel = distanceFields.getFactoryModel();
+		this.distanceFields = distanceFields;
+		this.dispatchPeriod = dispatchPeriod;
+		this.strategy = strategy;
+		this.pendingTargets = new ArrayDeque<>();
+		this.assignmentTicks = new HashMap<>();
+	}
+
+	public Factory getFactoryModel() {
+		return factoryModel;
+	}
+
+	public int getDispatchPeriod() {
+		return dispatchPeriod;
+	}
+
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Queues a target to be visited by the next idle robot the dispatcher assigns
+	 * it to.
+	 */
+	public synchronized void submit(final Component targetComponent) {
+		pendingTargets.add(targetComponent);
+	}
+
+	public synchronized int getPendingCount() {
+		return pendingTargets.size();
+	}
+
+	public long getAssignedCount() {
+		return assignedCount;
+	}
+
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	/**
+	 * @return The mean number of ticks between the assignment of a target and the
+	 *         first tick at which its robot was seen idle again.
+	 */
+	public double getAverageCompletionTicks() {
+		final long count = completedCount;
+
+		return count == 0 ? 0 : (double) totalCompletionTicks / count;
+	}
+
+	/**
+	 * @return The sum of the distances between the robots and the targets they
+	 *         were assigned, only known with the {@link Strategy#MIN_TOTAL_DISTANCE}
+	 *         strategy.
+	 */
+	public double getTotalAssignedDistance() {
+		return totalAssignedDistance;
+	}
+
+	/**
+	 * @return The duration of the last dispatch in nanoseconds.
+	 */
+	public long getLastDispatchDuration() {
+		return lastDispatchDuration;
+	}
+
+	/**
+	 * Called by the scheduler before the components behave.
+	 */
+	void tick(final long tickCount) {
+		updateCompletedAssignments(tickCount);
+
+		if (tickCount % dispatchPeriod == 0) {
+			dispatch(tickCount);
+		}
+	}
+
+	private void updateCompletedAssignments(final long tickCount) {
+		final Iterator<Map.Entry<Robot, Long>> iterator = assignmentTicks.entrySet().iterator();
+
+		while (iterator.hasNext()) {
+			final Map.Entry<Robot, Long> entry = iterator.next();
+
+			if (entry.getKey().isIdle()) {
+				totalCompletionTicks += tickCount - entry.getValue();
+				completedCount++;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Assigns the pending targets to the idle robots.
+	 */
+	void dispatch(final long tickCount) {
+		final long startTime = System.nanoTime();
+		final List<Robot> idleRobots = findIdleRobots();
+
+		if (idleRobots.isEmpty()) {
+			return;
+		}
+
+		final int maxTargetCount = strategy == Strategy.FIRST_IDLE ? idleRobots.size() : 2 * idleRobots.size();
+		final List<Component> targets = pollPendingTargets(maxTargetCount);
+
+		if (targets.isEmpty()) {
+			return;
+		}
+
+		final boolean[] assignedTargets = new boolean[targets.size()];
+		final boolean[] unreachableTargets = new boolean[targets.size()];
+
+		if (strategy == Strategy.FIRST_IDLE) {
+			for (int index = 0; index < targets.size(); index++) {
+				assign(idleRobots.get(index), targets.get(index), tickCount);
+				assignedTargets[index] = true;
+			}
+		} else {
+			final double[][] distances = computeDistances(idleRobots, targets);
+			final int[] robotTargets = match(distances);
+
+			for (int targetIndex = 0; targetIndex < targets.size(); targetIndex++) {
+				unreachableTargets[targetIndex] = isUnreachable(distances, targetIndex);
+			}
+
+			for (int robotIndex = 0; robotIndex < idleRobots.size(); robotIndex++) {
+				final int targetIndex = robotTargets[robotIndex];
+
+				if (targetIndex >= 0) {
+					assign(idleRobots.get(robotIndex), targets.get(targetIndex), tickCount);
+					totalAssignedDistance += distances[robotIndex][targetIndex];
+					assignedTargets[targetIndex] = true;
+				}
+			}
+		}
+
+		requeue(targets, assignedTargets, unreachableTargets);
+		lastDispatchDuration = System.nanoTime() - startTime;
+	}
+
+	private List<Robot> findIdleRobots() {
+		final List<Robot> idleRobots = new ArrayList<>();
+
+		for (final Component component : factoryModel.getComponents()) {
+			if (component instanceof Robot && isAvailable((Robot) component)) {
+				idleRobots.add((Robot) component);
+
+				if (idleRobots.size() == MAX_ROBOTS_PER_DISPATCH) {
+					break;
+				}
+			}
+		}
+
+		return idleRobots;
+	}
+
+	/**
+	 * @return {@code true} if the robot is idle and can leave for a target, which
+	 *         is not the case of a robot queued at a charging station or whose
+	 *         battery is empty.
+	 */
+	private static boolean isAvailable(final Robot robot) {
+		return robot.isIdle() && robot.getChargingStation() == null
+				&& (robot.getBattery() == null || robot.getBattery().getLevel() > 0);
+	}
+
+	private synchronized List<Component> pollPendingTargets(final int maxTargetCount) {
+		final List<Component> targets = new ArrayList<>();
+
+		while (targets.size() < maxTargetCount && !pendingTargets.isEmpty()) {
+			targets.add(pendingTargets.poll());
+		}
+
+		return targets;
+	}
+
+	/**
+	 * @return {@code true} if none of the robots can reach the target.
+	 */
+	private static boolean isUnreachable(final double[][] distances, final int targetIndex) {
+		for (final double[] robotDistances : distances) {
+			if (robotDistances[targetIndex] < UNREACHABLE_WEIGHT) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Puts the targets that were not assigned back in the queue, in their order of
+	 * submission. The targets that lost the matching go back at the head of the
+	 * queue, while the targets that no idle robot could reach go at its tail, so
+	 * that they do not hold the reachable targets queued behind them.
+	 */
+	private synchronized void requeue(final List<Component> targets, final boolean[] assignedTargets,
+			final boolean[] unreachableTargets) {
+		for (int index = targets.size() - 1; index >= 0; index--) {
+			if (!assignedTargets[index] && !unreachableTargets[index]) {
+				pendingTargets.addFirst(targets.get(index));
+			}
+		}
+
+		for (int index = 0; index < targets.size(); index++) {
+			if (!assignedTargets[index] && unreachableTargets[index]) {
+				pendingTargets.addLast(targets.get(index));
+			}
+		}
+	}
+
+	private void assign(final Robot robot, final Component targetComponent, final long tickCount) {
+		if (robot.assignTarget(targetComponent)) {
+			assignmentTicks.put(robot, tickCount);
+			assignedCount++;
+		}
+	}
+
+	/**
+	 * @return The lengths of the shortest paths from the cells of the robots to the
+	 *         cells of the targets, indexed by robot and then by target.
+	 */
+	private double[][] computeDistances(final List<Robot> robots, final List<Component> targets) {
+		final int[] robotCells = new int[robots.size()];
+
+		for (int robotIndex = 0; robotIndex < robotCells.length; robotIndex++) {
+			robotCells[robotIndex] = distanceFields.findCell(robots.get(robotIndex).getPosition());
+		}
+
+		final double[][] distances = new double[robots.size()][targets.size()];
+
+		for (int targetIndex = 0; targetIndex < targets.size(); targetIndex++) {
+			final int targetCell = distanceFields.findCell(targets.get(targetIndex).getPosition());
+			final DistanceField targetDistances = targetCell < 0 ? null : distanceFields.get(targetCell);
+
+			for (int robotIndex = 0; robotIndex < robotCells.length; robotIndex++) {
+				final int robotCell = robotCells[robotIndex];
+
+				distances[robotIndex][targetIndex] = targetDistances == null || robotCell < 0
+						|| targetDistances.get(robotCell) == DistanceFields.UNREACHABLE ? Double.POSITIVE_INFINITY
+								: targetDistances.get(robotCell);
+			}
+		}
+
+		return distances;
+	}
+
+	/**
+	 * Matches the robots to the targets with a minimal sum of distances. Since the
+	 * matching is perfect, the smaller side is completed with dummy vertexes at
+	 * no distance from the other side.
+	 *
+	 * @return The index of the target of each robot, or -1 if the robot was
+	 *         matched to a dummy target or can reach none.
+	 */
+	private static int[] match(final double[][] distances) {
+		final int robotCount = distances.length;
+		final int targetCount = distances[0].length;
+		final int size = Math.max(robotCount, targetCount);
+		final Graph<Integer, DefaultWeightedEdge> graph = new SimpleWeightedGraph<>(DefaultWeightedEdge.class);
+		final Set<Integer> robotVertexes = new HashSet<>();
+		final Set<Integer> targetVertexes = new HashSet<>();
+
+		// Robots are the vertexes below the size, and targets the ones above
+		for (int index = 0; index < size; index++) {
+			graph.addVertex(index);
+			robotVertexes.add(index);
+			graph.addVertex(size + index);
+			targetVertexes.add(size + index);
+		}
+
+		for (int robotIndex = 0; robotIndex < size; robotIndex++) {
+			for (int targetIndex = 0; targetIndex < size; targetIndex++) {
+				double weight = 0;
+
+				if (robotIndex < robotCount && targetIndex < targetCount) {
+					weight = Math.min(distances[robotIndex][targetIndex], UNREACHABLE_WEIGHT);
+				}
+
+				graph.setEdgeWeight(graph.addEdge(robotIndex, size + targetIndex), weight);
+			}
+		}
+
+		final Matching<Integer, DefaultWeightedEdge> matching = new KuhnMunkresMinimalWeightBipartitePerfectMatching<>(
+				graph, robotVertexes, targetVertexes).getMatching();
+		final int[] robotTargets = new int[robotCount];
+		Arrays.fill(robotTargets, -1);
+
+		for (final DefaultWeightedEdge edge : matching.getEdges()) {
+			final int robotIndex = graph.getEdgeSource(edge);
+			final int targetIndex = graph.getEdgeTarget(edge) - size;
+
+			if (robotIndex < robotCount && targetIndex < targetCount
+					&& distances[robotIndex][targetIndex] < UNREACHABLE_WEIGHT) {
+				robotTargets[robotIndex] = targetIndex;
+			}
+		}
+
+		return robotTargets;
+	}
+}
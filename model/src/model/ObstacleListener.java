@@ -0,0 +1,16 @@
+package model;
+
+import model.shapes.PositionedShape;
+
+/**
+ * Listener notified when the static obstacles of a factory change, for instance
+ * when a door opens or closes or when a component is added or removed.
+ */
+public interface ObstacleListener {
+
+	/**
+	 * @param region The shape of the component whose obstacles changed. Only the
+	 *               cells overlaying this region need to be updated.
+	 */
+	void obstaclesChanged(PositionedShape region);
+}
@@ -9,10 +9,10 @@ public class Position implements Serializable {
 	private static final long serialVersionUID = 7274819087013715987L;
 
 	@JsonProperty
-	private int xCoordinate;
+	private volatile int xCoordinate;
 
 	@JsonProperty
-	private int yCoordinate;
+	private volatile int yCoordinate;
 
 	public Position() {
 		super();
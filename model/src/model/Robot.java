@@ -10,6 +10,7 @@ import fr.tp.inf112.projects.canvas.model.Style;
 import fr.tp.inf112.projects.canvas.model.impl.RGBColor;
 import model.motion.Motion;
 import model.path.FactoryPathFinder;
+import model.path.TourOptimizer;
 import model.shapes.CircularShape;
 import model.shapes.PositionedShape;
 import model.shapes.RectangularShape;
@@ -32,6 +33,19 @@ public class Robot extends Component {
 	@JsonIgnore
 	private transient Iterator<Component> targetComponentsIterator;
 
+	/**
+	 * Orders the target components, which are otherwise visited in their order of
+	 * insertion.
+	 */
+	@JsonIgnore
+	private transient TourOptimizer tourOptimizer;
+
+	/**
+	 * Ordered target components being iterated.
+	 */
+	@JsonIgnore
+	private transient List<Component> tour;
+
 	private Component currTargetComponent;
 
 	@JsonIgnore
@@ -40,6 +54,50 @@ public class Robot extends Component {
 	@JsonIgnore
 	private transient boolean blocked;
 
+	/**
+	 * Obstacle epoch of the factory when the current path was computed.
+	 */
+	@JsonIgnore
+	private transient long pathObstacleEpoch;
+
+	/**
+	 * Whether the current path leads to the current target, as opposed to an
+	 * unreachable target.
+	 */
+	@JsonIgnore
+	private transient boolean pathFound;
+
+	@JsonIgnore
+	private transient boolean replanRequested;
+
+	@JsonIgnore
+	private transient long blockedTickCount;
+
+	@JsonIgnore
+	private transient long replanCount;
+
+	@JsonIgnore
+	private transient long travelledDistance;
+
+	/**
+	 * Target assigned by a {@link FleetDispatcher}, visited once instead of the
+	 * target components.
+	 */
+	@JsonIgnore
+	private transient Component assignedTargetComponent;
+
+	/**
+	 * Station the robot is queued at by the {@link EnergyModel} of the factory.
+	 */
+	@JsonIgnore
+	private transient ChargingStation chargingStation;
+
+	/**
+	 * Target the robot was heading to when it was called by its station.
+	 */
+	@JsonIgnore
+	private transient Component interruptedTargetComponent;
+
 	private Position memorizedTargetPosition;
 
 	private FactoryPathFinder pathFinder;
@@ -85,7 +143,7 @@ public class Robot extends Component {
 		return memorizedTargetPosition;
 	}
 
-	private List<Component> getTargetComponents() {
+	List<Component> getTargetComponents() {
 		if (targetComponents == null) {
 			targetComponents = new ArrayList<>();
 		}
@@ -101,18 +159,142 @@ public class Robot extends Component {
 		return getTargetComponents().remove(targetComponent);
 	}
 	
+	FactoryPathFinder getPathFinder() {
+		return pathFinder;
+	}
+
+	@JsonIgnore
+	public TourOptimizer getTourOptimizer() {
+		return tourOptimizer;
+	}
+
+	/**
+	 * @param tourOptimizer The optimizer ordering the target components, or
+	 *                      {@code null} to visit them in their order of insertion.
+	 */
+	public void setTourOptimizer(final TourOptimizer tourOptimizer) {
+		this.tourOptimizer = tourOptimizer;
+	}
+
+	/**
+	 * @return The distance saved at each round of the target components by
+	 *         following the optimized tour, 0 without tour optimizer.
+	 */
+	@JsonIgnore
+	public long getTourSavedDistance() {
+		return tourOptimizer == null ? 0 : tourOptimizer.getSavedDistance();
+	}
+
+	/**
+	 * @return The number of ticks during which the robot did not move although it
+	 *         had not reached its target.
+	 */
+	public long getBlockedTickCount() {
+		return blockedTickCount;
+	}
+
+	/**
+	 * @return The number of times the path to the current target was computed
+	 *         again, for instance because the obstacles changed or because another
+	 *         robot was in the way.
+	 */
+	public long getReplanCount() {
+		return replanCount;
+	}
+
+	/**
+	 * @return The sum of the displacements of the robot since it was created.
+	 */
+	public long getTravelledDistance() {
+		return travelledDistance;
+	}
+
+	/**
+	 * @return {@code true} if the robot has neither target components nor an
+	 *         assigned target to visit.
+	 */
+	@JsonIgnore
+	public boolean isIdle() {
+		return assignedTargetComponent == null && getTargetComponents().isEmpty();
+	}
+
+	/**
+	 * @return The target assigned by a {@link FleetDispatcher}, or {@code null}
+	 *         if the robot was assigned none or already visited it.
+	 */
+	Component getAssignedTargetComponent() {
+		return assignedTargetComponent;
+	}
+
+	/**
+	 * Sends the robot to the given target, after which it becomes idle again.
+	 *
+	 * @return {@code false} if the robot is not idle.
+	 */
+	public boolean assignTarget(final Component targetComponent) {
+		if (!isIdle()) {
+			return false;
+		}
+
+		assignedTargetComponent = targetComponent;
+		currTargetComponent = null;
+
+		return true;
+	}
+
 	public Battery getBattery() {
         return battery;
     }
 
+	/**
+	 * @return The station the robot is queued at, or {@code null} if it does not
+	 *         need charging.
+	 */
+	@JsonIgnore
+	public ChargingStation getChargingStation() {
+		return chargingStation;
+	}
+
+	/**
+	 * Sends the robot back to the target it was heading to before going charging,
+	 * called by the energy model.
+	 */
+	void chargeCompleted() {
+		if (currTargetComponent == chargingStation) {
+			currTargetComponent = interruptedTargetComponent;
+			replanRequested = true;
+		}
+
+		chargingStation = null;
+		interruptedTargetComponent = null;
+	}
+
 	@Override
 	public boolean isMobile() {
 		return true;
 	}
 
+	@Override
+	public boolean hasBehavior() {
+		return true;
+	}
+
 	@Override
 	public boolean behave() {
-		if (getTargetComponents().isEmpty()) {
+		if (assignedTargetComponent != null && currTargetComponent == assignedTargetComponent
+				&& hasReachedCurrentTarget()) {
+			assignedTargetComponent = null;
+			currTargetComponent = null;
+		}
+
+		final EnergyModel energyModel = getFactory().getEnergyModel();
+
+		if (energyModel != null && !updateCharging(energyModel)) {
+			return false;
+		}
+
+		// An idle robot only moves to go charging
+		if (chargingStation == null && isIdle()) {
 			return false;
 		}
 
@@ -120,14 +302,95 @@ public class Robot extends Component {
 			currTargetComponent = nextTargetComponentToVisit();
 
 			computePathToCurrentTargetComponent();
+		} else if (getFactory().getObstacleEpoch() != pathObstacleEpoch || replanRequested
+				|| isCooperativePathExhausted()) {
+			// The obstacles changed since the path was computed, for instance a door
+			// closed on it, or the robot could not follow it, so compute it again from
+			// the current position
+			replanCount++;
+			computePathToCurrentTargetComponent();
+		}
+
+		final int displacement = moveToNextPathPosition();
+
+		if (displacement == 0 && !hasReachedCurrentTarget()) {
+			blockedTickCount++;
+		}
+
+		travelledDistance += displacement;
+
+		return displacement != 0;
+	}
+
+	/**
+	 * Queues the robot at a charging station once its battery level is low, the
+	 * robot waiting where it is while the robots queued before it are charged and
+	 * heading to the station instead of its target once called.
+	 *
+	 * @return {@code false} if the robot must stay where it is because its battery
+	 *         is empty, because it waits for the robots queued before it or
+	 *         because it is being charged.
+	 */
+	private boolean updateCharging(final EnergyModel energyModel) {
+		if (battery == null) {
+			return true;
+		}
+
+		if (battery.getLevel() <= 0) {
+			pathFinder.releasePath(this);
+
+			return false;
+		}
+
+		if (chargingStation == null && energyModel.needsCharge(this)) {
+			chargingStation = energyModel.requestCharge(this);
+		}
+
+		if (chargingStation == null) {
+			return true;
+		}
+
+		if (!energyModel.isCalled(this, chargingStation)) {
+			pathFinder.releasePath(this);
+
+			return false;
 		}
 
-		return moveToNextPathPosition() != 0;
+		if (currTargetComponent != chargingStation) {
+			interruptedTargetComponent = currTargetComponent;
+			currTargetComponent = chargingStation;
+			replanRequested = true;
+		}
+
+		return !hasReachedCurrentTarget();
+	}
+
+	/**
+	 * @return {@code true} if the robot followed a cooperative path to its end
+	 *         without reaching its target, which happens when it had to wait for
+	 *         the other robots to make way.
+	 */
+	private boolean isCooperativePathExhausted() {
+		return pathFinder.isCooperative() && pathFound && currentPathPositionsIter != null
+				&& !currentPathPositionsIter.hasNext();
 	}
 
 	private Component nextTargetComponentToVisit() {
+		if (assignedTargetComponent != null) {
+			return assignedTargetComponent;
+		}
+
+		final List<Component> currentTour = tourOptimizer == null ? getTargetComponents()
+				: tourOptimizer.getTour(getTargetComponents());
+
+		if (currentTour != tour) {
+			// The tour changed, so continue it after the target that was just reached
+			tour = currentTour;
+			targetComponentsIterator = tour.listIterator(tour.indexOf(currTargetComponent) + 1);
+		}
+
 		if (targetComponentsIterator == null || !targetComponentsIterator.hasNext()) {
-			targetComponentsIterator = getTargetComponents().iterator();
+			targetComponentsIterator = tour.iterator();
 		}
 
 		return targetComponentsIterator.hasNext() ? targetComponentsIterator.next() : null;
@@ -140,11 +403,16 @@ public class Robot extends Component {
 
 		if (displacement != 0) {
 			notifyObservers();
+		} else if (pathFinder.isCooperative()) {
+			// Another robot did not follow its path, so plan again around it at the
+			// next tick, a planned wait having no motion
+			replanRequested = motion != null;
 		} else if (isLivelyLocked()) {
 			final Position freeNeighbouringPosition = findFreeNeighbouringPosition();
 			if (freeNeighbouringPosition != null) {
 				this.memorizedTargetPosition = freeNeighbouringPosition;
 				displacement = moveToNextPathPosition();
+				replanCount++;
 				computePathToCurrentTargetComponent();
 			}
 		}
@@ -168,7 +436,10 @@ public class Robot extends Component {
 	}
 
 	private void computePathToCurrentTargetComponent() {
+		pathObstacleEpoch = getFactory().getObstacleEpoch();
+		replanRequested = false;
 		final List<Position> currentPathPositions = pathFinder.findPath(this, currTargetComponent);
+		pathFound = !currentPathPositions.isEmpty();
 		currentPathPositionsIter = currentPathPositions.iterator();
 	}
 
@@ -186,6 +457,14 @@ public class Robot extends Component {
 		}
 		blocked = false;
 
+		if (pathFinder.isCooperative()) {
+			final Position nextPosition = currentPathPositionsIter.next();
+
+			// The path repeats the current position while the robot waits for
+			// another one to pass
+			return nextPosition.equals(getPosition()) ? null : new Motion(getPosition(), nextPosition);
+		}
+
 		final Position targetPosition = getTargetPosition();
 		final PositionedShape shape = new RectangularShape(targetPosition.getxCoordinate(),
 				targetPosition.getyCoordinate(),
@@ -1,6 +1,8 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import model.shapes.PositionedShape;
@@ -90,6 +92,15 @@ public class Room extends Component {
 		return true;
 	}
 
+	@Override
+	protected Collection<PositionedShape> getOccupiedShapes() {
+		if (leftWall == null) {
+			return super.getOccupiedShapes();
+		}
+
+		return Arrays.asList(leftWall, rightWall, topWall, bottomWall);
+	}
+
 	private Door getOverlayedDoor(final PositionedShape shape) {
 		for (final Door door : getDoors()) {
 			if (door.overlays(shape)) {
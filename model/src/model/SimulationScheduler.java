@@ -0,0 +1,184 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives the simulation of a factory with a fixed tick rate on a single thread.
+ * At each tick, the components that have a behavior are asked to behave in the
+ * order in which they were added to the factory, so that a run is deterministic.
+ */
+public class SimulationScheduler {
+
+	private static final Logger LOGGER = Logger.getLogger(SimulationScheduler.class.getName());
+
+	private final Factory factoryModel;
+
+	private final long tickPeriod;
+
+	private final ScheduledExecutorService executor;
+
+	private ScheduledFuture<?> tickFuture;
+
+	private volatile Component[] behavingComponents;
+
+	private volatile long tickCount;
+
+	private volatile long lastTickDuration;
+
+	private volatile long maxTickDuration;
+
+	private volatile long totalTickDuration;
+
+	public SimulationScheduler(final Factory factoryModel, final long tickPeriod) {
+		this.factoryModel = factoryModel;
+		this.tickPeriod = tickPeriod;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "simulation-" + factoryModel.getId());
+			thread.setDaemon(true);
+
+			return thread;
+		});
+		this.behavingComponents = null;
+	}
+
+	public long getTickPeriod() {
+		return tickPeriod;
+	}
+
+	public synchronized void start() {
+		if (tickFuture == null) {
+			tickFuture = executor.scheduleAtFixedRate(this::tick, tickPeriod, tickPeriod, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Runs the given number of ticks on the calling thread, as fast as possible.
+	 *
+	 * @throws IllegalStateException If the scheduler is started.
+	 */
+	public synchronized void run(final long ticks) {
+		if (tickFuture != null) {
+			throw new IllegalStateException("The scheduler is already started.");
+		}
+
+		for (long tick = 0; tick < ticks; tick++) {
+			tick();
+		}
+	}
+
+	public synchronized void stop() {
+		if (tickFuture != null) {
+			tickFuture.cancel(false);
+			tickFuture = null;
+		}
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Invalidates the list of behaving components so that it is recomputed at the
+	 * next tick.
+	 */
+	public void componentsChanged() {
+		behavingComponents = null;
+	}
+
+	private Component[] getBehavingComponents() {
+		Component[] components = behavingComponents;
+
+		if (components == null) {
+			final List<Component> behaving = new ArrayList<>();
+
+			for (final Component component : factoryModel.getComponents()) {
+				if (component.hasBehavior()) {
+					behaving.add(component);
+				}
+			}
+
+			components = behaving.toArray(new Component[behaving.size()]);
+			behavingComponents = components;
+		}
+
+		return components;
+	}
+
+	private void tick() {
+		if (!factoryModel.isSimulationStarted()) {
+			return;
+		}
+
+		final long startTime = System.nanoTime();
+		final FleetDispatcher dispatcher = factoryModel.getDispatcher();
+
+		if (dispatcher != null) {
+			try {
+				dispatcher.tick(tickCount);
+			} catch (Exception e) {
+				LOGGER.log(Level.SEVERE, "Dispatch of the targets failed.", e);
+			}
+		}
+
+		final EnergyModel energyModel = factoryModel.getEnergyModel();
+
+		if (energyModel != null) {
+			try {
+				energyModel.tick();
+			} catch (Exception e) {
+				LOGGER.log(Level.SEVERE, "Charging of the robots failed.", e);
+			}
+		}
+
+		for (final Component component : getBehavingComponents()) {
+			try {
+				component.behave();
+			} catch (Exception e) {
+				LOGGER.log(Level.SEVERE, "Behavior of " + component.getName() + " failed.", e);
+			}
+		}
+
+		final long duration = System.nanoTime() - startTime;
+
+		lastTickDuration = duration;
+		totalTickDuration += duration;
+
+		if (duration > maxTickDuration) {
+			maxTickDuration = duration;
+		}
+
+		tickCount++;
+	}
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * @return The duration of the last tick in nanoseconds.
+	 */
+	public long getLastTickDuration() {
+		return lastTickDuration;
+	}
+
+	/**
+	 * @return The duration of the longest tick in nanoseconds.
+	 */
+	public long getMaxTickDuration() {
+		return maxTickDuration;
+	}
+
+	/**
+	 * @return The mean duration of the ticks in nanoseconds.
+	 */
+	public long getAverageTickDuration() {
+		final long count = tickCount;
+
+		return count == 0 ? 0 : totalTickDuration / count;
+	}
+}
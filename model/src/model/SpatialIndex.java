@@ -0,0 +1,256 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.shapes.PositionedShape;
+
+/**
+ * Uniform grid of buckets over the surface of a factory, used to restrict the
+ * spatial queries of the factory to the components located near the queried
+ * shape. Mobile components are kept in a dynamic layer that is updated
+ * incrementally as they move, while the other components are stored in a static
+ * layer.
+ *
+ * The buckets are guarded by a fixed set of striped locks so that motions in
+ * distinct regions of the factory can be checked and performed concurrently.
+ * Reading the dynamic layer without holding the locks is safe but only gives an
+ * approximate view of the positions of the moving components.
+ */
+class SpatialIndex {
+
+	static final int DEFAULT_CELL_SIZE = 10;
+
+	private static final int LOCK_STRIPES = Long.SIZE;
+
+	private final int cellSize;
+
+	private final int xSize;
+
+	private final int ySize;
+
+	private final List<Component>[] staticCells;
+
+	private final List<Component>[] dynamicCells;
+
+	private final Map<Component, int[]> dynamicCellRanges;
+
+	private final ReentrantLock[] locks;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	SpatialIndex(final int width, final int height, final int cellSize) {
+		this.cellSize = cellSize;
+		this.xSize = Math.max(1, width / cellSize + 1);
+		this.ySize = Math.max(1, height / cellSize + 1);
+		this.staticCells = new List[xSize * ySize];
+		this.dynamicCells = new List[xSize * ySize];
+		this.dynamicCellRanges = new ConcurrentHashMap<>();
+		this.locks = new ReentrantLock[LOCK_STRIPES];
+
+		for (int index = 0; index < LOCK_STRIPES; index++) {
+			locks[index] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Acquires the locks of all buckets covered by the given shapes. The locks are
+	 * always taken in the same order to avoid deadlocks between concurrent motions.
+	 *
+	 * @return The set of acquired lock stripes, to be given to
+	 *         {@link #unlockRegion(long)}.
+	 */
+	long lockRegion(final PositionedShape shape1, final PositionedShape shape2) {
+		final long stripes = computeStripes(computeCellRange(shape1)) | computeStripes(computeCellRange(shape2));
+		lockStripes(stripes);
+
+		return stripes;
+	}
+
+	private void lockStripes(final long stripes) {
+		for (int index = 0; index < LOCK_STRIPES; index++) {
+			if ((stripes & (1L << index)) != 0) {
+				locks[index].lock();
+			}
+		}
+	}
+
+	void unlockRegion(final long stripes) {
+		for (int index = LOCK_STRIPES - 1; index >= 0; index--) {
+			if ((stripes & (1L << index)) != 0) {
+				locks[index].unlock();
+			}
+		}
+	}
+
+	private long computeStripes(final int[] cellRange) {
+		long stripes = 0;
+
+		for (int xIndex = cellRange[0]; xIndex <= cellRange[2]; xIndex++) {
+			for (int yIndex = cellRange[1]; yIndex <= cellRange[3]; yIndex++) {
+				stripes |= 1L << ((xIndex * ySize + yIndex) % LOCK_STRIPES);
+			}
+		}
+
+		return stripes;
+	}
+
+	void add(final Component component) {
+		if (component.isMobile()) {
+			final int[] cellRange = computeCellRange(component.getPositionedShape());
+			addToCells(dynamicCells, component, cellRange, true);
+			dynamicCellRanges.put(component, cellRange);
+		} else {
+			for (final PositionedShape shape : component.getOccupiedShapes()) {
+				addToCells(staticCells, component, computeCellRange(shape), false);
+			}
+		}
+	}
+
+	/**
+	 * Moves a mobile component whose position was changed outside of a locked
+	 * region, for instance by a setter, to the buckets matching its current
+	 * position. The buckets of its previous and current positions are locked
+	 * meanwhile, as for a motion.
+	 */
+	void updateInRegion(final Component component) {
+		final int[] previousCellRange = dynamicCellRanges.get(component);
+
+		if (previousCellRange == null) {
+			return;
+		}
+
+		final long stripes = computeStripes(previousCellRange)
+				| computeStripes(computeCellRange(component.getPositionedShape()));
+		lockStripes(stripes);
+
+		try {
+			update(component);
+		} finally {
+			unlockRegion(stripes);
+		}
+	}
+
+	/**
+	 * Moves a mobile component to the buckets matching its current position, the
+	 * region of its motion being locked by the caller.
+	 */
+	void update(final Component component) {
+		final int[] previousCellRange = dynamicCellRanges.get(component);
+
+		if (previousCellRange == null) {
+			return;
+		}
+
+		final int[] cellRange = computeCellRange(component.getPositionedShape());
+
+		if (!sameCellRange(previousCellRange, cellRange)) {
+			removeFromCells(dynamicCells, component, previousCellRange);
+			addToCells(dynamicCells, component, cellRange, true);
+			dynamicCellRanges.put(component, cellRange);
+		}
+	}
+
+	boolean hasObstacleAt(final PositionedShape shape) {
+		final int[] cellRange = computeCellRange(shape);
+
+		return findObstacle(staticCells, shape, cellRange) || findObstacle(dynamicCells, shape, cellRange);
+	}
+
+	Component getMobileComponentAt(final PositionedShape shape, final Component ignoredComponent) {
+		final int[] cellRange = computeCellRange(shape);
+
+		for (int xIndex = cellRange[0]; xIndex <= cellRange[2]; xIndex++) {
+			for (int yIndex = cellRange[1]; yIndex <= cellRange[3]; yIndex++) {
+				final List<Component> cell = dynamicCells[xIndex * ySize + yIndex];
+
+				if (cell != null) {
+					for (final Component component : cell) {
+						if (component != ignoredComponent && component.isMobile() && component.overlays(shape)) {
+							return component;
+						}
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private boolean findObstacle(final List<Component>[] cells, final PositionedShape shape, final int[] cellRange) {
+		for (int xIndex = cellRange[0]; xIndex <= cellRange[2]; xIndex++) {
+			for (int yIndex = cellRange[1]; yIndex <= cellRange[3]; yIndex++) {
+				final List<Component> cell = cells[xIndex * ySize + yIndex];
+
+				if (cell != null) {
+					for (final Component component : cell) {
+						if (component.overlays(shape) && !component.canBeOverlayed(shape)) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private void addToCells(final List<Component>[] cells, final Component component, final int[] cellRange,
+			final boolean concurrent) {
+		for (int xIndex = cellRange[0]; xIndex <= cellRange[2]; xIndex++) {
+			for (int yIndex = cellRange[1]; yIndex <= cellRange[3]; yIndex++) {
+				final int cellIndex = xIndex * ySize + yIndex;
+
+				if (cells[cellIndex] == null) {
+					cells[cellIndex] = concurrent ? new CopyOnWriteArrayList<>() : new ArrayList<>(2);
+				}
+
+				if (!cells[cellIndex].contains(component)) {
+					cells[cellIndex].add(component);
+				}
+			}
+		}
+	}
+
+	private void removeFromCells(final List<Component>[] cells, final Component component, final int[] cellRange) {
+		for (int xIndex = cellRange[0]; xIndex <= cellRange[2]; xIndex++) {
+			for (int yIndex = cellRange[1]; yIndex <= cellRange[3]; yIndex++) {
+				final List<Component> cell = cells[xIndex * ySize + yIndex];
+
+				if (cell != null) {
+					cell.remove(component);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the range of buckets covering the bounds of the shape, borders
+	 * included, so that any shape overlaying it is found in one of these buckets.
+	 *
+	 * @return The minimum x and y indexes followed by the maximum x and y indexes.
+	 */
+	private int[] computeCellRange(final PositionedShape shape) {
+		final int xCoordinate = shape.getxCoordinate();
+		final int yCoordinate = shape.getyCoordinate();
+
+		return new int[] { xCellIndex(xCoordinate), yCellIndex(yCoordinate),
+				xCellIndex(xCoordinate + shape.getWidth()), yCellIndex(yCoordinate + shape.getHeight()) };
+	}
+
+	private int xCellIndex(final int xCoordinate) {
+		return Math.max(0, Math.min(xSize - 1, Math.floorDiv(xCoordinate, cellSize)));
+	}
+
+	private int yCellIndex(final int yCoordinate) {
+		return Math.max(0, Math.min(ySize - 1, Math.floorDiv(yCoordinate, cellSize)));
+	}
+
+	private static boolean sameCellRange(final int[] cellRange1, final int[] cellRange2) {
+		return cellRange1[0] == cellRange2[0] && cellRange1[1] == cellRange2[1] && cellRange1[2] == cellRange2[2]
+				&& cellRange1[3] == cellRange2[3];
+	}
+}
@@ -0,0 +1,189 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import model.path.DistanceFields;
+import model.path.RoutingGraph;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+class TestEnergyModel {
+
+	private static final float CAPACITY = 10;
+
+	@Test
+	void testRequestChargeChoosesShortestQueue() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final ChargingStation nearStation = new ChargingStation(factory, new RectangularShape(20, 20, 15, 15),
+				"Near Station");
+		final ChargingStation farStation = new ChargingStation(factory, new RectangularShape(150, 150, 15, 15),
+				"Far Station");
+		final Robot robot1 = createRobot(factory, 50, 50, "Robot 1");
+		final Robot robot2 = createRobot(factory, 55, 50, "Robot 2");
+		final Robot robot3 = createRobot(factory, 60, 50, "Robot 3");
+		final EnergyModel energyModel = new EnergyModel(factory);
+
+		// The nearest station on equal queues, and else the one with the shortest queue
+		assertSame(nearStation, energyModel.requestCharge(robot1));
+		assertSame(farStation, energyModel.requestCharge(robot2));
+		assertSame(nearStation, energyModel.requestCharge(robot3));
+
+		assertTrue(energyModel.isCalled(robot1, nearStation));
+		assertTrue(energyModel.isCalled(robot2, farStation));
+		assertFalse(energyModel.isCalled(robot3, nearStation));
+	}
+
+	@Test
+	void testRequestChargeWithoutStation() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final Robot robot = createRobot(factory, 50, 50, "Robot");
+
+		assertNull(new EnergyModel(factory).requestCharge(robot));
+	}
+
+	@Test
+	void testRequestChargeSkipsUnreachableStations() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final Room closedRoom = new Room(factory, new RectangularShape(20, 20, 40, 40), "Closed Room");
+		final ChargingStation walledStation = new ChargingStation(closedRoom, new RectangularShape(30, 30, 15, 15),
+				"Walled Station");
+		final Robot robot1 = createRobot(factory, 80, 80, "Robot 1");
+		final Robot robot2 = createRobot(factory, 85, 80, "Robot 2");
+		final EnergyModel energyModel = new EnergyModel(factory,
+				new DistanceFields(new RoutingGraph(factory, 5)), EnergyModel.DEFAULT_ENERGY_PER_DISTANCE,
+				EnergyModel.DEFAULT_CHARGE_THRESHOLD, EnergyModel.DEFAULT_CHARGE_RATE);
+
+		assertNull(energyModel.requestCharge(robot1));
+
+		final ChargingStation farStation = new ChargingStation(factory, new RectangularShape(170, 170, 15, 15),
+				"Far Station");
+
+		// The walled station is nearer and has the shortest queue
+		assertSame(farStation, energyModel.requestCharge(robot1));
+		assertSame(farStation, energyModel.requestCharge(robot2));
+		assertFalse(energyModel.isCalled(robot1, walledStation));
+	}
+
+	@Test
+	void testNeedsCharge() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final Robot robot = createRobot(factory, 50, 50, "Robot");
+		final EnergyModel energyModel = new EnergyModel(factory);
+
+		assertFalse(energyModel.needsCharge(robot));
+
+		robot.getBattery().setLevel(EnergyModel.DEFAULT_CHARGE_THRESHOLD * CAPACITY / 2);
+
+		assertTrue(energyModel.needsCharge(robot));
+	}
+
+	@Test
+	void testTickChargesHeadOfQueue() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final ChargingStation station = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
+				"Station");
+		final Robot chargedRobot = createRobot(factory, 155, 150, "Charged Robot");
+		final Robot waitingRobot = createRobot(factory, 50, 50, "Waiting Robot");
+		final float chargeRate = 1;
+		final EnergyModel energyModel = new EnergyModel(factory, null, EnergyModel.DEFAULT_ENERGY_PER_DISTANCE,
+				EnergyModel.DEFAULT_CHARGE_THRESHOLD, chargeRate);
+
+		chargedRobot.getBattery().setLevel(CAPACITY - 2 * chargeRate);
+		waitingRobot.getBattery().setLevel(CAPACITY / 2);
+		energyModel.requestCharge(chargedRobot);
+		energyModel.requestCharge(waitingRobot);
+
+		energyModel.tick();
+
+		assertEquals(CAPACITY - chargeRate, chargedRobot.getBattery().getLevel(), 0);
+		assertEquals(CAPACITY / 2, waitingRobot.getBattery().getLevel(), 0);
+		assertTrue(station.isCharging());
+		assertEquals(1, energyModel.getWaitingTickCount());
+		assertEquals(0, energyModel.getChargeCount());
+
+		energyModel.tick();
+
+		assertEquals(CAPACITY, chargedRobot.getBattery().getLevel(), 0);
+		assertEquals(1, energyModel.getChargeCount());
+		assertFalse(energyModel.isCalled(chargedRobot, station));
+		assertTrue(energyModel.isCalled(waitingRobot, station));
+
+		// The called robot is not on the station yet
+		energyModel.tick();
+
+		assertFalse(station.isCharging());
+		assertEquals(CAPACITY / 2, waitingRobot.getBattery().getLevel(), 0);
+		assertEquals(2 * chargeRate, energyModel.getChargedEnergy(), 0);
+	}
+
+	@Test
+	void testRobotOnStationIsChargedFirst() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final ChargingStation station = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
+				"Station");
+		final Robot farRobot = createRobot(factory, 50, 50, "Far Robot");
+		final Robot robotOnStation = createRobot(factory, 155, 150, "Robot on Station");
+		final EnergyModel energyModel = new EnergyModel(factory);
+
+		farRobot.getBattery().setLevel(CAPACITY / 2);
+		robotOnStation.getBattery().setLevel(CAPACITY / 2);
+		energyModel.requestCharge(farRobot);
+		energyModel.requestCharge(robotOnStation);
+
+		energyModel.tick();
+
+		assertTrue(energyModel.isCalled(robotOnStation, station));
+		assertFalse(energyModel.isCalled(farRobot, station));
+		assertEquals(CAPACITY / 2 + EnergyModel.DEFAULT_CHARGE_RATE, robotOnStation.getBattery().getLevel(), 1e-6);
+		assertEquals(CAPACITY / 2, farRobot.getBattery().getLevel(), 0);
+	}
+
+	@Test
+	void testDepletedRobotLeavesQueue() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final ChargingStation station = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
+				"Station");
+		final Robot depletedRobot = createRobot(factory, 50, 50, "Depleted Robot");
+		final Robot waitingRobot = createRobot(factory, 60, 50, "Waiting Robot");
+		final EnergyModel energyModel = new EnergyModel(factory);
+
+		energyModel.requestCharge(depletedRobot);
+		energyModel.requestCharge(waitingRobot);
+		depletedRobot.getBattery().setLevel(0);
+
+		energyModel.tick();
+
+		assertFalse(energyModel.isCalled(depletedRobot, station));
+		assertTrue(energyModel.isCalled(waitingRobot, station));
+		assertEquals(1, energyModel.getDepletedTickCount());
+	}
+
+	@Test
+	void testLayoutChangeEmptiesQueues() {
+		final Factory factory = new Factory(200, 200, "Energy Test Factory");
+		final ChargingStation station = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
+				"Station");
+		final Robot robot = createRobot(factory, 50, 50, "Robot");
+		final EnergyModel energyModel = new EnergyModel(factory);
+
+		energyModel.requestCharge(robot);
+
+		assertTrue(energyModel.isCalled(robot, station));
+
+		createRobot(factory, 80, 50, "New Robot");
+		energyModel.tick();
+
+		assertFalse(energyModel.isCalled(robot, station));
+	}
+
+	private static Robot createRobot(final Factory factory, final int xCoordinate, final int yCoordinate,
+			final String name) {
+		return new Robot(factory, null, new CircularShape(xCoordinate, yCoordinate, 2), new Battery(CAPACITY), name);
+	}
+}
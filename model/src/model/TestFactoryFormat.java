@@ -0,0 +1,196 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.canvas.model.impl.BasicVertex;
+import model.path.CachingFactoryPathFinder;
+import model.path.JGraphTDijkstraFactoryPathFinder;
+import model.path.PathCache;
+import model.path.ReservationFactoryPathFinder;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.BasicPolygonShape;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+class TestFactoryFormat {
+
+	@Test
+	void testRoundTrip() throws IOException {
+		final Factory factory = createFactory();
+
+		final Factory roundTrip = roundTrip(factory);
+
+		assertEquals(factory.toString(), roundTrip.toString());
+		assertEquals(factory.getId(), roundTrip.getId());
+		assertEquals(factory.getTickPeriod(), roundTrip.getTickPeriod());
+		assertEquals(factory.getComponents().size(), roundTrip.getComponents().size());
+
+		for (int index = 0; index < factory.getComponents().size(); index++) {
+			final Component component = factory.getComponents().get(index);
+			final Component readComponent = roundTrip.getComponents().get(index);
+
+			assertEquals(component.getId(), readComponent.getId());
+			assertSame(roundTrip, readComponent.getFactory());
+		}
+	}
+
+	@Test
+	void testRoundTripKeepsComponentState() throws IOException {
+		final Factory factory = createFactory();
+		final Door door = findComponent(factory, Door.class, 0);
+		final Robot robot = findComponent(factory, Robot.class, 0);
+		door.close();
+		robot.getBattery().setLevel(4);
+
+		final Factory roundTrip = roundTrip(factory);
+		final Door readDoor = findComponent(roundTrip, Door.class, 0);
+		final Robot readRobot = findComponent(roundTrip, Robot.class, 0);
+
+		assertFalse(readDoor.isOpen());
+		assertTrue(findComponent(roundTrip, Door.class, 1).isOpen());
+		assertSame(roundTrip.getComponents().get(factory.getComponents().indexOf(door.getRoom())),
+				readDoor.getRoom());
+		assertEquals(4, readRobot.getBattery().getLevel(), 0);
+		assertEquals(robot.getBattery().getCapacity(), readRobot.getBattery().getCapacity(), 0);
+		assertEquals(robot.getSpeed(), readRobot.getSpeed());
+
+		final List<Component> targetComponents = readRobot.getTargetComponents();
+		assertEquals(robot.getTargetComponents().size(), targetComponents.size());
+
+		for (int index = 0; index < targetComponents.size(); index++) {
+			assertSame(roundTrip.getComponents().get(
+					factory.getComponents().indexOf(robot.getTargetComponents().get(index))),
+					targetComponents.get(index));
+		}
+	}
+
+	@Test
+	void testRoundTripSharesPathFinderState() throws IOException {
+		final Factory roundTrip = roundTrip(createFactory());
+
+		assertTrue(findComponent(roundTrip, Robot.class, 0).getPathFinder() instanceof JGraphTDijkstraFactoryPathFinder);
+		assertNull(findComponent(roundTrip, Robot.class, 1).getPathFinder());
+
+		final CachingFactoryPathFinder cachingPathFinder1 = (CachingFactoryPathFinder) findComponent(roundTrip,
+				Robot.class, 2).getPathFinder();
+		final CachingFactoryPathFinder cachingPathFinder2 = (CachingFactoryPathFinder) findComponent(roundTrip,
+				Robot.class, 3).getPathFinder();
+		assertTrue(cachingPathFinder1.getPathFinder() instanceof SparseIntAStarFactoryPathFinder);
+		assertSame(cachingPathFinder1.getPathCache(), cachingPathFinder2.getPathCache());
+		assertSame(roundTrip, cachingPathFinder1.getPathCache().getFactoryModel());
+
+		final ReservationFactoryPathFinder reservationPathFinder1 = (ReservationFactoryPathFinder) findComponent(
+				roundTrip, Robot.class, 4).getPathFinder();
+		final ReservationFactoryPathFinder reservationPathFinder2 = (ReservationFactoryPathFinder) findComponent(
+				roundTrip, Robot.class, 5).getPathFinder();
+		assertSame(reservationPathFinder1.getReservationTable(), reservationPathFinder2.getReservationTable());
+		assertEquals(20, reservationPathFinder1.getMaxDelay());
+	}
+
+	@Test
+	void testReadRejectsOtherFormats() throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		FactoryFormat.write(createFactory(), outputStream);
+		final byte[] data = outputStream.toByteArray();
+
+		assertTrue(FactoryFormat.hasMagic(data));
+
+		data[0] = 0;
+
+		assertFalse(FactoryFormat.hasMagic(data));
+
+		try {
+			FactoryFormat.read(new ByteArrayInputStream(data));
+			fail("A stream without the magic number was read.");
+		} catch (StreamCorruptedException e) {
+			// Expected
+		}
+	}
+
+	private static Factory roundTrip(final Factory factory) throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		FactoryFormat.write(factory, outputStream);
+
+		return FactoryFormat.read(new ByteArrayInputStream(outputStream.toByteArray()));
+	}
+
+	private static <T extends Component> T findComponent(final Factory factory, final Class<T> componentClass,
+			final int rank) {
+		int count = 0;
+
+		for (final Component component : factory.getComponents()) {
+			if (componentClass.isInstance(component) && count++ == rank) {
+				return componentClass.cast(component);
+			}
+		}
+
+		throw new IllegalArgumentException("No " + componentClass.getSimpleName() + " of rank " + rank);
+	}
+
+	private static Factory createFactory() {
+		final Factory factory = new Factory(200, 200, "Format Test Factory");
+		factory.setTickPeriod(25);
+
+		final Room room1 = new Room(factory, new RectangularShape(20, 20, 75, 75), "Production Room 1");
+		new Door(room1, Room.WALL.BOTTOM, 10, 20, true, "Entrance");
+		final Area area1 = new Area(room1, new RectangularShape(35, 35, 50, 50), "Production Area 1");
+		final Machine machine1 = new Machine(area1, new RectangularShape(50, 50, 15, 15), "Machine 1");
+
+		final Room room2 = new Room(factory, new RectangularShape(120, 22, 75, 75), "Production Room 2");
+		new Door(room2, Room.WALL.LEFT, 10, 20, true, "Entrance");
+		final Area area2 = new Area(room2, new RectangularShape(135, 35, 50, 50), "Production Area 2");
+		final Machine machine2 = new Machine(area2, new RectangularShape(150, 50, 15, 15), "Machine 2");
+
+		final BasicPolygonShape conveyorShape = new BasicPolygonShape();
+		conveyorShape.addVertex(new BasicVertex(10, 165));
+		conveyorShape.addVertex(new BasicVertex(20, 165));
+		conveyorShape.addVertex(new BasicVertex(20, 195));
+		conveyorShape.addVertex(new BasicVertex(10, 195));
+		final Conveyor conveyor = new Conveyor(factory, conveyorShape, "Conveyor");
+
+		final ChargingStation chargingStation = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
+				"Charging Station");
+
+		final Robot robot1 = new Robot(factory, new JGraphTDijkstraFactoryPathFinder(factory, 5),
+				new CircularShape(5, 5, 2), new Battery(10), "Robot 1");
+		robot1.addTargetComponent(machine1);
+		robot1.addTargetComponent(conveyor);
+		robot1.addTargetComponent(chargingStation);
+
+		new Robot(factory, null, new CircularShape(45, 5, 2), null, "Robot 2");
+
+		final PathCache pathCache = new PathCache(factory, 5);
+
+		for (int index = 0; index < 2; index++) {
+			final Robot robot = new Robot(factory,
+					new CachingFactoryPathFinder(new SparseIntAStarFactoryPathFinder(factory, 5), pathCache),
+					new CircularShape(65 + 20 * index, 5, 2), new Battery(20), "Caching Robot " + index);
+			robot.addTargetComponent(machine2);
+		}
+
+		final ReservationFactoryPathFinder reservationPathFinder = new ReservationFactoryPathFinder(factory, 5);
+
+		for (int index = 0; index < 2; index++) {
+			final Robot robot = new Robot(factory,
+					new ReservationFactoryPathFinder(reservationPathFinder.getReservationTable(), 20),
+					new CircularShape(125 + 20 * index, 5, 2), new Battery(20), "Reservation Robot " + index);
+			robot.addTargetComponent(machine1);
+			robot.addTargetComponent(machine2);
+		}
+
+		return factory;
+	}
+}
@@ -0,0 +1,167 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import model.path.DistanceFields;
+import model.path.RoutingGraph;
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+class TestFleetDispatcher {
+
+	private static final int RESOLUTION = 5;
+
+	private final Factory factory;
+
+	private final Robot topLeftRobot;
+
+	private final Robot bottomRightRobot;
+
+	private final Component topLeftTarget;
+
+	private final Component bottomRightTarget;
+
+	public TestFleetDispatcher() {
+		factory = new Factory(200, 200, "Dispatch Test Factory");
+		topLeftRobot = createRobot(10, 10, "Top Left Robot");
+		bottomRightRobot = createRobot(185, 185, "Bottom Right Robot");
+		bottomRightTarget = new ChargingStation(factory, new RectangularShape(160, 160, 15, 15),
+				"Bottom Right Target");
+		topLeftTarget = new ChargingStation(factory, new RectangularShape(25, 25, 15, 15), "Top Left Target");
+	}
+
+	@Test
+	void testFirstIdleAssignsInOrder() {
+		final FleetDispatcher dispatcher = createDispatcher(FleetDispatcher.Strategy.FIRST_IDLE);
+		dispatcher.submit(bottomRightTarget);
+		dispatcher.submit(topLeftTarget);
+
+		dispatcher.tick(0);
+
+		assertSame(bottomRightTarget, topLeftRobot.getAssignedTargetComponent());
+		assertSame(topLeftTarget, bottomRightRobot.getAssignedTargetComponent());
+		assertEquals(2, dispatcher.getAssignedCount());
+		assertEquals(0, dispatcher.getPendingCount());
+	}
+
+	@Test
+	void testMinTotalDistanceAssignsNearestTargets() {
+		final FleetDispatcher dispatcher = createDispatcher(FleetDispatcher.Strategy.MIN_TOTAL_DISTANCE);
+		dispatcher.submit(bottomRightTarget);
+		dispatcher.submit(topLeftTarget);
+
+		dispatcher.tick(0);
+
+		assertSame(topLeftTarget, topLeftRobot.getAssignedTargetComponent());
+		assertSame(bottomRightTarget, bottomRightRobot.getAssignedTargetComponent());
+		assertFalse(topLeftRobot.isIdle());
+		assertFalse(bottomRightRobot.isIdle());
+		assertEquals(2, dispatcher.getAssignedCount());
+		assertTrue(dispatcher.getTotalAssignedDistance() > 0);
+	}
+
+	@Test
+	void testBusyRobotsAreNotAssigned() {
+		final FleetDispatcher dispatcher = createDispatcher(FleetDispatcher.Strategy.MIN_TOTAL_DISTANCE);
+		topLeftRobot.addTargetComponent(bottomRightTarget);
+		dispatcher.submit(topLeftTarget);
+
+		dispatcher.tick(0);
+
+		assertNull(topLeftRobot.getAssignedTargetComponent());
+		assertSame(topLeftTarget, bottomRightRobot.getAssignedTargetComponent());
+		assertEquals(1, dispatcher.getAssignedCount());
+	}
+
+	@Test
+	void testUnassignedTargetsStayPending() {
+		final FleetDispatcher dispatcher = createDispatcher(FleetDispatcher.Strategy.MIN_TOTAL_DISTANCE);
+		bottomRightRobot.addTargetComponent(topLeftTarget);
+		dispatcher.submit(bottomRightTarget);
+		dispatcher.submit(topLeftTarget);
+
+		dispatcher.tick(0);
+
+		// The single idle robot takes the nearest target, the other one waiting
+		assertSame(topLeftTarget, topLeftRobot.getAssignedTargetComponent());
+		assertEquals(1, dispatcher.getPendingCount());
+
+		// Targets are only dispatched once per period
+		bottomRightRobot.removeTargetComponent(topLeftTarget);
+		dispatcher.tick(1);
+
+		assertEquals(1, dispatcher.getPendingCount());
+
+		dispatcher.tick(dispatcher.getDispatchPeriod());
+
+		assertSame(bottomRightTarget, bottomRightRobot.getAssignedTargetComponent());
+		assertEquals(0, dispatcher.getPendingCount());
+	}
+
+	@Test
+	void testUnreachableTargetsDoNotHoldReachableOnes() {
+		final FleetDispatcher dispatcher = createDispatcher(FleetDispatcher.Strategy.MIN_TOTAL_DISTANCE);
+		final Room closedRoom = new Room(factory, new RectangularShape(80, 80, 40, 40), "Closed Room");
+		final Component unreachableTarget1 = new ChargingStation(closedRoom, new RectangularShape(90, 90, 10, 10),
+				"Unreachable Target 1");
+		final Component unreachableTarget2 = new ChargingStation(closedRoom, new RectangularShape(100, 100, 10, 10),
+				"Unreachable Target 2");
+		bottomRightRobot.addTargetComponent(bottomRightTarget);
+		dispatcher.submit(unreachableTarget1);
+		dispatcher.submit(unreachableTarget2);
+		dispatcher.submit(topLeftTarget);
+
+		// The single idle robot considers the two unreachable targets only
+		dispatcher.tick(0);
+
+		assertNull(topLeftRobot.getAssignedTargetComponent());
+		assertEquals(3, dispatcher.getPendingCount());
+
+		dispatcher.tick(dispatcher.getDispatchPeriod());
+
+		assertSame(topLeftTarget, topLeftRobot.getAssignedTargetComponent());
+		assertEquals(2, dispatcher.getPendingCount());
+	}
+
+	@Test
+	void testRobotsUnableToLeaveAreNotAssigned() {
+		final FleetDispatcher dispatcher = createDispatcher(FleetDispatcher.Strategy.FIRST_IDLE);
+		final Robot depletedRobot = new Robot(factory, null, new CircularShape(100, 10, 2), new Battery(10),
+				"Depleted Robot");
+		final Robot chargingRobot = new Robot(factory, new SparseIntAStarFactoryPathFinder(factory, RESOLUTION),
+				new CircularShape(100, 50, 2), new Battery(10), "Charging Robot");
+		factory.setEnergyModel(new EnergyModel(factory));
+		depletedRobot.getBattery().setLevel(0);
+		chargingRobot.getBattery().setLevel(1);
+		chargingRobot.behave();
+
+		assertNotNull(chargingRobot.getChargingStation());
+
+		topLeftRobot.addTargetComponent(topLeftTarget);
+		bottomRightRobot.addTargetComponent(bottomRightTarget);
+		dispatcher.submit(topLeftTarget);
+		dispatcher.tick(0);
+
+		assertNull(depletedRobot.getAssignedTargetComponent());
+		assertNull(chargingRobot.getAssignedTargetComponent());
+		assertEquals(0, dispatcher.getAssignedCount());
+		assertEquals(1, dispatcher.getPendingCount());
+	}
+
+	private FleetDispatcher createDispatcher(final FleetDispatcher.Strategy strategy) {
+		return new FleetDispatcher(new DistanceFields(new RoutingGraph(factory, RESOLUTION)),
+				FleetDispatcher.DEFAULT_DISPATCH_PERIOD, strategy);
+	}
+
+	private Robot createRobot(final int xCoordinate, final int yCoordinate, final String name) {
+		return new Robot(factory, null, new CircularShape(xCoordinate, yCoordinate, 2), null, name);
+	}
+}
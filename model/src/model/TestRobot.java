@@ -0,0 +1,57 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import model.path.SparseIntAStarFactoryPathFinder;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+class TestRobot {
+
+	@Test
+	void testIdleRobotWithBatteryStaysStill() {
+		final Factory factory = new Factory(200, 200, "Robot Test Factory");
+		final Robot robot = createRobot(factory);
+
+		assertTrue(robot.isIdle());
+		assertFalse(robot.behave());
+		assertEquals(50, robot.getxCoordinate());
+		assertEquals(50, robot.getyCoordinate());
+	}
+
+	@Test
+	void testIdleRobotWithBatteryAndEnergyModelStaysStill() {
+		final Factory factory = new Factory(200, 200, "Robot Test Factory");
+		new ChargingStation(factory, new RectangularShape(150, 145, 15, 15), "Charging Station");
+		final Robot robot = createRobot(factory);
+		factory.setEnergyModel(new EnergyModel(factory));
+
+		assertFalse(robot.behave());
+		assertEquals(50, robot.getxCoordinate());
+		assertEquals(50, robot.getyCoordinate());
+	}
+
+	@Test
+	void testIdleRobotGoesCharging() {
+		final Factory factory = new Factory(200, 200, "Robot Test Factory");
+		final ChargingStation chargingStation = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
+				"Charging Station");
+		final Robot robot = createRobot(factory);
+		factory.setEnergyModel(new EnergyModel(factory));
+		robot.getBattery().setLevel(1);
+
+		assertTrue(robot.behave());
+		assertSame(chargingStation, robot.getChargingStation());
+		assertTrue(robot.getTravelledDistance() > 0);
+	}
+
+	private static Robot createRobot(final Factory factory) {
+		return new Robot(factory, new SparseIntAStarFactoryPathFinder(factory, 5), new CircularShape(50, 50, 2),
+				new Battery(10), "Robot");
+	}
+}
@@ -1,14 +1,12 @@
 package model.path;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 import model.Factory;
 import model.Position;
-import model.shapes.PositionedShape;
-import model.shapes.RectangularShape;
 
 public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements FactoryPathFinder, Serializable {
 
@@ -23,6 +21,19 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 
 	private transient Graph graph;
 
+	private transient OccupancyGridTracker occupancyGridTracker;
+
+	/**
+	 * Vertexes of the graph, indexed by {@code xIndex * ySize + yIndex}.
+	 */
+	private transient Object[] vertexes;
+
+	private transient int xSize;
+
+	private transient int ySize;
+
+	private transient int expandedVertexCount;
+
 	protected AbstractFactoryPathFinder() {
 		super();
 		this.factoryModel = new Factory();
@@ -48,41 +59,129 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 		return graph;
 	}
 
+	@Override
+	public int getExpandedVertexCount() {
+		return expandedVertexCount;
+	}
+
+	protected void setExpandedVertexCount(final int expandedVertexCount) {
+		this.expandedVertexCount = expandedVertexCount;
+	}
+
+	/**
+	 * Builds the graph on the first search, and then only updates the edges
+	 * leading to the cells whose obstacles changed since the previous search.
+	 */
 	protected void buildGraph() {
 		if (getGraph() == null) {
+			if (occupancyGridTracker == null) {
+				occupancyGridTracker = new OccupancyGridTracker(getFactoryModel(), getResolution());
+			} else {
+				occupancyGridTracker.update();
+			}
+
 			graph = newGraph();
-			final int xSize = getFactoryModel().getWidth() / getResolution();
-			final int ySize = getFactoryModel().getHeight() / getResolution();
+			xSize = getFactoryModel().getWidth() / getResolution();
+			ySize = getFactoryModel().getHeight() / getResolution();
+			vertexes = new Object[xSize * ySize];
 
 			for (int xIndex = 0; xIndex < xSize; xIndex++) {
 				for (int yIndex = 0; yIndex < ySize; yIndex++) {
 					final int xCoordinate = xIndex * getResolution();
 					final int yCoordinate = yIndex * getResolution();
-					addVertex(xCoordinate, yCoordinate);
+					vertexes[xIndex * ySize + yIndex] = addVertex(xCoordinate, yCoordinate);
 				}
 			}
 
-			final Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
-
-			while (vertexesIterator.hasNext()) {
-				final Vertex vertex = vertexesIterator.next();
+			for (int vertexIndex = 0; vertexIndex < vertexes.length; vertexIndex++) {
+				final Vertex vertex = getVertex(vertexIndex);
 				final Set<Vertex> successors = getSuccessors(getxCoordinate(vertex), getyCoordinate(vertex));
 
 				for (final Vertex succVertex : successors) {
 					addEdge(vertex, succVertex);
 				}
 			}
+		} else {
+			updateGraph();
+		}
+	}
+
+	private void updateGraph() {
+		final int[] changedCells = occupancyGridTracker.update();
+
+		if (changedCells.length == 0) {
+			return;
+		}
+
+		if (!canRemoveEdges()) {
+			graph = null;
+			buildGraph();
+
+			return;
+		}
+
+		final OccupancyGrid occupancyGrid = occupancyGridTracker.getOccupancyGrid();
+
+		for (final int cellIndex : changedCells) {
+			final int xIndex = occupancyGrid.getxIndex(cellIndex);
+			final int yIndex = occupancyGrid.getyIndex(cellIndex);
+			final Vertex vertex = getVertex(cellIndex);
+			final boolean free = occupancyGrid.isFree(xIndex, yIndex);
+
+			// Edges lead from any cell to its free neighbours
+			for (final Vertex predVertex : getNeighbours(xIndex, yIndex)) {
+				if (free) {
+					addEdge(predVertex, vertex);
+				} else {
+					removeEdge(predVertex, vertex);
+				}
+			}
+		}
+	}
 
-			System.out.println(graph.toString());
+	private Set<Vertex> getNeighbours(final int xIndex, final int yIndex) {
+		final Set<Vertex> neighbours = new HashSet<>();
+
+		for (final Vertex vertex : Arrays.asList(getVertex(xIndex - 1, yIndex), getVertex(xIndex + 1, yIndex),
+				getVertex(xIndex, yIndex - 1), getVertex(xIndex, yIndex + 1))) {
+			if (vertex != null) {
+				neighbours.add(vertex);
+			}
 		}
+
+		return neighbours;
 	}
 
 	protected abstract Graph newGraph();
 
-	protected abstract boolean addVertex(int xCoordinate, int yCoordinate);
+	/**
+	 * Creates the vertex of the cell located at the given coordinates and adds it
+	 * to the graph.
+	 *
+	 * @return The added vertex.
+	 */
+	protected abstract Vertex addVertex(int xCoordinate, int yCoordinate);
 
 	protected abstract boolean addEdge(Vertex vertex1, Vertex vertex2);
 
+	/**
+	 * Removes the edge between the given vertexes, only called if
+	 * {@link #canRemoveEdges()}.
+	 *
+	 * @return {@code true} if the edge was removed.
+	 */
+	protected boolean removeEdge(final Vertex vertex1, final Vertex vertex2) {
+		return false;
+	}
+
+	/**
+	 * @return {@code true} if {@link #removeEdge(Object, Object)} is implemented,
+	 *         or else the graph is fully rebuilt when obstacles change.
+	 */
+	protected boolean canRemoveEdges() {
+		return false;
+	}
+
 	protected abstract int getxCoordinate(Vertex vertex);
 
 	protected abstract int getyCoordinate(Vertex vertex);
@@ -167,7 +266,7 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 	private Vertex getForwardxVertex(final int xIndex, final int yIndex) {
 		final int searchedxIndex = xIndex + 1;
 
-		if (searchedxIndex < getFactoryModel().getWidth() / getResolution()) {
+		if (searchedxIndex < getxSize()) {
 			return getFreeVertex(searchedxIndex, yIndex);
 		}
 
@@ -177,7 +276,7 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 	private Vertex getForwardyVertex(final int xIndex, final int yIndex) {
 		final int searchedyIndex = yIndex + 1;
 
-		if (searchedyIndex < getFactoryModel().getHeight() / getResolution()) {
+		if (searchedyIndex < getySize()) {
 			return getFreeVertex(xIndex, searchedyIndex);
 		}
 
@@ -185,43 +284,41 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 	}
 
 	protected Vertex getFreeVertex(final int xIndex, final int yIndex) {
-		final int resolution = getResolution();
-		final int xCoordinate = xIndex * resolution;
-		final int yCoordinate = yIndex * resolution;
-
-		final PositionedShape shape = new RectangularShape(xCoordinate, yCoordinate, resolution, resolution);
-
-		if (!getFactoryModel().hasObstacleAt(shape)) {
+		if (occupancyGridTracker.getOccupancyGrid().isFree(xIndex, yIndex)) {
 			return getVertex(xIndex, yIndex);
 		}
 
 		return null;
 	}
 
-	protected abstract Vertex getVertex(final int xIndex, final int yIndex);
-
-	protected Vertex getVertex(final Position position) {
-		float currentMaxOverlayedSurface = 0.0f;
-		Vertex maxOverlayedSurfaceVertex = null;
-		final PositionedShape shape = new RectangularShape(position.getxCoordinate(), position.getyCoordinate(),
-				resolution, resolution);
+	protected int getxSize() {
+		return xSize;
+	}
 
-		final Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
+	protected int getySize() {
+		return ySize;
+	}
 
-		while (vertexesIterator.hasNext()) {
-			final Vertex vertex = vertexesIterator.next();
-			final float overlayedSurface = overlayedSurface(vertex, shape);
+	@SuppressWarnings("unchecked")
+	protected Vertex getVertex(final int vertexIndex) {
+		return (Vertex) vertexes[vertexIndex];
+	}
 
-			if (overlayedSurface > currentMaxOverlayedSurface) {
-				currentMaxOverlayedSurface = overlayedSurface;
-				maxOverlayedSurfaceVertex = vertex;
-			}
+	protected Vertex getVertex(final int xIndex, final int yIndex) {
+		if (xIndex < 0 || xIndex >= xSize || yIndex < 0 || yIndex >= ySize) {
+			return null;
 		}
 
-		return maxOverlayedSurfaceVertex;
+		return getVertex(xIndex * ySize + yIndex);
 	}
 
-	protected abstract float overlayedSurface(Vertex vertex, PositionedShape shape);
+	/**
+	 * Finds the vertex whose cell is the most overlayed by a cell-sized square
+	 * located at the given position.
+	 */
+	protected Vertex getVertex(final Position position) {
+		final int cellIndex = occupancyGridTracker.getOccupancyGrid().findCell(position);
 
-	protected abstract Iterator<? extends Vertex> getGraphVertexesIterator();
+		return cellIndex < 0 ? null : getVertex(cellIndex);
+	}
 }
@@ -0,0 +1,88 @@
+package model.path;
+
+import java.io.Serializable;
+import java.util.List;
+
+import model.Component;
+import model.Position;
+
+/**
+ * Path finder looking up the paths of another path finder in a
+ * {@link PathCache}, which can be shared by all the robots of a factory so that
+ * robots cycling through the same targets do not recompute the same paths.
+ *
+ * Cooperative path finders cannot be wrapped, since their paths depend on the
+ * paths of the other robots at the time they are planned.
+ */
+public class CachingFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = 1782465530983716218L;
+
+	private final FactoryPathFinder pathFinder;
+
+	private final PathCache pathCache;
+
+	private transient int expandedVertexCount;
+
+	/**
+	 * @throws IllegalArgumentException If the path finder is cooperative.
+	 */
+	public CachingFactoryPathFinder(final FactoryPathFinder pathFinder, final PathCache pathCache) {
+		if (pathFinder.isCooperative()) {
+			throw new IllegalArgumentException("The paths of a cooperative path finder cannot be cached: "
+					+ pathFinder.getClass().getName());
+		}
+
+		this.pathFinder = pathFinder;
+		this.pathCache = pathCache;
+	}
+
+	public FactoryPathFinder getPathFinder() {
+		return pathFinder;
+	}
+
+	public PathCache getPathCache() {
+		return pathCache;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent, final Component targetComponent) {
+		final long key = pathCache.computeKey(sourceComponent.getPosition(), targetComponent.getPosition());
+
+		if (key < 0) {
+			final List<Position> path = pathFinder.findPath(sourceComponent, targetComponent);
+			expandedVertexCount = pathFinder.getExpandedVertexCount();
+
+			return path;
+		}
+
+		final List<Position> cachedPath = pathCache.get(key);
+
+		if (cachedPath != null) {
+			expandedVertexCount = 0;
+
+			return cachedPath;
+		}
+
+		final long epoch = pathCache.getFactoryModel().getObstacleEpoch();
+		final List<Position> path = pathFinder.findPath(sourceComponent, targetComponent);
+		expandedVertexCount = pathFinder.getExpandedVertexCount();
+
+		return pathCache.put(key, path, epoch);
+	}
+
+	@Override
+	public int getExpandedVertexCount() {
+		return expandedVertexCount;
+	}
+
+	@Override
+	public boolean isCooperative() {
+		return pathFinder.isCooperative();
+	}
+
+	@Override
+	public void releasePath(final Component component) {
+		pathFinder.releasePath(component);
+	}
+}
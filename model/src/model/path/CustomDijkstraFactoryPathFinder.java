@@ -2,8 +2,8 @@ package model.path;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import fr.tp.inf112.projects.graph.DijkstraAlgorithm;
 import fr.tp.inf112.projects.graph.Edge;
@@ -14,7 +14,6 @@ import fr.tp.inf112.projects.graph.impl.GridVertex;
 import model.Component;
 import model.Factory;
 import model.Position;
-import model.shapes.PositionedShape;
 
 public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<GridGraph, SquareVertex>
 		implements Serializable {
@@ -47,6 +46,7 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 
 		final GridGraph graph = getGraph();
 		graph.setTargetVertex((GridVertex) targetVertex);
+		setExpandedVertexCount(0);
 
 		final List<Vertex> shortestPath = DijkstraAlgorithm.findShortestPath(graph, startVertex, targetVertex);
 		final List<Position> shortestPathPositions = new ArrayList<>();
@@ -60,45 +60,29 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 		return shortestPathPositions;
 	}
 
-	@Override
-	protected SquareVertex getVertex(final int xIndex, final int yIndex) {
-		final Iterator<SquareVertex> iterator = getGraphVertexesIterator();
-		final int resolution = getResolution();
-		final Position position = new Position(xIndex * resolution, yIndex * resolution);
-
-		while (iterator.hasNext()) {
-			final SquareVertex squareVertex = iterator.next();
-
-			if (position.equals(squareVertex.getPosition())) {
-				return squareVertex;
-			}
-		}
-
-		return null;
-	}
-
-	@Override
-	protected float overlayedSurface(final SquareVertex vertex, final PositionedShape shape) {
-		return vertex.getShape().getOverlayedSurface(shape);
-	}
-
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	@Override
-	protected Iterator<SquareVertex> getGraphVertexesIterator() {
-		return (Iterator) getGraph().getVertexes().iterator();
-	}
-
 	@Override
 	protected GridGraph newGraph() {
 		return new GridGraph();
 	}
 
 	@Override
-	protected boolean addVertex(final int xCoordinate, final int yCoordinate) {
+	protected SquareVertex addVertex(final int xCoordinate, final int yCoordinate) {
 		final int resolution = getResolution();
-		final Vertex vertex = new SquareVertex("(" + xCoordinate / resolution + ", " + yCoordinate / resolution + ")",
-				xCoordinate, yCoordinate, resolution);
-		return getGraph().addVertex(vertex);
+		final SquareVertex vertex = new SquareVertex(
+				"(" + xCoordinate / resolution + ", " + yCoordinate / resolution + ")", xCoordinate, yCoordinate,
+				resolution) {
+
+			// The Dijkstra algorithm asks for the successors of a vertex only when it expands it
+			@Override
+			public Set<Vertex> getSuccessors() {
+				setExpandedVertexCount(getExpandedVertexCount() + 1);
+
+				return super.getSuccessors();
+			}
+		};
+		getGraph().addVertex(vertex);
+
+		return vertex;
 	}
 
 	@Override
@@ -0,0 +1,73 @@
+package model.path;
+
+/**
+ * Lengths of the shortest paths from every cell of an occupancy grid to a target
+ * cell. The distances are stored on two bytes per cell when the grid is small
+ * enough for all of them to fit, and on four bytes otherwise.
+ */
+public final class DistanceField {
+
+	/**
+	 * Short distance of the cells from which the target cannot be reached.
+	 */
+	private static final short SHORT_UNREACHABLE = -1;
+
+	private final int targetCellIndex;
+
+	private final short[] shortDistances;
+
+	private final int[] intDistances;
+
+	/**
+	 * @param distances The distances indexed by cell, {@link DistanceFields#UNREACHABLE}
+	 *                  for the cells from which the target cannot be reached.
+	 */
+	DistanceField(final int targetCellIndex, final int[] distances) {
+		this.targetCellIndex = targetCellIndex;
+
+		// A distance is never larger than the number of cells
+		if (distances.length <= Short.MAX_VALUE) {
+			shortDistances = new short[distances.length];
+
+			for (int cellIndex = 0; cellIndex < distances.length; cellIndex++) {
+				shortDistances[cellIndex] = distances[cellIndex] == DistanceFields.UNREACHABLE ? SHORT_UNREACHABLE
+						: (short) distances[cellIndex];
+			}
+
+			intDistances = null;
+		} else {
+			shortDistances = null;
+			intDistances = distances;
+		}
+	}
+
+	public int getTargetCellIndex() {
+		return targetCellIndex;
+	}
+
+	/**
+	 * @return The length of the shortest path from the cell to the target cell, or
+	 *         {@link DistanceFields#UNREACHABLE} if there is none.
+	 */
+	public int get(final int cellIndex) {
+		if (shortDistances == null) {
+			return intDistances[cellIndex];
+		}
+
+		final short distance = shortDistances[cellIndex];
+
+		return distance == SHORT_UNREACHABLE ? DistanceFields.UNREACHABLE : distance;
+	}
+
+	public int getCellCount() {
+		return shortDistances == null ? intDistances.length : shortDistances.length;
+	}
+
+	/**
+	 * @return The number of bytes of the distances.
+	 */
+	public long getMemorySize() {
+		return shortDistances == null ? (long) Integer.BYTES * intDistances.length
+				: (long) Short.BYTES * shortDistances.length;
+	}
+}
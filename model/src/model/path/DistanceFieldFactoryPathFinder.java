@@ -0,0 +1,81 @@
+package model.path;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Component;
+import model.Factory;
+import model.Position;
+
+/**
+ * Path finder descending the distance fields of the target components of a
+ * factory instead of searching for a shortest path. Since the field of a target
+ * gives the distance to it from every cell, the next step from any cell is the
+ * neighbouring cell one step closer, so that a path costs one look at the
+ * neighbours of each of its cells.
+ *
+ * The fields of the machines, conveyors and charging stations are computed on
+ * the first search, and the ones of the other targets when first needed. The
+ * distance fields can be shared by the path finders of all the robots of a
+ * factory.
+ */
+public class DistanceFieldFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = -6031429154580935212L;
+
+	private final DistanceFields distanceFields;
+
+	private transient int expandedVertexCount;
+
+	protected DistanceFieldFactoryPathFinder() {
+		this(new Factory(), 0);
+	}
+
+	public DistanceFieldFactoryPathFinder(final Factory factoryModel, final int resolution) {
+		this(new DistanceFields(new RoutingGraph(factoryModel, resolution)));
+	}
+
+	public DistanceFieldFactoryPathFinder(final DistanceFields distanceFields) {
+		this.distanceFields = distanceFields;
+	}
+
+	public DistanceFields getDistanceFields() {
+		return distanceFields;
+	}
+
+	public int getResolution() {
+		return distanceFields.getRoutingGraph().getResolution();
+	}
+
+	@Override
+	public int getExpandedVertexCount() {
+		return expandedVertexCount;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent, final Component targetComponent) {
+		final int sourceIndex = distanceFields.findCell(sourceComponent.getPosition());
+		assert sourceIndex >= 0 : "Start vertex should never be null!";
+
+		final int targetIndex = distanceFields.findCell(targetComponent.getPosition());
+		assert targetIndex >= 0 : "Target vertex should never be null!";
+
+		distanceFields.precomputeTargets();
+
+		final DistanceField field = distanceFields.get(targetIndex);
+		final OccupancyGrid occupancyGrid = distanceFields.getRoutingGraph().getOccupancyGrid();
+		final int resolution = getResolution();
+		final List<Position> positions = new ArrayList<>();
+		expandedVertexCount = 0;
+
+		for (int cellIndex = distanceFields.findNextCell(field, sourceIndex); cellIndex >= 0; cellIndex = distanceFields
+				.findNextCell(field, cellIndex)) {
+			positions.add(new Position(occupancyGrid.getxIndex(cellIndex) * resolution,
+					occupancyGrid.getyIndex(cellIndex) * resolution));
+			expandedVertexCount++;
+		}
+
+		return positions;
+	}
+}
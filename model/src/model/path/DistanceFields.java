@@ -0,0 +1,358 @@
+package model.path;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import model.ChargingStation;
+import model.Component;
+import model.Conveyor;
+import model.Factory;
+import model.Machine;
+import model.Position;
+
+/**
+ * Bounded cache of the distance fields of the cells of a routing graph, a
+ * distance field giving the length of the shortest path from every cell to a
+ * target cell around the static obstacles. A field is computed with a single
+ * breadth-first search from its target, so that the distances from any number
+ * of robots to a few targets cost one search per target, and a robot anywhere
+ * in the factory finds its next step towards a target by looking at the
+ * distances of its neighbouring cells only.
+ *
+ * The fields are invalidated when the obstacle epoch of the factory changes, for
+ * instance when a door opens or closes, and are only computed again when next
+ * requested. The least recently used fields are evicted first once the
+ * capacity is reached, except the fields of the target components of the
+ * factory once {@link #precomputeTargets()} was called.
+ */
+public class DistanceFields implements Serializable {
+
+	private static final long serialVersionUID = 3178325045193735614L;
+
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Distance of the cells from which the target cannot be reached.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Offsets of the neighbouring cells a robot can move to in one step.
+	 */
+	static final int[] X_OFFSETS = { 0, 1, 0, -1 };
+
+	static final int[] Y_OFFSETS = { -1, 0, 1, 0 };
+
+	private final RoutingGraph routingGraph;
+
+	private final int capacity;
+
+	private transient Map<Integer, DistanceField> fields;
+
+	/**
+	 * Cells of the target components, whose fields are never evicted.
+	 */
+	private transient Set<Integer> targetCells;
+
+	private transient Map<Integer, DistanceField> targetFields;
+
+	/**
+	 * Layout epoch of the factory when the target cells were collected.
+	 */
+	private transient long targetLayoutEpoch;
+
+	private transient long epoch;
+
+	private transient long rebuildCount;
+
+	private transient long totalRebuildDuration;
+
+	private transient long lastRebuildDuration;
+
+	public DistanceFields(final RoutingGraph routingGraph) {
+		this(routingGraph, DEFAULT_CAPACITY);
+	}
+
+	public DistanceFields(final RoutingGraph routingGraph, final int capacity) {
+		this.routingGraph = routingGraph;
+		this.capacity = capacity;
+
+		initialize();
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		initialize();
+	}
+
+	private void initialize() {
+		fields = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = -2450146376283651094L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, DistanceField> eldest) {
+				return size() > capacity;
+			}
+		};
+		targetCells = new HashSet<>();
+		targetFields = new HashMap<>();
+		targetLayoutEpoch = -1;
+		epoch = -1;
+	}
+
+	public RoutingGraph getRoutingGraph() {
+		return routingGraph;
+	}
+
+	public Factory getFactoryModel() {
+		return routingGraph.getFactoryModel();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return The number of fields currently computed.
+	 */
+	public synchronized int size() {
+		return fields.size() + targetFields.size();
+	}
+
+	/**
+	 * @return The number of bytes of the distances of the fields currently
+	 *         computed.
+	 */
+	public synchronized long getMemorySize() {
+		long memorySize = 0;
+
+		for (final DistanceField field : fields.values()) {
+			memorySize += field.getMemorySize();
+		}
+
+		for (final DistanceField field : targetFields.values()) {
+			memorySize += field.getMemorySize();
+		}
+
+		return memorySize;
+	}
+
+	/**
+	 * @return The number of fields computed since the creation of the cache.
+	 */
+	public synchronized long getRebuildCount() {
+		return rebuildCount;
+	}
+
+	/**
+	 * @return The duration of the computation of all the fields in nanoseconds.
+	 */
+	public synchronized long getTotalRebuildDuration() {
+		return totalRebuildDuration;
+	}
+
+	/**
+	 * @return The duration of the computation of the last field in nanoseconds.
+	 */
+	public synchronized long getLastRebuildDuration() {
+		return lastRebuildDuration;
+	}
+
+	/**
+	 * Computes the fields of the machines, conveyors and charging stations of the
+	 * factory, which are then never evicted, but computed again on their next
+	 * request once the obstacles changed. The target components are only
+	 * collected again when components are added to or removed from the factory.
+	 *
+	 * @return The number of target cells.
+	 */
+	public synchronized int precomputeTargets() {
+		final long currentLayoutEpoch = getFactoryModel().getLayoutEpoch();
+
+		if (currentLayoutEpoch == targetLayoutEpoch) {
+			return targetCells.size();
+		}
+
+		targetCells.clear();
+
+		for (final Component component : getFactoryModel().getComponents()) {
+			if (component instanceof Machine || component instanceof Conveyor
+					|| component instanceof ChargingStation) {
+				final int cellIndex = findCell(component.getPosition());
+
+				if (cellIndex >= 0) {
+					targetCells.add(cellIndex);
+				}
+			}
+		}
+
+		targetFields.keySet().retainAll(targetCells);
+		targetLayoutEpoch = currentLayoutEpoch;
+
+		for (final int cellIndex : targetCells) {
+			get(cellIndex);
+		}
+
+		return targetCells.size();
+	}
+
+	/**
+	 * @return The index of the cell of the routing graph the most overlayed by a
+	 *         cell located at the position, or -1 if it is outside of the factory.
+	 */
+	public int findCell(final Position position) {
+		final Factory factoryModel = getFactoryModel();
+		final int resolution = routingGraph.getResolution();
+
+		return OccupancyGrid.findCell(position, factoryModel.getWidth() / resolution,
+				factoryModel.getHeight() / resolution, resolution);
+	}
+
+	/**
+	 * @return The distances to the target cell.
+	 */
+	public synchronized DistanceField get(final int targetCellIndex) {
+		final long currentEpoch = getFactoryModel().getObstacleEpoch();
+
+		if (currentEpoch != epoch) {
+			fields.clear();
+			targetFields.clear();
+			epoch = currentEpoch;
+		}
+
+		final boolean targetCell = targetCells.contains(targetCellIndex);
+		DistanceField field = targetCell ? targetFields.get(targetCellIndex) : fields.get(targetCellIndex);
+
+		if (field == null && targetCell) {
+			// The field may have been computed before the cell was a target cell
+			field = fields.remove(targetCellIndex);
+
+			if (field != null) {
+				targetFields.put(targetCellIndex, field);
+			}
+		}
+
+		if (field == null) {
+			// Updating the grid is not part of the computation of the field
+			final OccupancyGrid occupancyGrid = routingGraph.getOccupancyGrid();
+			final long startTime = System.nanoTime();
+			field = new DistanceField(targetCellIndex, compute(occupancyGrid, targetCellIndex));
+			lastRebuildDuration = System.nanoTime() - startTime;
+			totalRebuildDuration += lastRebuildDuration;
+			rebuildCount++;
+
+			if (targetCell) {
+				targetFields.put(targetCellIndex, field);
+			} else {
+				fields.put(targetCellIndex, field);
+			}
+		}
+
+		return field;
+	}
+
+	/**
+	 * Descends the distance field from a cell, which only looks at the
+	 * neighbouring cells.
+	 *
+	 * @return The free neighbouring cell closest to the target, or -1 if the cell
+	 *         is the target or if the target cannot be reached from it.
+	 */
+	public int findNextCell(final DistanceField field, final int cellIndex) {
+		final int distance = field.get(cellIndex);
+
+		if (distance == 0 || distance == UNREACHABLE) {
+			return -1;
+		}
+
+		final OccupancyGrid occupancyGrid = routingGraph.getOccupancyGrid();
+		final int xIndex = occupancyGrid.getxIndex(cellIndex);
+		final int yIndex = occupancyGrid.getyIndex(cellIndex);
+
+		for (int direction = 0; direction < X_OFFSETS.length; direction++) {
+			final int nextxIndex = xIndex + X_OFFSETS[direction];
+			final int nextyIndex = yIndex + Y_OFFSETS[direction];
+
+			if (nextxIndex < 0 || nextxIndex >= occupancyGrid.getxSize() || nextyIndex < 0
+					|| nextyIndex >= occupancyGrid.getySize() || !occupancyGrid.isFree(nextxIndex, nextyIndex)) {
+				continue;
+			}
+
+			final int nextIndex = occupancyGrid.getCellIndex(nextxIndex, nextyIndex);
+
+			// The field has a neighbour one step closer unless the obstacles changed
+			if (field.get(nextIndex) == distance - 1) {
+				return nextIndex;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Walks the grid backward from the target with a breadth-first search. Since
+	 * robots may only enter free cells, a cell is only expanded if it is free,
+	 * while any cell, such as the occupied cell a robot starts from, gets the
+	 * distance of its nearest free neighbour.
+	 */
+	static int[] compute(final OccupancyGrid occupancyGrid, final int targetCellIndex) {
+		final int xSize = occupancyGrid.getxSize();
+		final int ySize = occupancyGrid.getySize();
+		final int[] distances = new int[xSize * ySize];
+		Arrays.fill(distances, UNREACHABLE);
+
+		if (occupancyGrid.isOccupied(occupancyGrid.getxIndex(targetCellIndex),
+				occupancyGrid.getyIndex(targetCellIndex))) {
+			return distances;
+		}
+
+		// The cells are queued in the order of their distance
+		final int[] queue = new int[distances.length];
+		int head = 0;
+		int tail = 0;
+		distances[targetCellIndex] = 0;
+		queue[tail++] = targetCellIndex;
+
+		while (head < tail) {
+			final int cellIndex = queue[head++];
+			final int xIndex = occupancyGrid.getxIndex(cellIndex);
+			final int yIndex = occupancyGrid.getyIndex(cellIndex);
+
+			for (int direction = 0; direction < X_OFFSETS.length; direction++) {
+				final int predxIndex = xIndex + X_OFFSETS[direction];
+				final int predyIndex = yIndex + Y_OFFSETS[direction];
+
+				if (predxIndex < 0 || predxIndex >= xSize || predyIndex < 0 || predyIndex >= ySize) {
+					continue;
+				}
+
+				final int predIndex = occupancyGrid.getCellIndex(predxIndex, predyIndex);
+
+				if (distances[predIndex] == UNREACHABLE) {
+					distances[predIndex] = distances[cellIndex] + 1;
+
+					if (occupancyGrid.isFree(predxIndex, predyIndex)) {
+						queue[tail++] = predIndex;
+					}
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + " [size=" + fields.size() + ", targets=" + targetCells.size()
+				+ ", capacity=" + capacity + "]";
+	}
+}
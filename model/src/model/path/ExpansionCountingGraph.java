@@ -0,0 +1,42 @@
+package model.path;
+
+import java.util.Set;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.GraphDelegator;
+
+/**
+ * View of a graph counting the vertexes whose edges are visited by a shortest
+ * path search. The JGraphT searches visit the edges of a vertex exactly once,
+ * when they expand it, so the count is the number of expanded vertexes.
+ */
+class ExpansionCountingGraph<V, E> extends GraphDelegator<V, E> {
+
+	private static final long serialVersionUID = -2934012771560846213L;
+
+	private int expandedVertexCount;
+
+	ExpansionCountingGraph(final Graph<V, E> graph) {
+		super(graph);
+
+		expandedVertexCount = 0;
+	}
+
+	int getExpandedVertexCount() {
+		return expandedVertexCount;
+	}
+
+	@Override
+	public Set<E> outgoingEdgesOf(final V vertex) {
+		expandedVertexCount++;
+
+		return super.outgoingEdgesOf(vertex);
+	}
+
+	@Override
+	public Set<E> incomingEdgesOf(final V vertex) {
+		expandedVertexCount++;
+
+		return super.incomingEdgesOf(vertex);
+	}
+}
@@ -8,4 +8,27 @@ import model.Position;
 public interface FactoryPathFinder {
 
 	List<Position> findPath(Component sourceComponent, Component targetComponent);
+
+	/**
+	 * @return The number of vertexes expanded by the last call to
+	 *         {@link #findPath(Component, Component)}.
+	 */
+	int getExpandedVertexCount();
+
+	/**
+	 * @return {@code true} if the paths found avoid the paths of the other robots,
+	 *         in which case a robot follows its path as is, waiting when a position
+	 *         is repeated, instead of avoiding the other robots on its way.
+	 */
+	default boolean isCooperative() {
+		return false;
+	}
+
+	/**
+	 * Forgets the last path found for the component, which stopped following it,
+	 * for instance to wait for a charging station, so that the other paths avoid
+	 * its current position instead.
+	 */
+	default void releasePath(final Component component) {
+	}
 }
@@ -2,15 +2,12 @@ package model.path;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
-import org.jgrapht.graph.AbstractBaseGraph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.traverse.DepthFirstIterator;
 
 import model.Component;
 import model.Factory;
@@ -45,9 +42,10 @@ public class JGraphTDijkstraFactoryPathFinder
 		final PositionedShape targetVertex = getVertex(targetComponent.getPosition());
 		assert targetVertex != null : "Target vertex should never be null!";
 
-		final AbstractBaseGraph<PositionedShape, DefaultEdge> graph = getGraph();
+		final ExpansionCountingGraph<PositionedShape, DefaultEdge> graph = new ExpansionCountingGraph<>(getGraph());
 		final GraphPath<PositionedShape, DefaultEdge> shortestPath = DijkstraShortestPath.findPathBetween(graph,
 				sourceVertex, targetVertex);
+		setExpandedVertexCount(graph.getExpandedVertexCount());
 		final List<Position> shortestPathPositions = new ArrayList<>();
 
 		if (shortestPath != null) {
@@ -62,46 +60,31 @@ public class JGraphTDijkstraFactoryPathFinder
 	}
 
 	@Override
-	protected PositionedShape getVertex(final int xIndex, final int yIndex) {
-		final Iterator<PositionedShape> iterator = getGraphVertexesIterator();
-		final int resolution = getResolution();
-		final Position position = new Position(xIndex * resolution, yIndex * resolution);
-
-		while (iterator.hasNext()) {
-			final PositionedShape shape = iterator.next();
-
-			if (position.equals(shape.getPosition())) {
-				return shape;
-			}
-		}
-
-		return null;
+	protected DefaultDirectedGraph<PositionedShape, DefaultEdge> newGraph() {
+		return new DefaultDirectedGraph<>(DefaultEdge.class);
 	}
 
 	@Override
-	protected float overlayedSurface(final PositionedShape vertex, final PositionedShape shape) {
-		return vertex.getOverlayedSurface(shape);
-	}
+	protected PositionedShape addVertex(final int xCoordinate, final int yCoordinate) {
+		final PositionedShape vertex = new RectangularShape(xCoordinate, yCoordinate, getResolution(), getResolution());
+		getGraph().addVertex(vertex);
 
-	@Override
-	protected Iterator<PositionedShape> getGraphVertexesIterator() {
-		return new DepthFirstIterator<>(getGraph());
+		return vertex;
 	}
 
 	@Override
-	protected DefaultDirectedGraph<PositionedShape, DefaultEdge> newGraph() {
-		return new DefaultDirectedGraph<>(DefaultEdge.class);
+	protected boolean addEdge(final PositionedShape vertex1, final PositionedShape vertex2) {
+		return getGraph().addEdge(vertex1, vertex2) != null;
 	}
 
 	@Override
-	protected boolean addVertex(final int xCoordinate, final int yCoordinate) {
-		final PositionedShape vertex = new RectangularShape(xCoordinate, yCoordinate, getResolution(), getResolution());
-		return getGraph().addVertex(vertex);
+	protected boolean removeEdge(final PositionedShape vertex1, final PositionedShape vertex2) {
+		return getGraph().removeEdge(vertex1, vertex2) != null;
 	}
 
 	@Override
-	protected boolean addEdge(final PositionedShape vertex1, final PositionedShape vertex2) {
-		return getGraph().addEdge(vertex1, vertex2) != null;
+	protected boolean canRemoveEdges() {
+		return true;
 	}
 
 	@Override
@@ -0,0 +1,116 @@
+package model.path;
+
+import model.Position;
+import model.shapes.PositionedShape;
+import model.shapes.RectangularShape;
+
+/**
+ * Packed bitmap of the cells of a factory that are occupied by static obstacles,
+ * at the resolution of a path finder grid.
+ */
+public class OccupancyGrid {
+
+	private final int xSize;
+
+	private final int ySize;
+
+	private final int resolution;
+
+	private final long[] occupiedCells;
+
+	public OccupancyGrid(final int xSize, final int ySize, final int resolution) {
+		this.xSize = xSize;
+		this.ySize = ySize;
+		this.resolution = resolution;
+		this.occupiedCells = new long[(xSize * ySize + Long.SIZE - 1) / Long.SIZE];
+	}
+
+	public int getxSize() {
+		return xSize;
+	}
+
+	public int getySize() {
+		return ySize;
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	public boolean isOccupied(final int xIndex, final int yIndex) {
+		final int cellIndex = getCellIndex(xIndex, yIndex);
+
+		return (occupiedCells[cellIndex >>> 6] & (1L << cellIndex)) != 0;
+	}
+
+	public boolean isFree(final int xIndex, final int yIndex) {
+		return !isOccupied(xIndex, yIndex);
+	}
+
+	public int getCellIndex(final int xIndex, final int yIndex) {
+		return xIndex * ySize + yIndex;
+	}
+
+	public int getxIndex(final int cellIndex) {
+		return cellIndex / ySize;
+	}
+
+	public int getyIndex(final int cellIndex) {
+		return cellIndex % ySize;
+	}
+
+	/**
+	 * Finds the cell that is the most overlayed by a cell-sized square located at
+	 * the given position. Since cells are aligned on the grid, only the cell
+	 * containing the position and its forward neighbours can be overlayed.
+	 *
+	 * @return The index of the cell, or -1 if the position is outside of the grid.
+	 */
+	public int findCell(final Position position) {
+		return findCell(position, xSize, ySize, resolution);
+	}
+
+	/**
+	 * Same as {@link #findCell(Position)} for a grid of the given dimensions, which
+	 * only depends on the geometry of the grid and not on its occupied cells.
+	 */
+	public static int findCell(final Position position, final int xSize, final int ySize, final int resolution) {
+		float currentMaxOverlayedSurface = 0.0f;
+		int maxOverlayedSurfaceCellIndex = -1;
+		final PositionedShape shape = new RectangularShape(position.getxCoordinate(), position.getyCoordinate(),
+				resolution, resolution);
+		final RectangularShape cellShape = new RectangularShape(0, 0, resolution, resolution);
+		final int xIndex = Math.floorDiv(position.getxCoordinate(), resolution);
+		final int yIndex = Math.floorDiv(position.getyCoordinate(), resolution);
+
+		for (int searchedxIndex = Math.max(0, xIndex); searchedxIndex <= Math.min(xSize - 1,
+				xIndex + 1); searchedxIndex++) {
+			for (int searchedyIndex = Math.max(0, yIndex); searchedyIndex <= Math.min(ySize - 1,
+					yIndex + 1); searchedyIndex++) {
+				cellShape.setxCoordinate(searchedxIndex * resolution);
+				cellShape.setyCoordinate(searchedyIndex * resolution);
+
+				final float overlayedSurface = cellShape.getOverlayedSurface(shape);
+
+				if (overlayedSurface > currentMaxOverlayedSurface) {
+					currentMaxOverlayedSurface = overlayedSurface;
+					maxOverlayedSurfaceCellIndex = searchedxIndex * ySize + searchedyIndex;
+				}
+			}
+		}
+
+		return maxOverlayedSurfaceCellIndex;
+	}
+
+	public void setOccupied(final int xIndex, final int yIndex) {
+		final int cellIndex = getCellIndex(xIndex, yIndex);
+
+		occupiedCells[cellIndex >>> 6] |= 1L << cellIndex;
+	}
+
+	public void setFree(final int xIndex, final int yIndex) {
+		final int cellIndex = getCellIndex(xIndex, yIndex);
+
+		occupiedCells[cellIndex >>> 6] &= ~(1L << cellIndex);
+	}
+}
@@ -0,0 +1,72 @@
+package model.path;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import model.Factory;
+import model.ObstacleListener;
+import model.shapes.PositionedShape;
+import model.shapes.RectangularShape;
+
+/**
+ * Occupancy grid of a factory kept up to date with its obstacles. The regions
+ * whose obstacles changed are queued as they are notified by the factory, and
+ * only the cells overlaying them are rasterized again when the path finder
+ * owning the grid calls {@link #update()} before its next search.
+ */
+class OccupancyGridTracker implements ObstacleListener {
+
+	private final Factory factoryModel;
+
+	private final OccupancyGrid occupancyGrid;
+
+	private final Queue<PositionedShape> changedRegions;
+
+	OccupancyGridTracker(final Factory factoryModel, final int resolution) {
+		this.factoryModel = factoryModel;
+		this.changedRegions = new ConcurrentLinkedQueue<>();
+
+		// Listen before rasterizing so that no change can be missed in between
+		factoryModel.addObstacleListener(this);
+		this.occupancyGrid = factoryModel.rasterizeObstacles(resolution);
+	}
+
+	OccupancyGrid getOccupancyGrid() {
+		return occupancyGrid;
+	}
+
+	@Override
+	public void obstaclesChanged(final PositionedShape region) {
+		// Copy the bounds since the shape of a component may be changed later on
+		changedRegions.add(new RectangularShape(region.getxCoordinate(), region.getyCoordinate(), region.getWidth(),
+				region.getHeight()));
+	}
+
+	boolean hasChanges() {
+		return !changedRegions.isEmpty();
+	}
+
+	/**
+	 * Rasterizes again the regions whose obstacles changed since the last update.
+	 *
+	 * @return The indexes of the cells whose occupancy changed, possibly with
+	 *         duplicates if they belong to several regions.
+	 */
+	int[] update() {
+		int[] changedCells = new int[0];
+		PositionedShape region;
+
+		while ((region = changedRegions.poll()) != null) {
+			final int[] regionChangedCells = factoryModel.rasterizeObstacles(occupancyGrid, region);
+
+			if (regionChangedCells.length > 0) {
+				final int changedCellCount = changedCells.length;
+				changedCells = Arrays.copyOf(changedCells, changedCellCount + regionChangedCells.length);
+				System.arraycopy(regionChangedCells, 0, changedCells, changedCellCount, regionChangedCells.length);
+			}
+		}
+
+		return changedCells;
+	}
+}
@@ -0,0 +1,166 @@
+package model.path;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Factory;
+import model.Position;
+
+/**
+ * Bounded cache of the paths computed in a factory, shared by the path finders
+ * of its robots. Paths are keyed on the grid cells of their source and target
+ * positions, and the least recently used paths are evicted first once the
+ * capacity is reached.
+ *
+ * The whole cache is invalidated when the obstacle epoch of the factory changes,
+ * for instance when a door opens or closes, since any cached path may then be
+ * blocked or no longer be the shortest one.
+ */
+public class PathCache implements Serializable {
+
+	private static final long serialVersionUID = -6092341287815315360L;
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final Factory factoryModel;
+
+	private final int resolution;
+
+	private final int capacity;
+
+	private transient Map<Long, List<Position>> paths;
+
+	private transient long epoch;
+
+	private transient long hitCount;
+
+	private transient long missCount;
+
+	public PathCache(final Factory factoryModel, final int resolution) {
+		this(factoryModel, resolution, DEFAULT_CAPACITY);
+	}
+
+	public PathCache(final Factory factoryModel, final int resolution, final int capacity) {
+		this.factoryModel = factoryModel;
+		this.resolution = resolution;
+		this.capacity = capacity;
+
+		initialize(factoryModel.getObstacleEpoch());
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		// The factory may not be fully read yet, so the empty cache takes its epoch
+		// on first use
+		initialize(-1);
+	}
+
+	private void initialize(final long epoch) {
+		paths = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 4567180305927372516L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, List<Position>> eldest) {
+				return size() > capacity;
+			}
+		};
+		this.epoch = epoch;
+		hitCount = 0;
+		missCount = 0;
+	}
+
+	public Factory getFactoryModel() {
+		return factoryModel;
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized int size() {
+		return paths.size();
+	}
+
+	/**
+	 * Computes the key of the path between the cells of the given positions, or -1
+	 * if one of them is outside of the factory.
+	 */
+	long computeKey(final Position sourcePosition, final Position targetPosition) {
+		final int xSize = factoryModel.getWidth() / resolution;
+		final int ySize = factoryModel.getHeight() / resolution;
+		final int sourceIndex = OccupancyGrid.findCell(sourcePosition, xSize, ySize, resolution);
+		final int targetIndex = OccupancyGrid.findCell(targetPosition, xSize, ySize, resolution);
+
+		if (sourceIndex < 0 || targetIndex < 0) {
+			return -1;
+		}
+
+		return (long) sourceIndex << Integer.SIZE | targetIndex;
+	}
+
+	/**
+	 * @return The cached path, or {@code null} if it is unknown or was computed for
+	 *         a previous obstacle epoch.
+	 */
+	synchronized List<Position> get(final long key) {
+		invalidateIfStale(factoryModel.getObstacleEpoch());
+
+		final List<Position> path = paths.get(key);
+
+		if (path == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+
+		return path;
+	}
+
+	/**
+	 * Stores a path computed while the factory was at the given obstacle epoch. The
+	 * path is dropped if the obstacles changed during its computation.
+	 */
+	synchronized List<Position> put(final long key, final List<Position> path, final long pathEpoch) {
+		final List<Position> cachedPath = Collections.unmodifiableList(path);
+
+		invalidateIfStale(factoryModel.getObstacleEpoch());
+
+		if (pathEpoch == epoch) {
+			paths.put(key, cachedPath);
+		}
+
+		return cachedPath;
+	}
+
+	private void invalidateIfStale(final long currentEpoch) {
+		if (currentEpoch != epoch) {
+			paths.clear();
+			epoch = currentEpoch;
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + " [size=" + paths.size() + ", hits=" + hitCount + ", misses=" + missCount
+				+ "]";
+	}
+}
@@ -0,0 +1,333 @@
+package model.path;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import model.Component;
+import model.Factory;
+import model.Position;
+
+/**
+ * Cooperative path finder planning the paths of the robots of a factory one
+ * after the other through a shared {@link ReservationTable}. The path of a robot
+ * is searched with an A* search over cells and ticks, in which the robot either
+ * waits on its cell or moves to a free neighbouring cell at each tick, and only
+ * uses the cells that no robot planning before it reserved at that tick. The
+ * search is guided by the length of the shortest path around the static
+ * obstacles, so that waiting is only preferred when it avoids a longer detour,
+ * and by the first tick from which no other robot needs the target cell, so
+ * that a robot heading to the same target as others does not search all the
+ * ways of waiting for them.
+ *
+ * The returned path contains one position per tick, a position being repeated
+ * when the robot has to wait. Robots using this path finder follow their path
+ * without trying to avoid the other robots, and plan again when a move fails or
+ * when their path ends before their target.
+ */
+public class ReservationFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = 7716260925143280478L;
+
+	public static final int DEFAULT_MAX_DELAY = 100;
+
+	/**
+	 * Maximum number of states expanded by a search, which bounds the duration of
+	 * a tick when a robot cannot reach its target in a crowded factory.
+	 */
+	private static final int MAX_EXPANDED_STATES = 100_000;
+
+	/**
+	 * Maximum number of ticks a robot waits before planning again after searches
+	 * that failed, the wait doubling after each failed search so that a robot
+	 * blocked for long does not search at every tick.
+	 */
+	private static final int MAX_FAILED_SEARCH_WAIT = 32;
+
+	private final ReservationTable reservationTable;
+
+	private final int maxDelay;
+
+	private transient int expandedVertexCount;
+
+	private transient int failedSearchCount;
+
+	protected ReservationFactoryPathFinder() {
+		this(new Factory(), 0);
+	}
+
+	public ReservationFactoryPathFinder(final Factory factoryModel, final int resolution) {
+		this(new ReservationTable(factoryModel, resolution));
+	}
+
+	public ReservationFactoryPathFinder(final ReservationTable reservationTable) {
+		this(reservationTable, DEFAULT_MAX_DELAY);
+	}
+
+	/**
+	 * @param reservationTable The table shared by the path finders of all the
+	 *                         robots of the factory.
+	 * @param maxDelay         The number of ticks a path may last longer than the
+	 *                         shortest path around the static obstacles.
+	 */
+	public ReservationFactoryPathFinder(final ReservationTable reservationTable, final int maxDelay) {
+		this.reservationTable = reservationTable;
+		this.maxDelay = maxDelay;
+	}
+
+	public ReservationTable getReservationTable() {
+		return reservationTable;
+	}
+
+	public int getMaxDelay() {
+		return maxDelay;
+	}
+
+	@Override
+	public int getExpandedVertexCount() {
+		return expandedVertexCount;
+	}
+
+	@Override
+	public boolean isCooperative() {
+		return true;
+	}
+
+	@Override
+	public void releasePath(final Component component) {
+		reservationTable.release(component);
+	}
+
+	/**
+	 * Plans the path of the source component and reserves its cells.
+	 *
+	 * @return The positions of the source component at the end of the next ticks,
+	 *         an empty list if the target cannot be reached around the static
+	 *         obstacles, or the current position if the other robots block the
+	 *         way during the next ticks.
+	 */
+	@Override
+	public List<Position> findPath(final Component sourceComponent, final Component targetComponent) {
+		synchronized (reservationTable) {
+			final OccupancyGrid occupancyGrid = reservationTable.getOccupancyGrid();
+
+			final int sourceIndex = occupancyGrid.findCell(sourceComponent.getPosition());
+			assert sourceIndex >= 0 : "Start vertex should never be null!";
+
+			final int targetIndex = occupancyGrid.findCell(targetComponent.getPosition());
+			assert targetIndex >= 0 : "Target vertex should never be null!";
+
+			// The robot occupies its source cell at the end of the previous tick
+			final long startTick = reservationTable.getCurrentTick() - 1;
+			final DistanceField distances = reservationTable.getDistanceFields().get(targetIndex);
+			expandedVertexCount = 0;
+
+			if (sourceIndex == targetIndex || distances.get(sourceIndex) == DistanceFields.UNREACHABLE) {
+				reservationTable.reserve(sourceComponent, new int[] { sourceIndex }, startTick);
+
+				return new ArrayList<>();
+			}
+
+			int[] cells = findCells(occupancyGrid, sourceComponent, sourceIndex, targetIndex, distances, startTick);
+
+			if (cells == null) {
+				// Wait for the other robots to make way and plan again after a while
+				cells = new int[1 + Math.min(1 << Math.min(failedSearchCount, 30), MAX_FAILED_SEARCH_WAIT)];
+				Arrays.fill(cells, sourceIndex);
+				failedSearchCount++;
+			} else {
+				failedSearchCount = 0;
+			}
+
+			reservationTable.reserve(sourceComponent, cells, startTick);
+
+			final List<Position> positions = new ArrayList<>(cells.length - 1);
+			final int resolution = occupancyGrid.getResolution();
+
+			for (int step = 1; step < cells.length; step++) {
+				positions.add(new Position(occupancyGrid.getxIndex(cells[step]) * resolution,
+						occupancyGrid.getyIndex(cells[step]) * resolution));
+			}
+
+			return positions;
+		}
+	}
+
+	/**
+	 * State of the search, the robot being on a cell at the end of a step.
+	 */
+	private static class State implements Comparable<State> {
+
+		private final int cellIndex;
+
+		private final int step;
+
+		private final int estimatedLength;
+
+		private State(final int cellIndex, final int step, final int estimatedLength) {
+			this.cellIndex = cellIndex;
+			this.step = step;
+			this.estimatedLength = estimatedLength;
+		}
+
+		private long getKey() {
+			return ReservationFactoryPathFinder.getKey(cellIndex, step);
+		}
+
+		/**
+		 * Orders the states by estimated length of the path, and then prefers the
+		 * states closer to the target.
+		 */
+		@Override
+		public int compareTo(final State other) {
+			if (estimatedLength != other.estimatedLength) {
+				return Integer.compare(estimatedLength, other.estimatedLength);
+			}
+
+			if (step != other.step) {
+				return Integer.compare(other.step, step);
+			}
+
+			return Integer.compare(cellIndex, other.cellIndex);
+		}
+	}
+
+	/**
+	 * @return The cells of the path from the source cell to the target cell, one
+	 *         per step, or {@code null} if no path was found within the maximum
+	 *         delay.
+	 */
+	private int[] findCells(final OccupancyGrid occupancyGrid, final Component sourceComponent,
+			final int sourceIndex, final int targetIndex, final DistanceField distances, final long startTick) {
+		final Set<Integer> blockedCells = findUnplannedComponentCells(occupancyGrid, sourceComponent);
+
+		if (blockedCells.contains(targetIndex)) {
+			// A robot stopped on the target, for instance one waiting for a charging
+			// station, so wait for it to leave rather than searching every state
+			return null;
+		}
+
+		final int maxStep = distances.get(sourceIndex) + maxDelay;
+
+		// The path can only end once the other robots are done with the target cell
+		final int minTargetStep = (int) Math.min(maxStep + 1,
+				reservationTable.getLastReservedTick(targetIndex, startTick, sourceComponent) - startTick + 1);
+		final PriorityQueue<State> openStates = new PriorityQueue<>();
+		final Map<Long, Integer> predecessors = new HashMap<>();
+		final Set<Long> closedStates = new HashSet<>();
+
+		openStates.add(new State(sourceIndex, 0, Math.max(distances.get(sourceIndex), minTargetStep)));
+		predecessors.put(getKey(sourceIndex, 0), -1);
+
+		while (!openStates.isEmpty() && expandedVertexCount < MAX_EXPANDED_STATES) {
+			final State state = openStates.poll();
+
+			if (!closedStates.add(state.getKey())) {
+				continue;
+			}
+
+			expandedVertexCount++;
+
+			if (state.cellIndex == targetIndex && state.step >= minTargetStep) {
+				return toCells(predecessors, state);
+			}
+
+			if (state.step == maxStep) {
+				continue;
+			}
+
+			final int xIndex = occupancyGrid.getxIndex(state.cellIndex);
+			final int yIndex = occupancyGrid.getyIndex(state.cellIndex);
+
+			// Waiting is tried before moving to one of the neighbouring cells
+			for (int direction = -1; direction < DistanceFields.X_OFFSETS.length; direction++) {
+				final int succxIndex = direction < 0 ? xIndex : xIndex + DistanceFields.X_OFFSETS[direction];
+				final int succyIndex = direction < 0 ? yIndex : yIndex + DistanceFields.Y_OFFSETS[direction];
+
+				if (succxIndex < 0 || succxIndex >= occupancyGrid.getxSize() || succyIndex < 0
+						|| succyIndex >= occupancyGrid.getySize()) {
+					continue;
+				}
+
+				final int succIndex = occupancyGrid.getCellIndex(succxIndex, succyIndex);
+				final int succStep = state.step + 1;
+				final State succState = new State(succIndex, succStep,
+						Math.max(succStep + distances.get(succIndex), minTargetStep));
+
+				if (distances.get(succIndex) == DistanceFields.UNREACHABLE || succState.estimatedLength > maxStep
+						|| (direction >= 0 && !occupancyGrid.isFree(succxIndex, succyIndex))
+						|| blockedCells.contains(succIndex) || closedStates.contains(succState.getKey())
+						|| isReserved(succIndex, startTick + succStep, sourceComponent, succIndex != targetIndex)) {
+					continue;
+				}
+
+				predecessors.putIfAbsent(succState.getKey(), state.cellIndex);
+				openStates.add(succState);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * A robot on a cell at the end of a tick leaves it during the next tick, so the
+	 * cell must also be free for this one.
+	 *
+	 * A robot staying on the target cell is expected to leave it for its own next
+	 * target once there, so that the path goes to the target anyway, the robot
+	 * planning again if it is still there on arrival.
+	 */
+	private boolean isReserved(final int cellIndex, final long tick, final Component component,
+			final boolean includeParked) {
+		return reservationTable.isReserved(cellIndex, tick, component, includeParked)
+				|| reservationTable.isReserved(cellIndex, tick + 1, component, includeParked);
+	}
+
+	/**
+	 * Finds the cells of the mobile components that did not reserve their cells,
+	 * such as robots using another path finder, which are avoided during the whole
+	 * search.
+	 */
+	private Set<Integer> findUnplannedComponentCells(final OccupancyGrid occupancyGrid,
+			final Component sourceComponent) {
+		final Set<Integer> cells = new HashSet<>();
+
+		for (final Component component : reservationTable.getFactoryModel().getComponents()) {
+			if (component != sourceComponent && component.isMobile() && !reservationTable.hasPlan(component)) {
+				final int cellIndex = occupancyGrid.findCell(component.getPosition());
+
+				if (cellIndex >= 0) {
+					cells.add(cellIndex);
+				}
+			}
+		}
+
+		return cells;
+	}
+
+	/**
+	 * The step and the cell are mixed by an odd multiplier, which keeps the keys
+	 * distinct while spreading them over the buckets of the hash tables, the hash
+	 * of the plain concatenation being the step xor the cell.
+	 */
+	private static long getKey(final int cellIndex, final int step) {
+		return ((long) step << Integer.SIZE | cellIndex) * 0x9E3779B97F4A7C15L;
+	}
+
+	private static int[] toCells(final Map<Long, Integer> predecessors, final State targetState) {
+		final int[] cells = new int[targetState.step + 1];
+		cells[targetState.step] = targetState.cellIndex;
+
+		for (int step = targetState.step; step > 0; step--) {
+			cells[step - 1] = predecessors.get(getKey(cells[step], step));
+		}
+
+		return cells;
+	}
+}
@@ -0,0 +1,265 @@
+package model.path;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.Component;
+import model.Factory;
+import model.SimulationScheduler;
+
+/**
+ * Space-time reservation table shared by the cooperative path finders of the
+ * robots of a factory. A robot planning a path reserves each cell of the path
+ * for the ticks during which it occupies the cell, and the robots planning
+ * afterwards only use the cells that are free at the tick they reach them, so
+ * that the planned paths never conflict.
+ *
+ * A robot occupying a cell at the end of a tick reserves it for this tick and
+ * for the next one, during which it leaves the cell. Since robots behave one
+ * after the other during a tick, this prevents two robots from swapping their
+ * cells as well as a robot from entering a cell that another robot has not left
+ * yet.
+ *
+ * Once at the end of its path, a robot stays on its last cell until it plans
+ * again, so this cell remains reserved for all the following ticks.
+ *
+ * The ticks are those of the {@link SimulationScheduler} of the factory.
+ */
+public class ReservationTable implements Serializable {
+
+	private static final long serialVersionUID = -2839472164839204621L;
+
+
+	/**
+	 * Cells reserved by a robot from the tick at which it occupies the first one.
+	 */
+	private static class Plan {
+
+		private final int[] cells;
+
+		private final long startTick;
+
+		private Plan(final int[] cells, final long startTick) {
+			this.cells = cells;
+			this.startTick = startTick;
+		}
+
+		/**
+		 * @return The last tick for which a cell is reserved, after which the last
+		 *         cell remains reserved.
+		 */
+		private long getEndTick() {
+			return startTick + cells.length;
+		}
+
+		private int getLastCell() {
+			return cells[cells.length - 1];
+		}
+	}
+
+	private final RoutingGraph routingGraph;
+
+	private final DistanceFields distanceFields;
+
+	private transient Map<Long, Component> reservations;
+
+	private transient Map<Component, Plan> plans;
+
+	/**
+	 * Components staying on a cell after the end of their plan, indexed by cell.
+	 */
+	private transient Map<Integer, Component> parkedComponents;
+
+	public ReservationTable(final Factory factoryModel, final int resolution) {
+		this(new RoutingGraph(factoryModel, resolution));
+	}
+
+	/**
+	 * @param routingGraph The graph whose occupancy grid defines the cells of the
+	 *                     table, which can be shared with other path finders.
+	 */
+	public ReservationTable(final RoutingGraph routingGraph) {
+		this.routingGraph = routingGraph;
+		this.distanceFields = new DistanceFields(routingGraph);
+
+		initialize();
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		initialize();
+	}
+
+	private void initialize() {
+		reservations = new HashMap<>();
+		plans = new HashMap<>();
+		parkedComponents = new HashMap<>();
+	}
+
+	public RoutingGraph getRoutingGraph() {
+		return routingGraph;
+	}
+
+	public Factory getFactoryModel() {
+		return routingGraph.getFactoryModel();
+	}
+
+	public int getResolution() {
+		return routingGraph.getResolution();
+	}
+
+	OccupancyGrid getOccupancyGrid() {
+		return routingGraph.getOccupancyGrid();
+	}
+
+	/**
+	 * @return The tick being simulated, or 0 if the simulation is not started.
+	 */
+	public long getCurrentTick() {
+		final SimulationScheduler scheduler = getFactoryModel().getScheduler();
+
+		return scheduler == null ? 0 : scheduler.getTickCount();
+	}
+
+	private static long getKey(final int cellIndex, final long tick) {
+		return tick << Integer.SIZE | cellIndex;
+	}
+
+	/**
+	 * @return {@code true} if the cell is reserved for the given tick by another
+	 *         component than the given one.
+	 */
+	synchronized boolean isReserved(final int cellIndex, final long tick, final Component component) {
+		return isReserved(cellIndex, tick, component, true);
+	}
+
+	/**
+	 * @param includeParked Whether the components staying on the cell after the
+	 *                      end of their plan are taken into account.
+	 */
+	synchronized boolean isReserved(final int cellIndex, final long tick, final Component component,
+			final boolean includeParked) {
+		final Component reservingComponent = reservations.get(getKey(cellIndex, tick));
+
+		if (reservingComponent != null) {
+			return reservingComponent != component;
+		}
+
+		if (!includeParked) {
+			return false;
+		}
+
+		final Component parkedComponent = parkedComponents.get(cellIndex);
+
+		return parkedComponent != null && parkedComponent != component
+				&& tick > plans.get(parkedComponent).getEndTick();
+	}
+
+	/**
+	 * Finds the last tick for which the cell is reserved by another component than
+	 * the given one, not taking into account the components staying on the cell
+	 * after the end of their plan.
+	 *
+	 * @return The last reserved tick, or the tick preceding the given one if the
+	 *         cell is not reserved from the given tick on.
+	 */
+	synchronized long getLastReservedTick(final int cellIndex, final long tick, final Component component) {
+		for (long searchedTick = getLastEndTick() + 1; searchedTick >= tick; searchedTick--) {
+			if (isReserved(cellIndex, searchedTick, component, false)) {
+				return searchedTick;
+			}
+		}
+
+		return tick - 1;
+	}
+
+	private long getLastEndTick() {
+		long lastEndTick = Long.MIN_VALUE;
+
+		for (final Plan plan : plans.values()) {
+			lastEndTick = Math.max(lastEndTick, plan.getEndTick());
+		}
+
+		return lastEndTick;
+	}
+
+	/**
+	 * @return {@code true} if the component reserved cells, in which case the
+	 *         robots planning afterwards avoid it.
+	 */
+	synchronized boolean hasPlan(final Component component) {
+		return plans.containsKey(component);
+	}
+
+	/**
+	 * Replaces the reservations of a component with the cells of a path.
+	 *
+	 * @param cells     The cells occupied by the component at the end of the
+	 *                  ticks following the start tick, the first one being the
+	 *                  cell it occupies at the end of the start tick.
+	 * @param startTick The tick at the end of which the component occupies the
+	 *                  first cell.
+	 */
+	synchronized void reserve(final Component component, final int[] cells, final long startTick) {
+		release(component);
+
+		final Plan plan = new Plan(cells.clone(), startTick);
+
+		for (int step = 0; step < cells.length; step++) {
+			reservations.put(getKey(cells[step], startTick + step), component);
+			reservations.put(getKey(cells[step], startTick + step + 1), component);
+		}
+
+		plans.put(component, plan);
+		parkedComponents.put(plan.getLastCell(), component);
+	}
+
+	/**
+	 * Cancels the reservations of a component, for instance when it is removed
+	 * from the factory.
+	 */
+	public synchronized void release(final Component component) {
+		final Plan plan = plans.remove(component);
+
+		if (plan == null) {
+			return;
+		}
+
+		parkedComponents.remove(plan.getLastCell(), component);
+
+		for (int step = 0; step < plan.cells.length; step++) {
+			for (long tick = plan.startTick + step; tick <= plan.startTick + step + 1; tick++) {
+				final long key = getKey(plan.cells[step], tick);
+
+				if (reservations.get(key) == component) {
+					reservations.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of reserved cells and ticks.
+	 */
+	public synchronized int size() {
+		return reservations.size();
+	}
+
+	/**
+	 * @return The distance fields of the cells of the table, which the
+	 *         cooperative searches use as their heuristic.
+	 */
+	public DistanceFields getDistanceFields() {
+		return distanceFields;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + " [plans=" + plans.size() + ", reservations=" + reservations.size()
+				+ "]";
+	}
+}
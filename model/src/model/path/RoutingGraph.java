@@ -0,0 +1,137 @@
+package model.path;
+
+import java.io.Serializable;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.jgrapht.alg.util.Pair;
+import org.jgrapht.opt.graph.sparse.IncomingEdgesSupport;
+import org.jgrapht.opt.graph.sparse.SparseIntDirectedGraph;
+
+import model.Factory;
+
+/**
+ * Routing graph of a factory that can be shared by the path finders of all its
+ * robots. The graph is a compressed sparse graph whose vertexes are the cell
+ * indexes of an {@link OccupancyGrid}, with edges leading from each cell to its
+ * free neighbours.
+ *
+ * The graph is never modified once built, so that any number of searches can
+ * run on it concurrently without locking, each search allocating its own state.
+ * When obstacles change, a new graph is built from the updated occupancy grid
+ * and replaces the previous one for the searches started afterwards.
+ */
+public class RoutingGraph implements Serializable {
+
+	private static final long serialVersionUID = -3206517447914935641L;
+
+	private static final int[] X_OFFSETS = { 0, 1, 0, -1 };
+
+	private static final int[] Y_OFFSETS = { -1, 0, 1, 0 };
+
+	private final Factory factoryModel;
+
+	private final int resolution;
+
+	private final boolean incomingEdges;
+
+	private transient OccupancyGridTracker occupancyGridTracker;
+
+	private transient volatile SparseIntDirectedGraph graph;
+
+	public RoutingGraph(final Factory factoryModel, final int resolution) {
+		this(factoryModel, resolution, false);
+	}
+
+	/**
+	 * @param incomingEdges Whether the incoming edges of the vertexes are indexed,
+	 *                      which is needed by the searches walking the graph
+	 *                      backward from their target.
+	 */
+	public RoutingGraph(final Factory factoryModel, final int resolution, final boolean incomingEdges) {
+		this.factoryModel = factoryModel;
+		this.resolution = resolution;
+		this.incomingEdges = incomingEdges;
+		this.occupancyGridTracker = null;
+		this.graph = null;
+	}
+
+	public Factory getFactoryModel() {
+		return factoryModel;
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	public boolean hasIncomingEdges() {
+		return incomingEdges;
+	}
+
+	/**
+	 * @return The occupancy grid the graph was built from. Only its geometry
+	 *         should be relied upon, since its cells are updated when obstacles
+	 *         change.
+	 */
+	protected OccupancyGrid getOccupancyGrid() {
+		getGraph();
+
+		return occupancyGridTracker.getOccupancyGrid();
+	}
+
+	/**
+	 * @return The graph matching the current obstacles of the factory, which is
+	 *         built on the first call and then each time the obstacles changed.
+	 */
+	public SparseIntDirectedGraph getGraph() {
+		final SparseIntDirectedGraph currentGraph = graph;
+
+		if (currentGraph != null && !occupancyGridTracker.hasChanges()) {
+			return currentGraph;
+		}
+
+		return updateGraph();
+	}
+
+	private synchronized SparseIntDirectedGraph updateGraph() {
+		if (occupancyGridTracker == null) {
+			occupancyGridTracker = new OccupancyGridTracker(getFactoryModel(), getResolution());
+		} else if (occupancyGridTracker.update().length == 0 && graph != null) {
+			return graph;
+		}
+
+		final OccupancyGrid occupancyGrid = occupancyGridTracker.getOccupancyGrid();
+		final int cellCount = occupancyGrid.getxSize() * occupancyGrid.getySize();
+		final int edgeCount = (int) IntStream.range(0, cellCount)
+				.flatMap(cellIndex -> successors(occupancyGrid, cellIndex)).count();
+
+		graph = new SparseIntDirectedGraph(cellCount, edgeCount,
+				() -> IntStream.range(0, cellCount).boxed().flatMap(cellIndex -> edgesFrom(occupancyGrid, cellIndex)),
+				incomingEdges ? IncomingEdgesSupport.FULL_INCOMING_EDGES : IncomingEdgesSupport.NO_INCOMING_EDGES);
+
+		return graph;
+	}
+
+	/**
+	 * Computes the free cells that can be reached in one step from the given cell,
+	 * in the same directions as {@link AbstractFactoryPathFinder}.
+	 */
+	private static IntStream successors(final OccupancyGrid occupancyGrid, final int cellIndex) {
+		final int xIndex = occupancyGrid.getxIndex(cellIndex);
+		final int yIndex = occupancyGrid.getyIndex(cellIndex);
+
+		return IntStream.range(0, X_OFFSETS.length).filter(direction -> {
+			final int succxIndex = xIndex + X_OFFSETS[direction];
+			final int succyIndex = yIndex + Y_OFFSETS[direction];
+
+			return succxIndex >= 0 && succxIndex < occupancyGrid.getxSize() && succyIndex >= 0
+					&& succyIndex < occupancyGrid.getySize() && occupancyGrid.isFree(succxIndex, succyIndex);
+		}).map(direction -> occupancyGrid.getCellIndex(xIndex + X_OFFSETS[direction],
+				yIndex + Y_OFFSETS[direction]));
+	}
+
+	private static Stream<Pair<Integer, Integer>> edgesFrom(final OccupancyGrid occupancyGrid,
+			final Integer cellIndex) {
+		return successors(occupancyGrid, cellIndex).mapToObj(succIndex -> Pair.of(cellIndex, succIndex));
+	}
+}
@@ -0,0 +1,100 @@
+package model.path;
+
+import org.jgrapht.Graph;
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.interfaces.AStarAdmissibleHeuristic;
+import org.jgrapht.alg.shortestpath.AStarShortestPath;
+import org.jgrapht.alg.shortestpath.BidirectionalAStarShortestPath;
+
+import model.Factory;
+
+/**
+ * Path finder routing on the same sparse graph as
+ * {@link SparseIntDijkstraFactoryPathFinder}, but with an A* search guided by
+ * the Manhattan distance between cells. Since robots only move between adjacent
+ * cells at unit cost, this distance never overestimates the length of a path
+ * and the search only expands the cells lying towards the target.
+ *
+ * In bidirectional mode, the search is run from both ends of the path at the
+ * same time, which further reduces the expanded cells when the path has to go
+ * around obstacles.
+ */
+public class SparseIntAStarFactoryPathFinder extends SparseIntDijkstraFactoryPathFinder {
+
+	private static final long serialVersionUID = -4705239412648129754L;
+
+	private final boolean bidirectional;
+
+	protected SparseIntAStarFactoryPathFinder() {
+		this(new Factory(), 0, false);
+	}
+
+	public SparseIntAStarFactoryPathFinder(final Factory factoryModel, final int resolution) {
+		this(factoryModel, resolution, false);
+	}
+
+	public SparseIntAStarFactoryPathFinder(final Factory factoryModel, final int resolution,
+			final boolean bidirectional) {
+		this(new RoutingGraph(factoryModel, resolution, bidirectional), bidirectional);
+	}
+
+	public SparseIntAStarFactoryPathFinder(final RoutingGraph routingGraph) {
+		this(routingGraph, false);
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the search is bidirectional but the
+	 *                                  incoming edges of the routing graph are not
+	 *                                  indexed.
+	 */
+	public SparseIntAStarFactoryPathFinder(final RoutingGraph routingGraph, final boolean bidirectional) {
+		super(routingGraph);
+
+		if (bidirectional && !routingGraph.hasIncomingEdges()) {
+			throw new IllegalArgumentException("A bidirectional search needs the incoming edges of the graph.");
+		}
+
+		this.bidirectional = bidirectional;
+	}
+
+	public boolean isBidirectional() {
+		return bidirectional;
+	}
+
+	@Override
+	protected GraphPath<Integer, Integer> findShortestPath(final Graph<Integer, Integer> graph, final int sourceIndex,
+			final int targetIndex) {
+		final AStarAdmissibleHeuristic<Integer> heuristic = new ManhattanDistanceHeuristic(getOccupancyGrid());
+
+		if (isBidirectional()) {
+			return new BidirectionalAStarShortestPath<>(graph, heuristic).getPath(sourceIndex, targetIndex);
+		}
+
+		return new AStarShortestPath<>(graph, heuristic).getPath(sourceIndex, targetIndex);
+	}
+
+	private static class ManhattanDistanceHeuristic implements AStarAdmissibleHeuristic<Integer> {
+
+		private final OccupancyGrid occupancyGrid;
+
+		private ManhattanDistanceHeuristic(final OccupancyGrid occupancyGrid) {
+			this.occupancyGrid = occupancyGrid;
+		}
+
+		@Override
+		public double getCostEstimate(final Integer sourceCellIndex, final Integer targetCellIndex) {
+			return Math.abs(occupancyGrid.getxIndex(sourceCellIndex) - occupancyGrid.getxIndex(targetCellIndex))
+					+ Math.abs(occupancyGrid.getyIndex(sourceCellIndex) - occupancyGrid.getyIndex(targetCellIndex));
+		}
+
+		/**
+		 * Adjacent cells are at a Manhattan distance of 1, which is also the weight of
+		 * the edges between them. This avoids checking the heuristic against every
+		 * edge of the graph on each bidirectional search.
+		 */
+		@Override
+		public <E> boolean isConsistent(final Graph<Integer, E> graph) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package model.path;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jgrapht.Graph;
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.shortestpath.IntVertexDijkstraShortestPath;
+
+import model.Component;
+import model.Factory;
+import model.Position;
+
+/**
+ * Path finder routing on the compressed sparse graph of a {@link RoutingGraph},
+ * whose vertexes are the cell indexes of an {@link OccupancyGrid}. Unlike the
+ * other path finders, no object is allocated per vertex or per edge of the
+ * graph, and the shortest path search does not use any hash table.
+ *
+ * The routing graph can be shared by the path finders of all the robots of a
+ * factory, each path finder then only holding the state of its last search.
+ */
+public class SparseIntDijkstraFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = 2519360402416935327L;
+
+	private final RoutingGraph routingGraph;
+
+	private transient int expandedVertexCount;
+
+	protected SparseIntDijkstraFactoryPathFinder() {
+		this(new Factory(), 0);
+	}
+
+	public SparseIntDijkstraFactoryPathFinder(final Factory factoryModel, final int resolution) {
+		this(new RoutingGraph(factoryModel, resolution));
+	}
+
+	public SparseIntDijkstraFactoryPathFinder(final RoutingGraph routingGraph) {
+		this.routingGraph = routingGraph;
+	}
+
+	public RoutingGraph getRoutingGraph() {
+		return routingGraph;
+	}
+
+	public Factory getFactoryModel() {
+		return routingGraph.getFactoryModel();
+	}
+
+	public int getResolution() {
+		return routingGraph.getResolution();
+	}
+
+	protected OccupancyGrid getOccupancyGrid() {
+		return routingGraph.getOccupancyGrid();
+	}
+
+	@Override
+	public int getExpandedVertexCount() {
+		return expandedVertexCount;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent, final Component targetComponent) {
+		final Graph<Integer, Integer> graph = routingGraph.getGraph();
+		final OccupancyGrid occupancyGrid = getOccupancyGrid();
+		final int resolution = getResolution();
+
+		final int sourceIndex = occupancyGrid.findCell(sourceComponent.getPosition());
+		assert sourceIndex >= 0 : "Start vertex should never be null!";
+
+		final int targetIndex = occupancyGrid.findCell(targetComponent.getPosition());
+		assert targetIndex >= 0 : "Target vertex should never be null!";
+
+		final ExpansionCountingGraph<Integer, Integer> countingGraph = new ExpansionCountingGraph<>(graph);
+		final GraphPath<Integer, Integer> shortestPath = findShortestPath(countingGraph, sourceIndex, targetIndex);
+		expandedVertexCount = countingGraph.getExpandedVertexCount();
+		final List<Position> shortestPathPositions = new ArrayList<>();
+
+		if (shortestPath != null) {
+			for (final Integer cellIndex : shortestPath.getVertexList()) {
+				if (cellIndex != sourceIndex) {
+					shortestPathPositions.add(new Position(occupancyGrid.getxIndex(cellIndex) * resolution,
+							occupancyGrid.getyIndex(cellIndex) * resolution));
+				}
+			}
+		}
+
+		return shortestPathPositions;
+	}
+
+	protected GraphPath<Integer, Integer> findShortestPath(final Graph<Integer, Integer> graph, final int sourceIndex,
+			final int targetIndex) {
+		return IntVertexDijkstraShortestPath.findPathBetween(graph, sourceIndex, targetIndex);
+	}
+}
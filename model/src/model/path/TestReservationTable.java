@@ -0,0 +1,140 @@
+package model.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.Battery;
+import model.ChargingStation;
+import model.Component;
+import model.Factory;
+import model.Position;
+import model.Robot;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+class TestReservationTable {
+
+	private static final int RESOLUTION = 5;
+
+	private final Factory factory;
+
+	private final ReservationTable reservationTable;
+
+	private final Robot robot1;
+
+	private final Robot robot2;
+
+	public TestReservationTable() {
+		factory = new Factory(50, 50, "Reservation Test Factory");
+		robot1 = new Robot(factory, null, new CircularShape(0, 20, 2), new Battery(10), "Robot 1");
+		robot2 = new Robot(factory, null, new CircularShape(20, 0, 2), new Battery(10), "Robot 2");
+		reservationTable = new ReservationTable(factory, RESOLUTION);
+	}
+
+	@Test
+	void testReserveBlocksOtherComponents() {
+		final int[] cells = { 0, 1, 2 };
+
+		reservationTable.reserve(robot1, cells, 0);
+
+		// A cell is reserved at the end of the tick the robot reaches it and during
+		// the next one, while the robot leaves it
+		assertTrue(reservationTable.isReserved(1, 1, robot2));
+		assertTrue(reservationTable.isReserved(1, 2, robot2));
+		assertFalse(reservationTable.isReserved(1, 3, robot2));
+		assertFalse(reservationTable.isReserved(1, 1, robot1));
+		assertEquals(6, reservationTable.size());
+
+		// The robot stays on its last cell after the end of its plan
+		assertTrue(reservationTable.isReserved(2, 100, robot2));
+		assertFalse(reservationTable.isReserved(2, 100, robot2, false));
+		assertEquals(3, reservationTable.getLastReservedTick(2, 0, robot2));
+		assertEquals(-1, reservationTable.getLastReservedTick(5, 0, robot2));
+	}
+
+	@Test
+	void testReserveReplacesPlan() {
+		reservationTable.reserve(robot1, new int[] { 0, 1, 2 }, 0);
+		reservationTable.reserve(robot1, new int[] { 0, 10 }, 0);
+
+		assertFalse(reservationTable.isReserved(1, 1, robot2));
+		assertFalse(reservationTable.isReserved(2, 100, robot2));
+		assertTrue(reservationTable.isReserved(10, 100, robot2));
+		assertEquals(4, reservationTable.size());
+	}
+
+	@Test
+	void testReleaseKeepsOtherPlans() {
+		reservationTable.reserve(robot1, new int[] { 0, 1, 2 }, 0);
+		reservationTable.reserve(robot2, new int[] { 2, 3 }, 5);
+
+		reservationTable.release(robot1);
+
+		assertFalse(reservationTable.hasPlan(robot1));
+		assertFalse(reservationTable.isReserved(1, 1, robot2));
+		assertFalse(reservationTable.isReserved(0, 0, robot2));
+		assertTrue(reservationTable.isReserved(2, 5, robot1));
+		assertTrue(reservationTable.isReserved(3, 100, robot1));
+		assertEquals(4, reservationTable.size());
+	}
+
+	@Test
+	void testCooperativePathsDoNotConflict() {
+		final Component target1 = new ChargingStation(factory, new RectangularShape(45, 20, 5, 5), "Target 1");
+		final Component target2 = new ChargingStation(factory, new RectangularShape(20, 45, 5, 5), "Target 2");
+		final ReservationFactoryPathFinder pathFinder1 = new ReservationFactoryPathFinder(reservationTable);
+		final ReservationFactoryPathFinder pathFinder2 = new ReservationFactoryPathFinder(reservationTable);
+
+		final List<Position> path1 = pathFinder1.findPath(robot1, target1);
+		final List<Position> path2 = pathFinder2.findPath(robot2, target2);
+
+		assertEquals(target1.getPosition().toString(), path1.get(path1.size() - 1).toString());
+		assertEquals(target2.getPosition().toString(), path2.get(path2.size() - 1).toString());
+
+		// The robots never occupy the same cell, nor enter the cell the other one is
+		// leaving
+		for (int step = 0; step < Math.max(path1.size(), path2.size()); step++) {
+			final String position1 = getPosition(path1, robot1, step);
+			final String position2 = getPosition(path2, robot2, step);
+
+			assertNotEquals(position1, position2);
+			assertNotEquals(position1, getPosition(path2, robot2, step - 1));
+			assertNotEquals(position2, getPosition(path1, robot1, step - 1));
+		}
+
+		pathFinder1.releasePath(robot1);
+
+		assertFalse(reservationTable.hasPlan(robot1));
+		assertTrue(reservationTable.hasPlan(robot2));
+	}
+
+	@Test
+	void testCooperativePathsAreNotCached() {
+		try {
+			new CachingFactoryPathFinder(new ReservationFactoryPathFinder(reservationTable),
+					new PathCache(factory, RESOLUTION));
+			fail("The paths of a cooperative path finder were cached.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * @return The position of the robot at the end of the given tick when
+	 *         following the path.
+	 */
+	private static String getPosition(final List<Position> path, final Component component, final int step) {
+		if (step < 0) {
+			return component.getPosition().toString();
+		}
+
+		return path.get(Math.min(step, path.size() - 1)).toString();
+	}
+}
@@ -0,0 +1,200 @@
+package model.path;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jgrapht.Graph;
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.tour.ChristofidesThreeHalvesApproxMetricTSP;
+import org.jgrapht.alg.tour.TwoOptHeuristicTSP;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
+
+import model.Component;
+
+/**
+ * Orders the target components of a robot so that the closed tour visiting them
+ * is as short as possible, the robot visiting its targets over and over. The
+ * lengths of the shortest paths between the targets are read from the distance
+ * fields of their cells, and the tour is built with the Christofides algorithm
+ * and then improved with 2-opt moves, since these lengths form a metric.
+ *
+ * The tour is computed again only when the targets or the obstacle epoch of the
+ * factory change, and is kept in the order of insertion when it is not
+ * shorter, or when a target cannot be reached from another one.
+ */
+public class TourOptimizer {
+
+	/**
+	 * Minimum number of targets with more than one closed tour, all the tours of
+	 * three targets having the same length.
+	 */
+	private static final int MIN_TARGET_COUNT = 4;
+
+	private final DistanceFields distanceFields;
+
+	private List<Component> targets;
+
+	private List<Component> tour;
+
+	private long epoch;
+
+	private long insertionOrderLength;
+
+	private long tourLength;
+
+	private long optimizationCount;
+
+	private long lastOptimizationDuration;
+
+	public TourOptimizer(final DistanceFields distanceFields) {
+		this.distanceFields = distanceFields;
+		this.epoch = -1;
+	}
+
+	public DistanceFields getDistanceFields() {
+		return distanceFields;
+	}
+
+	/**
+	 * @return The ordered targets, the same list being returned as long as the
+	 *         targets and the obstacles do not change. The list must not be
+	 *         modified.
+	 */
+	public List<Component> getTour(final List<Component> targetComponents) {
+		final long currentEpoch = distanceFields.getFactoryModel().getObstacleEpoch();
+
+		if (tour == null || currentEpoch != epoch || !targetComponents.equals(targets)) {
+			final long startTime = System.nanoTime();
+			targets = new ArrayList<>(targetComponents);
+			epoch = currentEpoch;
+			tour = optimize(targets);
+			optimizationCount++;
+			lastOptimizationDuration = System.nanoTime() - startTime;
+		}
+
+		return tour;
+	}
+
+	/**
+	 * @return The length of the closed tour visiting the last targets in their
+	 *         order of insertion.
+	 */
+	public long getInsertionOrderLength() {
+		return insertionOrderLength;
+	}
+
+	/**
+	 * @return The length of the last optimized tour.
+	 */
+	public long getTourLength() {
+		return tourLength;
+	}
+
+	/**
+	 * @return The distance saved at each round of the last targets by following
+	 *         the optimized tour instead of the order of insertion.
+	 */
+	public long getSavedDistance() {
+		return insertionOrderLength - tourLength;
+	}
+
+	public long getOptimizationCount() {
+		return optimizationCount;
+	}
+
+	/**
+	 * @return The duration of the last optimization in nanoseconds.
+	 */
+	public long getLastOptimizationDuration() {
+		return lastOptimizationDuration;
+	}
+
+	private List<Component> optimize(final List<Component> targetComponents) {
+		final long[][] distances = computeDistances(targetComponents);
+
+		if (distances == null) {
+			insertionOrderLength = 0;
+			tourLength = 0;
+
+			return targetComponents;
+		}
+
+		final int targetCount = targetComponents.size();
+		insertionOrderLength = 0;
+
+		for (int index = 0; index < targetCount; index++) {
+			insertionOrderLength += distances[index][(index + 1) % targetCount];
+		}
+
+		tourLength = insertionOrderLength;
+
+		if (targetCount < MIN_TARGET_COUNT) {
+			return targetComponents;
+		}
+
+		final Graph<Integer, DefaultWeightedEdge> graph = new SimpleWeightedGraph<>(DefaultWeightedEdge.class);
+
+		for (int index = 0; index < targetCount; index++) {
+			graph.addVertex(index);
+		}
+
+		for (int index = 0; index < targetCount; index++) {
+			for (int otherIndex = index + 1; otherIndex < targetCount; otherIndex++) {
+				graph.setEdgeWeight(graph.addEdge(index, otherIndex), distances[index][otherIndex]);
+			}
+		}
+
+		final GraphPath<Integer, DefaultWeightedEdge> path = new TwoOptHeuristicTSP<>(
+				new ChristofidesThreeHalvesApproxMetricTSP<Integer, DefaultWeightedEdge>()).getTour(graph);
+
+		if (path.getWeight() >= insertionOrderLength) {
+			return targetComponents;
+		}
+
+		// The vertexes of the closed tour start and end with the same target
+		final List<Integer> vertexes = path.getVertexList();
+		final List<Component> orderedTargets = new ArrayList<>(targetCount);
+
+		for (int index = 0; index < targetCount; index++) {
+			orderedTargets.add(targetComponents.get(vertexes.get(index)));
+		}
+
+		tourLength = Math.round(path.getWeight());
+
+		return orderedTargets;
+	}
+
+	/**
+	 * @return The lengths of the shortest paths between the cells of the targets,
+	 *         or {@code null} if a target cannot be reached from another one.
+	 */
+	private long[][] computeDistances(final List<Component> targetComponents) {
+		final int targetCount = targetComponents.size();
+		final int[] cells = new int[targetCount];
+
+		for (int index = 0; index < targetCount; index++) {
+			cells[index] = distanceFields.findCell(targetComponents.get(index).getPosition());
+
+			if (cells[index] < 0) {
+				return null;
+			}
+		}
+
+		final long[][] distances = new long[targetCount][targetCount];
+
+		for (int index = 0; index < targetCount; index++) {
+			final DistanceField targetDistances = distanceFields.get(cells[index]);
+
+			for (int otherIndex = 0; otherIndex < targetCount; otherIndex++) {
+				if (targetDistances.get(cells[otherIndex]) == DistanceFields.UNREACHABLE) {
+					return null;
+				}
+
+				distances[otherIndex][index] = targetDistances.get(cells[otherIndex]);
+			}
+		}
+
+		return distances;
+	}
+}
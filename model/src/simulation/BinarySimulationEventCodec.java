@@ -0,0 +1,139 @@
+package simulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.FactoryFormat;
+
+/**
+ * Compact binary codec for the simulation events. Each message starts with a
+ * header made of a format version, a one byte type tag and the sequence of the
+ * event.
+ *
+ * A delta then holds the number of component states followed by, for each of
+ * them, the index of the component and its coordinates as ints, and a byte
+ * telling whether it is an open door, a closed door or not a door. A keyframe
+ * holds the factory written in the {@link FactoryFormat}, one record per
+ * component with a one byte type tag, so that reading a keyframe received from
+ * the network never instantiates classes named by the message.
+ */
+public class BinarySimulationEventCodec implements SimulationEventCodec {
+
+	public static final String NAME = "binary";
+
+	private static final byte FORMAT_VERSION = 2;
+
+	private static final byte KEYFRAME_TAG = 0;
+
+	private static final byte DELTA_TAG = 1;
+
+	private static final byte NOT_A_DOOR = -1;
+
+	private static final byte CLOSED_DOOR = 0;
+
+	private static final byte OPEN_DOOR = 1;
+
+	private static final int HEADER_SIZE = Byte.BYTES + Byte.BYTES + Long.BYTES;
+
+	private static final int COMPONENT_STATE_SIZE = 3 * Integer.BYTES + Byte.BYTES;
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] encode(final SimulationEvent event) throws IOException {
+		if (event.isKeyframe()) {
+			return encodeKeyframe(event);
+		}
+
+		final List<ComponentState> componentStates = event.getComponentStates();
+		final ByteBuffer buffer = ByteBuffer
+				.allocate(HEADER_SIZE + Integer.BYTES + componentStates.size() * COMPONENT_STATE_SIZE);
+		writeHeader(buffer, DELTA_TAG, event.getSequence());
+		buffer.putInt(componentStates.size());
+
+		for (final ComponentState componentState : componentStates) {
+			buffer.putInt(componentState.getIndex());
+			buffer.putInt(componentState.getxCoordinate());
+			buffer.putInt(componentState.getyCoordinate());
+
+			final Boolean open = componentState.getOpen();
+			buffer.put(open == null ? NOT_A_DOOR : open ? OPEN_DOOR : CLOSED_DOOR);
+		}
+
+		return buffer.array();
+	}
+
+	private byte[] encodeKeyframe(final SimulationEvent event) throws IOException {
+		final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		writeHeader(header, KEYFRAME_TAG, event.getSequence());
+		byteStream.write(header.array());
+		FactoryFormat.write(event.getFactory(), byteStream);
+
+		return byteStream.toByteArray();
+	}
+
+	private static void writeHeader(final ByteBuffer buffer, final byte tag, final long sequence) {
+		buffer.put(FORMAT_VERSION);
+		buffer.put(tag);
+		buffer.putLong(sequence);
+	}
+
+	@Override
+	public SimulationEvent decode(final byte[] data) throws IOException {
+		try {
+			final ByteBuffer buffer = ByteBuffer.wrap(data);
+			final byte version = buffer.get();
+
+			if (version != FORMAT_VERSION) {
+				throw new StreamCorruptedException("Unsupported simulation event format version: " + version);
+			}
+
+			final byte tag = buffer.get();
+			final long sequence = buffer.getLong();
+
+			switch (tag) {
+			case KEYFRAME_TAG:
+				return SimulationEvent.keyframe(sequence,
+						FactoryFormat.read(new ByteArrayInputStream(data, buffer.position(), buffer.remaining())));
+			case DELTA_TAG:
+				return SimulationEvent.delta(sequence, decodeComponentStates(buffer));
+			default:
+				throw new StreamCorruptedException("Unknown simulation event type tag: " + tag);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated simulation event of " + data.length + " bytes");
+		}
+	}
+
+	private static List<ComponentState> decodeComponentStates(final ByteBuffer buffer) throws IOException {
+		final int count = buffer.getInt();
+
+		if (count < 0 || count > buffer.remaining() / COMPONENT_STATE_SIZE) {
+			throw new StreamCorruptedException("Invalid number of component states: " + count);
+		}
+
+		final List<ComponentState> componentStates = new ArrayList<>(count);
+
+		for (int stateIndex = 0; stateIndex < count; stateIndex++) {
+			final int index = buffer.getInt();
+			final int xCoordinate = buffer.getInt();
+			final int yCoordinate = buffer.getInt();
+			final byte open = buffer.get();
+
+			componentStates.add(
+					new ComponentState(index, xCoordinate, yCoordinate, open == NOT_A_DOOR ? null : open == OPEN_DOOR));
+		}
+
+		return componentStates;
+	}
+}
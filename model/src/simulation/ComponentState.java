@@ -0,0 +1,105 @@
+package simulation;
+
+import model.Component;
+import model.Door;
+import model.Factory;
+
+/**
+ * State of a component that changed during a simulation. The component is
+ * identified by its index in the components of the factory, which is the same
+ * in all the copies of a factory as long as no component is added or removed.
+ */
+public final class ComponentState {
+
+	private int index;
+
+	private int xCoordinate;
+
+	private int yCoordinate;
+
+	/**
+	 * Whether the component is an open door, or {@code null} if it is not a door.
+	 */
+	private Boolean open;
+
+	public ComponentState() {
+		this(0, 0, 0, null);
+	}
+
+	public ComponentState(final int index, final int xCoordinate, final int yCoordinate, final Boolean open) {
+		this.index = index;
+		this.xCoordinate = xCoordinate;
+		this.yCoordinate = yCoordinate;
+		this.open = open;
+	}
+
+	public static ComponentState of(final int index, final Component component) {
+		final Boolean open = component instanceof Door ? ((Door) component).isOpen() : null;
+
+		return new ComponentState(index, component.getxCoordinate(), component.getyCoordinate(), open);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(final int index) {
+		this.index = index;
+	}
+
+	public int getxCoordinate() {
+		return xCoordinate;
+	}
+
+	public void setxCoordinate(final int xCoordinate) {
+		this.xCoordinate = xCoordinate;
+	}
+
+	public int getyCoordinate() {
+		return yCoordinate;
+	}
+
+	public void setyCoordinate(final int yCoordinate) {
+		this.yCoordinate = yCoordinate;
+	}
+
+	public Boolean getOpen() {
+		return open;
+	}
+
+	public void setOpen(final Boolean open) {
+		this.open = open;
+	}
+
+	/**
+	 * Applies this state to the matching component of the given factory.
+	 *
+	 * @return {@code false} if the factory has no component at this index.
+	 */
+	public boolean applyTo(final Factory factory) {
+		if (index < 0 || index >= factory.getComponents().size()) {
+			return false;
+		}
+
+		final Component component = factory.getComponents().get(index);
+		factory.setComponentPosition(component, xCoordinate, yCoordinate);
+
+		if (open != null && component instanceof Door) {
+			final Door door = (Door) component;
+
+			if (open) {
+				door.open();
+			} else {
+				door.close();
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [index=" + index + ", xCoordinate=" + xCoordinate + ", yCoordinate="
+				+ yCoordinate + ", open=" + open + "]";
+	}
+}
@@ -0,0 +1,85 @@
+package simulation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+
+import fr.tp.inf112.projects.canvas.model.impl.BasicVertex;
+import model.Component;
+import model.shapes.PositionedShape;
+
+/**
+ * Codec writing the simulation events as JSON, the classes of the components
+ * being written along with them so that the factory can be read back.
+ */
+public class JsonSimulationEventCodec implements SimulationEventCodec {
+
+	public static final String NAME = "json";
+
+	private final ObjectMapper objectMapper;
+
+	public JsonSimulationEventCodec() {
+		this(createObjectMapper());
+	}
+
+	public JsonSimulationEventCodec(final ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	@JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.ANY)
+	abstract static class BasicVertexMixin {
+		@JsonCreator
+		public BasicVertexMixin(@JsonProperty("xCoordinate") int xCoordinate,
+				@JsonProperty("yCoordinate") int yCoordinate) {
+		}
+
+		@JsonProperty("xCoordinate")
+		abstract int getxCoordinate();
+
+		@JsonProperty("yCoordinate")
+		abstract int getyCoordinate();
+	}
+
+	/**
+	 * @return A mapper able to write and read back factories, only allowing the
+	 *         classes of the model to be instantiated from the JSON.
+	 */
+	public static ObjectMapper createObjectMapper() {
+		final ObjectMapper mapper = new ObjectMapper();
+
+		PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+				.allowIfSubType(PositionedShape.class.getPackageName()).allowIfSubType(Component.class.getPackageName())
+				.allowIfSubType(BasicVertex.class.getPackageName()).allowIfSubType(ArrayList.class.getName())
+				.allowIfSubType(LinkedHashSet.class.getName()).build();
+
+		mapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL);
+		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+		mapper.addMixIn(BasicVertex.class, BasicVertexMixin.class);
+
+		return mapper;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] encode(final SimulationEvent event) throws IOException {
+		return objectMapper.writeValueAsBytes(event);
+	}
+
+	@Override
+	public SimulationEvent decode(final byte[] data) throws IOException {
+		return objectMapper.readValue(data, SimulationEvent.class);
+	}
+}
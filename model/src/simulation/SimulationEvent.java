@@ -0,0 +1,96 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import model.Factory;
+
+/**
+ * Event published on the topic of a simulated factory. A keyframe carries the
+ * whole factory, while a delta only carries the states of the components that
+ * changed since the previous event, and can only be applied on top of the
+ * keyframe and deltas that precede it.
+ */
+public final class SimulationEvent {
+
+	public enum Type {
+		KEYFRAME, DELTA
+	}
+
+	private Type type;
+
+	/**
+	 * Number of the event, incremented for each event of a simulation so that
+	 * missed events can be detected.
+	 */
+	private long sequence;
+
+	private Factory factory;
+
+	private List<ComponentState> componentStates;
+
+	public SimulationEvent() {
+		this(Type.DELTA, 0, null, new ArrayList<>());
+	}
+
+	private SimulationEvent(final Type type, final long sequence, final Factory factory,
+			final List<ComponentState> componentStates) {
+		this.type = type;
+		this.sequence = sequence;
+		this.factory = factory;
+		this.componentStates = componentStates;
+	}
+
+	public static SimulationEvent keyframe(final long sequence, final Factory factory) {
+		return new SimulationEvent(Type.KEYFRAME, sequence, factory, new ArrayList<>());
+	}
+
+	public static SimulationEvent delta(final long sequence, final List<ComponentState> componentStates) {
+		return new SimulationEvent(Type.DELTA, sequence, null, new ArrayList<>(componentStates));
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(final Type type) {
+		this.type = type;
+	}
+
+	@JsonIgnore
+	public boolean isKeyframe() {
+		return type == Type.KEYFRAME;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(final long sequence) {
+		this.sequence = sequence;
+	}
+
+	public Factory getFactory() {
+		return factory;
+	}
+
+	public void setFactory(final Factory factory) {
+		this.factory = factory;
+	}
+
+	public List<ComponentState> getComponentStates() {
+		return componentStates;
+	}
+
+	public void setComponentStates(final List<ComponentState> componentStates) {
+		this.componentStates = componentStates;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [type=" + type + ", sequence=" + sequence + ", componentStates="
+				+ componentStates.size() + "]";
+	}
+}
@@ -0,0 +1,20 @@
+package simulation;
+
+import java.io.IOException;
+
+/**
+ * Converts the simulation events published on the topic of a simulated factory
+ * to and from the bytes of the Kafka messages. The producer and the consumers
+ * of a topic must use the same codec.
+ */
+public interface SimulationEventCodec {
+
+	/**
+	 * @return The name under which the codec is selected in the configuration.
+	 */
+	String getName();
+
+	byte[] encode(SimulationEvent event) throws IOException;
+
+	SimulationEvent decode(byte[] data) throws IOException;
+}
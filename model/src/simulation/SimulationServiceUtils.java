@@ -2,6 +2,7 @@ package simulation;
 
 import java.util.Properties;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import model.Factory;
 
@@ -11,6 +12,13 @@ public class SimulationServiceUtils {
 	public static final String AUTO_OFFSET_RESET = "earliest";
 	private static final String TOPIC_PREFIX = "simulation-topic-";
 
+	/**
+	 * Name of the property selecting the codec of the simulation events, which
+	 * must be the same for the simulation service and its clients.
+	 */
+	public static final String CODEC_PROPERTY = "simulation.codec";
+	public static final String DEFAULT_CODEC = JsonSimulationEventCodec.NAME;
+
 	private static String sanitize(String input) {
         return input.replaceAll("[^a-zA-Z0-9._-]", "-");
     }
@@ -29,7 +37,30 @@ public class SimulationServiceUtils {
 		props.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID);
 		props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, AUTO_OFFSET_RESET);
 		props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-		props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+		props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
 		return props;
 	}
+
+	/**
+	 * @param codecName The name of the codec, {@value JsonSimulationEventCodec#NAME}
+	 *                  or {@value BinarySimulationEventCodec#NAME}.
+	 * @throws IllegalArgumentException If no codec has this name.
+	 */
+	public static SimulationEventCodec createCodec(final String codecName) {
+		switch (codecName) {
+		case JsonSimulationEventCodec.NAME:
+			return new JsonSimulationEventCodec();
+		case BinarySimulationEventCodec.NAME:
+			return new BinarySimulationEventCodec();
+		default:
+			throw new IllegalArgumentException("Unknown simulation event codec: " + codecName);
+		}
+	}
+
+	/**
+	 * @return The codec selected by the {@value #CODEC_PROPERTY} system property.
+	 */
+	public static SimulationEventCodec createCodec() {
+		return createCodec(System.getProperty(CODEC_PROPERTY, DEFAULT_CODEC));
+	}
 }
\ No newline at end of file
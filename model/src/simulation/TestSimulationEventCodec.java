@@ -0,0 +1,116 @@
+package simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.Area;
+import model.Battery;
+import model.Component;
+import model.Door;
+import model.Factory;
+import model.Machine;
+import model.Robot;
+import model.Room;
+import model.shapes.CircularShape;
+import model.shapes.RectangularShape;
+
+class TestSimulationEventCodec {
+
+	private static final int DOOR_INDEX = 1;
+
+	private static final int ROBOT_INDEX = 4;
+
+	@Test
+	void testJsonKeyframeRoundTrip() throws IOException {
+		testKeyframeRoundTrip(new JsonSimulationEventCodec());
+	}
+
+	@Test
+	void testBinaryKeyframeRoundTrip() throws IOException {
+		testKeyframeRoundTrip(new BinarySimulationEventCodec());
+	}
+
+	@Test
+	void testJsonDeltaRoundTrip() throws IOException {
+		testDeltaRoundTrip(new JsonSimulationEventCodec());
+	}
+
+	@Test
+	void testBinaryDeltaRoundTrip() throws IOException {
+		testDeltaRoundTrip(new BinarySimulationEventCodec());
+	}
+
+	@Test
+	void testDeltaApplication() {
+		final Factory factory = createFactory();
+		final Factory replica = createFactory();
+		final Robot robot = (Robot) factory.getComponents().get(ROBOT_INDEX);
+		final Door door = (Door) factory.getComponents().get(DOOR_INDEX);
+
+		factory.setComponentPosition(robot, 12, 34);
+		door.close();
+
+		final SimulationEvent event = SimulationEvent.delta(1,
+				Arrays.asList(ComponentState.of(ROBOT_INDEX, robot), ComponentState.of(DOOR_INDEX, door)));
+
+		for (final ComponentState componentState : event.getComponentStates()) {
+			assertTrue(componentState.applyTo(replica));
+		}
+
+		final Component replicaRobot = replica.getComponents().get(ROBOT_INDEX);
+		assertEquals(12, replicaRobot.getxCoordinate());
+		assertEquals(34, replicaRobot.getyCoordinate());
+		assertFalse(((Door) replica.getComponents().get(DOOR_INDEX)).isOpen());
+		assertEquals(factory.toString(), replica.toString());
+	}
+
+	@Test
+	void testDeltaApplicationOutOfRange() {
+		final Factory factory = createFactory();
+
+		assertFalse(new ComponentState(factory.getComponents().size(), 0, 0, null).applyTo(factory));
+		assertFalse(new ComponentState(-1, 0, 0, null).applyTo(factory));
+	}
+
+	private static void testKeyframeRoundTrip(final SimulationEventCodec codec) throws IOException {
+		final Factory factory = createFactory();
+
+		final SimulationEvent event = codec.decode(codec.encode(SimulationEvent.keyframe(7, factory)));
+
+		assertTrue(event.isKeyframe());
+		assertEquals(7, event.getSequence());
+		assertEquals(factory.toString(), event.getFactory().toString());
+	}
+
+	private static void testDeltaRoundTrip(final SimulationEventCodec codec) throws IOException {
+		final List<ComponentState> componentStates = Arrays.asList(new ComponentState(ROBOT_INDEX, 12, 34, null),
+				new ComponentState(DOOR_INDEX, 30, 95, false));
+
+		final SimulationEvent event = codec.decode(codec.encode(SimulationEvent.delta(8, componentStates)));
+
+		assertFalse(event.isKeyframe());
+		assertEquals(8, event.getSequence());
+		assertNull(event.getFactory());
+		assertEquals(componentStates.toString(), event.getComponentStates().toString());
+	}
+
+	private static Factory createFactory() {
+		final Factory factory = new Factory(200, 200, "Codec Test Factory");
+		final Room room = new Room(factory, new RectangularShape(20, 20, 75, 75), "Production Room");
+		new Door(room, Room.WALL.BOTTOM, 10, 20, true, "Entrance");
+		final Area area = new Area(room, new RectangularShape(35, 35, 50, 50), "Production Area");
+		final Machine machine = new Machine(area, new RectangularShape(50, 50, 15, 15), "Machine");
+		final Robot robot = new Robot(factory, null, new CircularShape(5, 5, 2), new Battery(10), "Robot");
+		robot.addTargetComponent(machine);
+
+		return factory;
+	}
+}
@@ -1,9 +1,11 @@
 package persistence.client;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,22 +13,36 @@ import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasChooser;
 import model.Factory;
 import persistence.model.FactoryPersistenceManager;
+import persistence.protocol.PersistenceRequest;
+import persistence.protocol.PersistenceResponse;
 
 public class FactoryPersistenceManagerClient extends FactoryPersistenceManager {
 	private static Logger LOGGER = Logger.getLogger(FactoryPersistenceManagerClient.class.getName());
 
-	private Socket clientSocket;
-	private ObjectInputStream in;
-	private ObjectOutputStream out;
+	private static final int DEFAULT_POOL_SIZE = 2;
 
-	private String serverAddress;
-	private int port;
+	/**
+	 * Time in seconds after which a request without response is failed.
+	 */
+	private static final long REQUEST_TIMEOUT = 30;
+
+	private final PersistenceConnectionPool connectionPool;
+
+	private final AtomicLong nextRequestId;
 
 	public FactoryPersistenceManagerClient(String serverAddress, int serverPort, CanvasChooser canvasChooser) {
+		this(serverAddress, serverPort, canvasChooser, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * @param poolSize The number of connections kept open to the server.
+	 */
+	public FactoryPersistenceManagerClient(String serverAddress, int serverPort, CanvasChooser canvasChooser,
+			int poolSize) {
 		super(canvasChooser);
 
-		this.serverAddress = serverAddress;
-		this.port = serverPort;
+		this.connectionPool = new PersistenceConnectionPool(serverAddress, serverPort, poolSize);
+		this.nextRequestId = new AtomicLong();
 	}
 
 	/**
@@ -37,33 +53,13 @@ public class FactoryPersistenceManagerClient extends FactoryPersistenceManager {
 		if (canvasModel.getId() == null) {
 			throw new IOException("Canvas missing ID");
 		}
-		
-		boolean connected = false;
-		
-		for (int i = 0; i < 100; i++) {
-			try {
-				Thread.sleep(100);
-				connect();
-				connected = true;
-				i = 100;
-			} catch (IOException | InterruptedException e) {
-				continue;
-			}
-		}
-		
-		if (!connected) {
-			throw new IOException("Failed to connect to persistence server");
-		}
-		LOGGER.info("Connected to persistence server succesfully");
 
-		try {
-			out.writeObject(canvasModel);
-			out.flush();
-		} catch (Exception e) {
-			LOGGER.log(Level.SEVERE, e.getMessage(), e);
-			throw new IOException("Failed to persist Canvas", e);
-		} finally {
-			close();
+		// The server stores the encoded canvas as it is
+		final PersistenceResponse response = execute(PersistenceRequest.persist(nextRequestId.incrementAndGet(),
+				canvasModel.getId(), encode(canvasModel)));
+
+		if (!response.isSuccessful()) {
+			throw new IOException("Failed to persist Canvas: " + response.getErrorMessage());
 		}
 	}
 
@@ -72,48 +68,71 @@ public class FactoryPersistenceManagerClient extends FactoryPersistenceManager {
 	 */
 	@Override
 	public Factory read(final String canvasId) throws IOException {
-		try {
-			connect();
-
-			out.writeObject(canvasId);
-			out.flush();
+		final PersistenceResponse response = execute(PersistenceRequest.read(nextRequestId.incrementAndGet(), canvasId));
 
-			Factory factory = (Factory) in.readObject();
+		if (!response.isSuccessful()) {
+			throw new IOException("Failed to get Factory instance: " + response.getErrorMessage());
+		}
 
-			if (factory != null) {
-				return factory;
-			}
-			return null;
-		} catch (Exception e) {
-			throw new IOException("Failed to get Factory instance", e);
-		} finally {
-			close();
+		try {
+			return (Factory) response.readCanvas();
+		} catch (ClassCastException e) {
+			throw new IOException("Canvas " + canvasId + " is not a Factory", e);
 		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	private void connect() throws IOException {
-		clientSocket = new Socket(serverAddress, port);
-		out = new ObjectOutputStream(clientSocket.getOutputStream());
-		in = new ObjectInputStream(clientSocket.getInputStream());
+	@Override
+	public boolean delete(final Canvas canvasModel) throws IOException {
+		final PersistenceResponse response = execute(
+				PersistenceRequest.delete(nextRequestId.incrementAndGet(), canvasModel.getId()));
+
+		return response.isSuccessful();
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Sends a request on a pooled connection and waits for its response. If the
+	 * request cannot be written, for instance because the server closed the
+	 * connection, it is sent again once on a new connection.
 	 */
-	private void close() throws IOException {
-		if (clientSocket != null && !clientSocket.isClosed()) {
-			clientSocket.close();
-		}
+	private PersistenceResponse execute(final PersistenceRequest request) throws IOException {
+		Future<PersistenceResponse> response;
+
+		try {
+			response = connectionPool.getConnection().send(request);
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Retrying " + request + " on a new connection", e);
 
-		if (out != null) {
-			out.close();
+			response = connectionPool.getConnection().send(request);
 		}
 
-		if (in != null) {
-			in.close();
+		return await(response, request);
+	}
+
+	private static PersistenceResponse await(final Future<PersistenceResponse> response,
+			final PersistenceRequest request) throws IOException {
+		try {
+			return response.get(REQUEST_TIMEOUT, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			throw new IOException("Request " + request + " failed", e.getCause());
+		} catch (TimeoutException e) {
+			// Also removes the request from the pending requests of its connection
+			response.cancel(false);
+
+			throw new IOException("No response to " + request, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+			throw new IOException("Interrupted while waiting for " + request, e);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Closes the connections to the server.
+	 */
+	public void close() {
+		connectionPool.close();
+	}
+}
@@ -0,0 +1,153 @@
+package persistence.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import persistence.protocol.PersistenceFrames;
+import persistence.protocol.PersistenceRequest;
+import persistence.protocol.PersistenceResponse;
+
+/**
+ * Connection to the persistence server carrying any number of requests. The
+ * requests are written as they are sent, without waiting for the responses to
+ * the previous ones, and a dedicated thread reads the responses and completes
+ * the pending request with the matching id.
+ *
+ * The connection uses the raw transfer mode of {@link PersistenceFrames}, in
+ * which the canvases are sent as their stored bytes.
+ */
+class PersistenceConnection implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(PersistenceConnection.class.getName());
+
+	private static final int CONNECT_TIMEOUT = 1000;
+
+	private final Socket socket;
+
+	private final DataOutputStream out;
+
+	private final DataInputStream in;
+
+	private final Map<Long, CompletableFuture<PersistenceResponse>> pendingRequests;
+
+	private volatile boolean closed;
+
+	PersistenceConnection(final String serverAddress, final int port, final String name) throws IOException {
+		this.socket = new Socket();
+		this.pendingRequests = new ConcurrentHashMap<>();
+		this.closed = false;
+
+		try {
+			socket.connect(new InetSocketAddress(serverAddress, port), CONNECT_TIMEOUT);
+			socket.setTcpNoDelay(true);
+
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(PersistenceFrames.MAGIC);
+			out.flush();
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+
+		final Thread readerThread = new Thread(this::readResponses, name);
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	boolean isOpen() {
+		return !closed;
+	}
+
+	/**
+	 * Writes a request to the server.
+	 *
+	 * @return A future completed with the response of the server, or completed
+	 *         exceptionally if the connection is closed before it is received.
+	 *         Cancelling it forgets the request, whose response is then ignored.
+	 * @throws IOException If the request could not be written, in which case the
+	 *                     connection is closed.
+	 */
+	CompletableFuture<PersistenceResponse> send(final PersistenceRequest request) throws IOException {
+		final CompletableFuture<PersistenceResponse> response = new CompletableFuture<>();
+		pendingRequests.put(request.getId(), response);
+
+		// A request is forgotten once its future is done, including when the caller
+		// cancels it after waiting too long, so that it does not stay pending
+		response.whenComplete((result, exception) -> pendingRequests.remove(request.getId(), response));
+
+		try {
+			synchronized (out) {
+				if (closed) {
+					throw new IOException("Connection to the persistence server is closed");
+				}
+
+				PersistenceFrames.write(out, request, request.getCanvasData());
+				out.flush();
+			}
+		} catch (IOException e) {
+			pendingRequests.remove(request.getId());
+			close();
+
+			throw e;
+		}
+
+		return response;
+	}
+
+	private void readResponses() {
+		try {
+			while (!closed) {
+				final Object response = PersistenceFrames.read(in);
+
+				if (response instanceof PersistenceResponse) {
+					final PersistenceResponse persistenceResponse = (PersistenceResponse) response;
+					final CompletableFuture<PersistenceResponse> pendingRequest = pendingRequests
+							.remove(persistenceResponse.getRequestId());
+
+					if (pendingRequest != null) {
+						pendingRequest.complete(persistenceResponse);
+					}
+				} else {
+					LOGGER.warning("Unexpected response from the persistence server: " + response);
+				}
+			}
+		} catch (IOException e) {
+			if (!closed) {
+				LOGGER.log(Level.INFO, "Connection to the persistence server lost", e);
+			}
+		} finally {
+			close();
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+
+		try {
+			socket.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, e.getMessage(), e);
+		}
+
+		for (final Long requestId : pendingRequests.keySet()) {
+			final CompletableFuture<PersistenceResponse> pendingRequest = pendingRequests.remove(requestId);
+
+			if (pendingRequest != null) {
+				pendingRequest.completeExceptionally(new IOException("Connection to the persistence server closed"));
+			}
+		}
+	}
+}
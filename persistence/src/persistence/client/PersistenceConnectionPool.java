@@ -0,0 +1,132 @@
+package persistence.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Small pool of connections to the persistence server, handed out in turn. A
+ * connection is opened the first time it is needed and opened again once it
+ * was lost, retrying with an exponentially increasing delay while the server is
+ * unreachable.
+ */
+class PersistenceConnectionPool implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(PersistenceConnectionPool.class.getName());
+
+	private static final long INITIAL_RETRY_DELAY = 50;
+
+	private static final long MAX_RETRY_DELAY = 2000;
+
+	/**
+	 * Time after which connecting is given up.
+	 */
+	private static final long CONNECT_DEADLINE = 10000;
+
+	private final String serverAddress;
+
+	private final int port;
+
+	private final PersistenceConnection[] connections;
+
+	private final AtomicInteger nextConnection;
+
+	private volatile boolean closed;
+
+	PersistenceConnectionPool(final String serverAddress, final int port, final int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("The pool size must be positive: " + size);
+		}
+
+		this.serverAddress = serverAddress;
+		this.port = port;
+		this.connections = new PersistenceConnection[size];
+		this.nextConnection = new AtomicInteger();
+		this.closed = false;
+	}
+
+	/**
+	 * @return An open connection, which may be shared with other threads.
+	 * @throws IOException If the server could not be reached before the deadline.
+	 */
+	PersistenceConnection getConnection() throws IOException {
+		final int index = Math.floorMod(nextConnection.getAndIncrement(), connections.length);
+
+		synchronized (connections) {
+			if (closed) {
+				throw new IOException("Persistence connection pool is closed");
+			}
+
+			final PersistenceConnection connection = connections[index];
+
+			if (connection != null && connection.isOpen()) {
+				return connection;
+			}
+		}
+
+		final PersistenceConnection connection = connect(index);
+
+		synchronized (connections) {
+			final PersistenceConnection current = connections[index];
+
+			// Another thread may have reconnected this slot in the meantime
+			if (closed || (current != null && current.isOpen())) {
+				connection.close();
+
+				if (closed) {
+					throw new IOException("Persistence connection pool is closed");
+				}
+
+				return current;
+			}
+
+			connections[index] = connection;
+
+			return connection;
+		}
+	}
+
+	private PersistenceConnection connect(final int index) throws IOException {
+		final long deadline = System.currentTimeMillis() + CONNECT_DEADLINE;
+		long retryDelay = INITIAL_RETRY_DELAY;
+
+		while (true) {
+			try {
+				final PersistenceConnection connection = new PersistenceConnection(serverAddress, port,
+						"persistence-client-" + index);
+				LOGGER.info("Connected to persistence server " + serverAddress + ":" + port);
+
+				return connection;
+			} catch (IOException e) {
+				if (closed || System.currentTimeMillis() + retryDelay > deadline) {
+					throw new IOException("Failed to connect to persistence server", e);
+				}
+			}
+
+			try {
+				Thread.sleep(retryDelay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+
+				throw new IOException("Interrupted while connecting to persistence server", e);
+			}
+
+			retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (connections) {
+			closed = true;
+
+			for (int index = 0; index < connections.length; index++) {
+				if (connections[index] != null) {
+					connections[index].close();
+					connections[index] = null;
+				}
+			}
+		}
+	}
+}
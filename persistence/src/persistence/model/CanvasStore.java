@@ -0,0 +1,39 @@
+package persistence.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of the bytes of the persisted canvases, keyed on their ids.
+ */
+public interface CanvasStore extends Closeable {
+
+	/**
+	 * @return The bytes of the canvas, from the position to the limit of the
+	 *         buffer, which must not be modified.
+	 * @throws java.io.FileNotFoundException If no canvas has this id.
+	 */
+	ByteBuffer read(String canvasId) throws IOException;
+
+	/**
+	 * Opens the bytes of a canvas to send them as they are stored, which the
+	 * stores backed by files do without reading them into the heap.
+	 *
+	 * @throws java.io.FileNotFoundException If no canvas has this id.
+	 */
+	default StoredCanvas open(final String canvasId) throws IOException {
+		return StoredCanvas.of(read(canvasId));
+	}
+
+	/**
+	 * Stores the bytes of a canvas, replacing those previously stored with the
+	 * same id.
+	 */
+	void write(String canvasId, byte[] canvasData) throws IOException;
+
+	/**
+	 * @return {@code false} if no canvas has this id.
+	 */
+	boolean delete(String canvasId) throws IOException;
+}
@@ -1,27 +1,41 @@
 package persistence.model;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
 import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasChooser;
 import fr.tp.inf112.projects.canvas.model.impl.AbstractCanvasPersistenceManager;
+import model.Factory;
+import model.FactoryFormat;
 
 public class FactoryPersistenceManager extends AbstractCanvasPersistenceManager {
 
 	private static transient Logger LOGGER = Logger.getLogger(FactoryPersistenceManager.class.getName());
-	
+
+	private final CanvasStore canvasStore;
+
+	/**
+	 * Creates a persistence manager storing each canvas in its own file.
+	 */
 	public FactoryPersistenceManager(final CanvasChooser canvasChooser) {
+		this(canvasChooser, new FileCanvasStore());
+	}
+
+	public FactoryPersistenceManager(final CanvasChooser canvasChooser, final CanvasStore canvasStore) {
 		super(canvasChooser);
+
+		this.canvasStore = canvasStore;
+	}
+
+	public CanvasStore getCanvasStore() {
+		return canvasStore;
 	}
 
 	/**
@@ -29,14 +43,49 @@ public class FactoryPersistenceManager extends AbstractCanvasPersistenceManager
 	 */
 	@Override
 	public Canvas read(final String canvasId) throws IOException {
-		try (final InputStream fileInputStream = new FileInputStream(canvasId);
-				final InputStream bufInputStream = new BufferedInputStream(fileInputStream);
-				final ObjectInputStream objectInputStrteam = new ObjectInputStream(bufInputStream);) {
-			return (Canvas) objectInputStrteam.readObject();
-		} catch (ClassNotFoundException | IOException ex) {
-			throw new IOException(ex);
+		return read(new ByteBufferInputStream(readData(canvasId)));
+	}
+
+	/**
+	 * @return The bytes of the canvas as stored, without decoding them.
+	 */
+	public ByteBuffer readData(final String canvasId) throws IOException {
+		return canvasStore.read(canvasId);
+	}
+
+	/**
+	 * @return The bytes of the canvas as stored, opened to be sent without
+	 *         decoding them.
+	 */
+	public StoredCanvas openData(final String canvasId) throws IOException {
+		return canvasStore.open(canvasId);
+	}
+
+	/**
+	 * Reads a canvas stored either in the {@link FactoryFormat factory format}, or
+	 * with Java serialization by former versions. The latter are migrated to the
+	 * factory format the next time they are persisted.
+	 */
+	public static Canvas read(final InputStream inputStream) throws IOException {
+		final InputStream markableInputStream = inputStream.markSupported() ? inputStream
+				: new BufferedInputStream(inputStream);
+		markableInputStream.mark(Integer.BYTES);
+		final byte[] header = markableInputStream.readNBytes(Integer.BYTES);
+		markableInputStream.reset();
+
+		if (FactoryFormat.hasMagic(header)) {
+			return FactoryFormat.read(markableInputStream);
 		}
 
+		LOGGER.info("Reading canvas stored with Java serialization.");
+
+		try {
+			final ObjectInputStream objectInputStream = new ObjectInputStream(markableInputStream);
+
+			return (Canvas) objectInputStream.readObject();
+		} catch (ClassNotFoundException | ClassCastException ex) {
+			throw new IOException(ex);
+		}
 	}
 
 	/**
@@ -48,23 +97,105 @@ public class FactoryPersistenceManager extends AbstractCanvasPersistenceManager
 			throw new IOException("Canvas missing ID");
 		}
 		
-		try (final OutputStream fileOutStream = new FileOutputStream(canvasModel.getId());
-				final OutputStream bufOutStream = new BufferedOutputStream(fileOutStream);
-				final ObjectOutputStream objOutStream = new ObjectOutputStream(bufOutStream);) {
-			objOutStream.writeObject(canvasModel);
+		try {
+			persistData(canvasModel.getId(), encode(canvasModel));
 		} catch (IOException e) {
 			LOGGER.info("failed to persist canvas model: " + canvasModel.toString());
 			throw e;
 		}
 	}
 
+	/**
+	 * Stores the bytes of a canvas encoded by {@link #encode(Canvas)}.
+	 */
+	public void persistData(final String canvasId, final byte[] canvasData) throws IOException {
+		canvasStore.write(canvasId, canvasData);
+	}
+
+	/**
+	 * @return The bytes of a canvas as stored, in the {@link FactoryFormat factory
+	 *         format} for a factory and with Java serialization otherwise.
+	 */
+	public static byte[] encode(final Canvas canvasModel) throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		if (canvasModel instanceof Factory) {
+			FactoryFormat.write((Factory) canvasModel, outputStream);
+		} else {
+			final ObjectOutputStream objOutStream = new ObjectOutputStream(outputStream);
+			objOutStream.writeObject(canvasModel);
+			objOutStream.flush();
+		}
+
+		return outputStream.toByteArray();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public boolean delete(final Canvas canvasModel) throws IOException {
-		final File canvasFile = new File(canvasModel.getId());
+		return delete(canvasModel.getId());
+	}
+
+	public boolean delete(final String canvasId) throws IOException {
+		return canvasStore.delete(canvasId);
+	}
+
+	/**
+	 * Stream reading the bytes of a buffer, such as a mapped file, without copying
+	 * them first.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private int mark;
 
-		return canvasFile.delete();
+		private ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer.duplicate();
+			this.mark = this.buffer.position();
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) {
+			if (length == 0) {
+				return 0;
+			}
+
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+
+			final int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(final int readLimit) {
+			mark = buffer.position();
+		}
+
+		@Override
+		public synchronized void reset() {
+			buffer.position(mark);
+		}
 	}
 }
@@ -0,0 +1,108 @@
+package persistence.model;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Store keeping each canvas in its own file, the id of a canvas being the path
+ * of its file.
+ */
+public class FileCanvasStore implements CanvasStore {
+
+	@Override
+	public ByteBuffer read(final String canvasId) throws IOException {
+		try {
+			return ByteBuffer.wrap(Files.readAllBytes(new File(canvasId).toPath()));
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(canvasId);
+		}
+	}
+
+	/**
+	 * Opens the file of a canvas, whose bytes are transferred to a channel by the
+	 * operating system without going through the heap.
+	 */
+	@Override
+	public StoredCanvas open(final String canvasId) throws IOException {
+		final FileChannel fileChannel;
+
+		try {
+			fileChannel = FileChannel.open(new File(canvasId).toPath(), StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(canvasId);
+		}
+
+		final long length;
+
+		try {
+			length = fileChannel.size();
+		} catch (IOException e) {
+			fileChannel.close();
+			throw e;
+		}
+
+		return new StoredCanvas() {
+
+			@Override
+			public long getLength() {
+				return length;
+			}
+
+			@Override
+			public void transferTo(final WritableByteChannel channel) throws IOException {
+				long position = 0;
+
+				while (position < length) {
+					final long transferred = fileChannel.transferTo(position, length - position, channel);
+
+					if (transferred <= 0 && fileChannel.size() < length) {
+						throw new EOFException("Canvas " + canvasId + " truncated while being sent");
+					}
+
+					position += transferred;
+				}
+			}
+
+			@Override
+			public void close() throws IOException {
+				fileChannel.close();
+			}
+		};
+	}
+
+	/**
+	 * @return The attributes of the file of a canvas, whose last modification
+	 *         time and size tell whether the canvas changed.
+	 * @throws FileNotFoundException If no canvas has this id.
+	 */
+	public BasicFileAttributes readAttributes(final String canvasId) throws IOException {
+		try {
+			return Files.readAttributes(new File(canvasId).toPath(), BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(canvasId);
+		}
+	}
+
+	@Override
+	public void write(final String canvasId, final byte[] canvasData) throws IOException {
+		Files.write(new File(canvasId).toPath(), canvasData);
+	}
+
+	@Override
+	public boolean delete(final String canvasId) {
+		return new File(canvasId).delete();
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,508 @@
+package persistence.model;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Store keeping all the canvases in a single segment file, to which each write
+ * or deletion is appended as a record, and which is memory-mapped to read the
+ * canvases without copying them out of the page cache.
+ *
+ * An index of the offsets of the last record of each canvas is built by
+ * scanning the segment when it is opened. Each record holds a checksum and is
+ * forced to the disk before being indexed, so that a record partially written
+ * when the server crashed is detected and truncated on the next opening. Once
+ * the records replaced or deleted take more space than the live ones, the live
+ * records are copied to a new segment which atomically replaces the former.
+ *
+ * The segment is mapped at once, which limits its size to 2 GiB.
+ */
+public class SegmentCanvasStore implements CanvasStore {
+
+	private static final Logger LOGGER = Logger.getLogger(SegmentCanvasStore.class.getName());
+
+	/**
+	 * "FSEG" in ASCII.
+	 */
+	private static final int SEGMENT_MAGIC = 0x46534547;
+
+	private static final short SEGMENT_VERSION = 1;
+
+	private static final int SEGMENT_HEADER_LENGTH = Integer.BYTES + Short.BYTES;
+
+	/**
+	 * "RCRD" in ASCII.
+	 */
+	private static final int RECORD_MAGIC = 0x52435244;
+
+	/**
+	 * Magic number, checksum, type, length of the id and length of the data.
+	 */
+	private static final int RECORD_HEADER_LENGTH = 3 * Integer.BYTES + Byte.BYTES + Integer.BYTES;
+
+	private static final byte WRITE_RECORD = 1;
+
+	private static final byte DELETE_RECORD = 2;
+
+	private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+	/**
+	 * Minimum number of bytes of obsolete records before the segment is compacted.
+	 */
+	private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Position of the last record of a canvas in the segment.
+	 */
+	private static class Entry {
+
+		private final long recordOffset;
+
+		private final int recordLength;
+
+		private final int dataLength;
+
+		private Entry(final long recordOffset, final int recordLength, final int dataLength) {
+			this.recordOffset = recordOffset;
+			this.recordLength = recordLength;
+			this.dataLength = dataLength;
+		}
+
+		private long getDataOffset() {
+			return recordOffset + recordLength - dataLength;
+		}
+	}
+
+	private final Path segmentPath;
+
+	private final Path compactionPath;
+
+	private final ReadWriteLock lock;
+
+	private final Map<String, Entry> index;
+
+	private FileChannel channel;
+
+	private volatile MappedByteBuffer mappedSegment;
+
+	private long size;
+
+	private long liveSize;
+
+	private long compactionCount;
+
+	/**
+	 * Opens the segment file, creating it if it does not exist.
+	 *
+	 * @throws IOException If the file cannot be opened or is not a segment.
+	 */
+	public SegmentCanvasStore(final Path segmentPath) throws IOException {
+		this.segmentPath = segmentPath;
+		this.compactionPath = segmentPath.resolveSibling(segmentPath.getFileName() + ".compact");
+		this.lock = new ReentrantReadWriteLock();
+		this.index = new HashMap<>();
+		this.compactionCount = 0;
+
+		// A compaction interrupted by a crash left the former segment in place
+		Files.deleteIfExists(compactionPath);
+
+		channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+
+		try {
+			load();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Builds the index from the records of the segment, truncating the segment
+	 * after the last valid record.
+	 */
+	private void load() throws IOException {
+		final long fileSize = channel.size();
+
+		// A new segment, possibly left without its full header by a crash
+		if (fileSize < SEGMENT_HEADER_LENGTH) {
+			channel.truncate(0);
+
+			final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH);
+			header.putInt(SEGMENT_MAGIC).putShort(SEGMENT_VERSION).flip();
+			writeFully(header, 0);
+			channel.force(true);
+			size = SEGMENT_HEADER_LENGTH;
+			liveSize = 0;
+
+			return;
+		}
+
+		if (fileSize > MAX_SEGMENT_SIZE) {
+			throw new IOException("Segment too large: " + fileSize);
+		}
+
+		final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+		if (segment.getInt(0) != SEGMENT_MAGIC || segment.getShort(Integer.BYTES) != SEGMENT_VERSION) {
+			throw new IOException("Not a canvas segment: " + segmentPath);
+		}
+
+		long offset = SEGMENT_HEADER_LENGTH;
+
+		while (true) {
+			final int recordLength = readRecord(segment, (int) offset);
+
+			if (recordLength < 0) {
+				break;
+			}
+
+			offset += recordLength;
+		}
+
+		if (offset < fileSize) {
+			LOGGER.warning("Truncating " + (fileSize - offset) + " bytes of incomplete records of " + segmentPath);
+			channel.truncate(offset);
+			channel.force(true);
+		}
+
+		size = offset;
+		liveSize = 0;
+
+		for (final Entry entry : index.values()) {
+			liveSize += entry.recordLength;
+		}
+
+		mappedSegment = offset == fileSize ? segment : null;
+
+		LOGGER.info("Opened " + segmentPath + ": " + this);
+	}
+
+	/**
+	 * Applies the record at the given offset to the index.
+	 *
+	 * @return The length of the record, or -1 if there is no valid record at this
+	 *         offset.
+	 */
+	private int readRecord(final ByteBuffer segment, final int offset) {
+		if (segment.limit() - offset < RECORD_HEADER_LENGTH || segment.getInt(offset) != RECORD_MAGIC) {
+			return -1;
+		}
+
+		final int checksum = segment.getInt(offset + Integer.BYTES);
+		final byte type = segment.get(offset + 2 * Integer.BYTES);
+		final int idLength = segment.getInt(offset + 2 * Integer.BYTES + Byte.BYTES);
+		final int dataLength = segment.getInt(offset + 3 * Integer.BYTES + Byte.BYTES);
+
+		if (idLength < 0 || dataLength < 0
+				|| (long) idLength + dataLength > segment.limit() - offset - RECORD_HEADER_LENGTH) {
+			return -1;
+		}
+
+		final int recordLength = RECORD_HEADER_LENGTH + idLength + dataLength;
+
+		if (checksum(segment.slice(offset + 2 * Integer.BYTES, recordLength - 2 * Integer.BYTES)) != checksum) {
+			return -1;
+		}
+
+		final byte[] idBytes = new byte[idLength];
+		segment.get(offset + RECORD_HEADER_LENGTH, idBytes);
+		final String canvasId = new String(idBytes, StandardCharsets.UTF_8);
+
+		if (type == WRITE_RECORD) {
+			index.put(canvasId, new Entry(offset, recordLength, dataLength));
+		} else if (type == DELETE_RECORD) {
+			index.remove(canvasId);
+		} else {
+			return -1;
+		}
+
+		return recordLength;
+	}
+
+	private static int checksum(final ByteBuffer buffer) {
+		final CRC32 crc = new CRC32();
+		crc.update(buffer);
+
+		return (int) crc.getValue();
+	}
+
+	@Override
+	public ByteBuffer read(final String canvasId) throws IOException {
+		lock.readLock().lock();
+
+		try {
+			final Entry entry = index.get(canvasId);
+
+			if (entry == null) {
+				throw new FileNotFoundException(canvasId);
+			}
+
+			final int dataOffset = (int) entry.getDataOffset();
+
+			return getMappedSegment(dataOffset + entry.dataLength).slice(dataOffset, entry.dataLength)
+					.asReadOnlyBuffer();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The segment mapped at least up to the given offset, which is mapped
+	 *         again up to its end if it grew since it was last mapped.
+	 */
+	private MappedByteBuffer getMappedSegment(final long end) throws IOException {
+		MappedByteBuffer segment = mappedSegment;
+
+		if (segment == null || segment.capacity() < end) {
+			synchronized (this) {
+				segment = mappedSegment;
+
+				if (segment == null || segment.capacity() < end) {
+					segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+					mappedSegment = segment;
+				}
+			}
+		}
+
+		return segment;
+	}
+
+	@Override
+	public void write(final String canvasId, final byte[] canvasData) throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			final Entry entry = append(WRITE_RECORD, canvasId, canvasData);
+			final Entry previousEntry = index.put(canvasId, entry);
+			liveSize += entry.recordLength - (previousEntry == null ? 0 : previousEntry.recordLength);
+
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean delete(final String canvasId) throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			if (!index.containsKey(canvasId)) {
+				return false;
+			}
+
+			append(DELETE_RECORD, canvasId, new byte[0]);
+			liveSize -= index.remove(canvasId).recordLength;
+
+			compactIfNeeded();
+
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Appends a record at the end of the segment and forces it to the disk. The
+	 * segment is truncated back to its former size if the record cannot be fully
+	 * written.
+	 */
+	private Entry append(final byte type, final String canvasId, final byte[] data) throws IOException {
+		final byte[] idBytes = canvasId.getBytes(StandardCharsets.UTF_8);
+		final int recordLength = RECORD_HEADER_LENGTH + idBytes.length + data.length;
+
+		if (size + recordLength > MAX_SEGMENT_SIZE) {
+			compact();
+
+			if (size + recordLength > MAX_SEGMENT_SIZE) {
+				throw new IOException("Segment full: " + segmentPath);
+			}
+		}
+
+		final ByteBuffer record = ByteBuffer.allocate(recordLength);
+		record.putInt(RECORD_MAGIC).putInt(0).put(type).putInt(idBytes.length).putInt(data.length).put(idBytes)
+				.put(data).flip();
+		record.putInt(Integer.BYTES, checksum(record.slice(2 * Integer.BYTES, recordLength - 2 * Integer.BYTES)));
+
+		final long recordOffset = size;
+
+		try {
+			writeFully(record, recordOffset);
+			channel.force(false);
+		} catch (IOException e) {
+			try {
+				channel.truncate(recordOffset);
+			} catch (IOException truncationException) {
+				e.addSuppressed(truncationException);
+			}
+
+			throw e;
+		}
+
+		size += recordLength;
+
+		return new Entry(recordOffset, recordLength, data.length);
+	}
+
+	private void writeFully(final ByteBuffer buffer, final long offset) throws IOException {
+		long position = offset;
+
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private void compactIfNeeded() throws IOException {
+		final long obsoleteSize = size - SEGMENT_HEADER_LENGTH - liveSize;
+
+		if (obsoleteSize > COMPACTION_THRESHOLD && obsoleteSize > liveSize) {
+			compact();
+		}
+	}
+
+	/**
+	 * Copies the live records to a new segment, which then replaces the current
+	 * one. The buffers previously returned by {@link #read(String)} remain valid,
+	 * as they still map the former segment file.
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			final long startTime = System.nanoTime();
+			final long formerSize = size;
+			final Map<String, Entry> compactedIndex = new HashMap<>();
+			long offset = SEGMENT_HEADER_LENGTH;
+
+			try (final FileChannel compactionChannel = FileChannel.open(compactionPath, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LENGTH);
+				header.putInt(SEGMENT_MAGIC).putShort(SEGMENT_VERSION).flip();
+
+				while (header.hasRemaining()) {
+					compactionChannel.write(header);
+				}
+
+				for (final Map.Entry<String, Entry> indexEntry : index.entrySet()) {
+					final Entry entry = indexEntry.getValue();
+					long transferred = 0;
+
+					while (transferred < entry.recordLength) {
+						final long count = channel.transferTo(entry.recordOffset + transferred,
+								entry.recordLength - transferred, compactionChannel);
+
+						// Nothing is transferred past the end of the segment
+						if (count <= 0) {
+							throw new EOFException("Record of canvas " + indexEntry.getKey() + " truncated in "
+									+ segmentPath);
+						}
+
+						transferred += count;
+					}
+
+					compactedIndex.put(indexEntry.getKey(), new Entry(offset, entry.recordLength, entry.dataLength));
+					offset += entry.recordLength;
+				}
+
+				compactionChannel.force(true);
+			}
+
+			Files.move(compactionPath, segmentPath, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+
+			channel.close();
+			channel = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			index.clear();
+			index.putAll(compactedIndex);
+			mappedSegment = null;
+			size = offset;
+			compactionCount++;
+
+			LOGGER.info("Compacted " + segmentPath + " from " + formerSize / 1024 + " KiB to " + size / 1024
+					+ " KiB in " + (System.nanoTime() - startTime) / 1000000 + " ms");
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The ids of the stored canvases, sorted.
+	 */
+	public Set<String> getCanvasIds() {
+		lock.readLock().lock();
+
+		try {
+			return new TreeSet<>(index.keySet());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The size in bytes of the segment file.
+	 */
+	public long getSize() {
+		lock.readLock().lock();
+
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The number of bytes of the records of the stored canvases.
+	 */
+	public long getLiveSize() {
+		lock.readLock().lock();
+
+		try {
+			return liveSize;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+
+		try {
+			mappedSegment = null;
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		lock.readLock().lock();
+
+		try {
+			return "canvases=" + index.size() + ", size=" + size / 1024 + " KiB, live=" + liveSize / 1024
+					+ " KiB, compactions=" + compactionCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
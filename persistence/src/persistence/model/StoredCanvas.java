@@ -0,0 +1,51 @@
+package persistence.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Bytes of a canvas opened in a {@link CanvasStore} to be sent as they are
+ * stored, which must be closed once sent.
+ */
+public interface StoredCanvas extends Closeable {
+
+	/**
+	 * @return The number of bytes of the canvas.
+	 */
+	long getLength();
+
+	/**
+	 * Writes all the bytes of the canvas to a channel, without copying them to
+	 * the heap.
+	 */
+	void transferTo(WritableByteChannel channel) throws IOException;
+
+	/**
+	 * @return The bytes of a canvas held by a buffer, which are written to the
+	 *         channel from the buffer itself.
+	 */
+	static StoredCanvas of(final ByteBuffer canvasData) {
+		return new StoredCanvas() {
+
+			@Override
+			public long getLength() {
+				return canvasData.remaining();
+			}
+
+			@Override
+			public void transferTo(final WritableByteChannel channel) throws IOException {
+				final ByteBuffer buffer = canvasData.duplicate();
+
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
@@ -0,0 +1,125 @@
+package persistence.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * Framing of the requests and responses on a connection in raw transfer mode,
+ * which a client selects by sending {@link #MAGIC} first instead of the header
+ * of an object stream.
+ *
+ * Each frame holds the lengths of its message and of its data, the message, a
+ * request or a response written with Java serialization, then the data, the
+ * bytes of a canvas as stored by the persistence manager. The data are thus
+ * sent without being copied into the message, so that the server can transfer
+ * them straight from the file in which they are stored, and only the client
+ * decodes them.
+ */
+public final class PersistenceFrames {
+
+	/**
+	 * "PRST" in ASCII, which cannot start an object stream.
+	 */
+	public static final int MAGIC = 0x50525354;
+
+	private static final int HEADER_LENGTH = 2 * Integer.BYTES;
+
+	private static final int MAX_MESSAGE_LENGTH = 1024 * 1024;
+
+	private static final int MAX_DATA_LENGTH = 256 * 1024 * 1024;
+
+	private PersistenceFrames() {
+	}
+
+	/**
+	 * @return The lengths and the message of a frame whose data of the given
+	 *         length are written separately after it.
+	 */
+	public static ByteBuffer encodeHeader(final Serializable message, final long dataLength) throws IOException {
+		if (dataLength < 0 || dataLength > MAX_DATA_LENGTH) {
+			throw new IOException("Invalid data length: " + dataLength);
+		}
+
+		final ByteArrayOutputStream messageBytes = new ByteArrayOutputStream();
+
+		try (final ObjectOutputStream objectOutputStream = new ObjectOutputStream(messageBytes)) {
+			objectOutputStream.writeObject(message);
+		}
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + messageBytes.size());
+		header.putInt(messageBytes.size()).putInt((int) dataLength).put(messageBytes.toByteArray()).flip();
+
+		return header;
+	}
+
+	/**
+	 * Writes a frame without flushing the stream.
+	 *
+	 * @param data The data of the frame, or {@code null} if it has none.
+	 */
+	public static void write(final DataOutputStream out, final Serializable message, final byte[] data)
+			throws IOException {
+		final ByteBuffer header = encodeHeader(message, data == null ? 0 : data.length);
+		out.write(header.array(), 0, header.limit());
+
+		if (data != null) {
+			out.write(data);
+		}
+	}
+
+	/**
+	 * Reads a frame, the data of which are attached to the request or response
+	 * read.
+	 *
+	 * @throws StreamCorruptedException If the frame is not a request or a
+	 *                                  response.
+	 */
+	public static Object read(final DataInputStream in) throws IOException {
+		final int messageLength = in.readInt();
+		final int dataLength = in.readInt();
+
+		if (messageLength < 0 || messageLength > MAX_MESSAGE_LENGTH || dataLength < 0
+				|| dataLength > MAX_DATA_LENGTH) {
+			throw new StreamCorruptedException("Invalid frame lengths: " + messageLength + ", " + dataLength);
+		}
+
+		final byte[] messageBytes = new byte[messageLength];
+		in.readFully(messageBytes);
+
+		final Object message;
+
+		try (final ObjectInputStream objectInputStream = new ObjectInputStream(
+				new ByteArrayInputStream(messageBytes))) {
+			message = objectInputStream.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new StreamCorruptedException("Unknown message: " + e.getMessage());
+		}
+
+		final byte[] data;
+
+		if (dataLength > 0) {
+			data = new byte[dataLength];
+			in.readFully(data);
+		} else {
+			data = null;
+		}
+
+		if (message instanceof PersistenceRequest) {
+			return data == null ? message : ((PersistenceRequest) message).withCanvasData(data);
+		}
+
+		if (message instanceof PersistenceResponse) {
+			return data == null ? message : ((PersistenceResponse) message).withCanvasData(data);
+		}
+
+		throw new StreamCorruptedException("Neither a request nor a response: " + message);
+	}
+}
@@ -0,0 +1,99 @@
+package persistence.protocol;
+
+import java.io.Serializable;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+
+/**
+ * Request sent to the persistence server on a connection that stays open for
+ * several requests. The server answers each request with a
+ * {@link PersistenceResponse} holding the same id, so that a client can send
+ * requests without waiting for the responses to the previous ones.
+ */
+public class PersistenceRequest implements Serializable {
+
+	private static final long serialVersionUID = 3127604559837601204L;
+
+	public enum Type {
+		READ, PERSIST, DELETE
+	}
+
+	private final long id;
+
+	private final Type type;
+
+	private final String canvasId;
+
+	private final Canvas canvas;
+
+	/**
+	 * Bytes of the canvas to persist, sent after the request in a frame of
+	 * {@link PersistenceFrames}.
+	 */
+	private final transient byte[] canvasData;
+
+	private PersistenceRequest(final long id, final Type type, final String canvasId, final Canvas canvas,
+			final byte[] canvasData) {
+		this.id = id;
+		this.type = type;
+		this.canvasId = canvasId;
+		this.canvas = canvas;
+		this.canvasData = canvasData;
+	}
+
+	public static PersistenceRequest read(final long id, final String canvasId) {
+		return new PersistenceRequest(id, Type.READ, canvasId, null, null);
+	}
+
+	public static PersistenceRequest persist(final long id, final Canvas canvas) {
+		return new PersistenceRequest(id, Type.PERSIST, canvas.getId(), canvas, null);
+	}
+
+	/**
+	 * @param canvasData The canvas to persist, as stored by the persistence
+	 *                   manager, which the server stores without decoding it.
+	 */
+	public static PersistenceRequest persist(final long id, final String canvasId, final byte[] canvasData) {
+		return new PersistenceRequest(id, Type.PERSIST, canvasId, null, canvasData);
+	}
+
+	public static PersistenceRequest delete(final long id, final String canvasId) {
+		return new PersistenceRequest(id, Type.DELETE, canvasId, null, null);
+	}
+
+	PersistenceRequest withCanvasData(final byte[] canvasData) {
+		return new PersistenceRequest(id, type, canvasId, canvas, canvasData);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getCanvasId() {
+		return canvasId;
+	}
+
+	/**
+	 * @return The canvas to persist, or {@code null} for the other requests.
+	 */
+	public Canvas getCanvas() {
+		return canvas;
+	}
+
+	/**
+	 * @return The bytes of the canvas to persist, or {@code null} if the canvas is
+	 *         sent as an object or for the other requests.
+	 */
+	public byte[] getCanvasData() {
+		return canvasData;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [id=" + id + ", type=" + type + ", canvasId=" + canvasId + "]";
+	}
+}
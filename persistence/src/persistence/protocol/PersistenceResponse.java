@@ -0,0 +1,82 @@
+package persistence.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+import persistence.model.FactoryPersistenceManager;
+
+/**
+ * Response of the persistence server to the {@link PersistenceRequest} with the
+ * same id. A canvas read is sent as the bytes of its file, which the server
+ * can cache and send without deserializing them.
+ */
+public class PersistenceResponse implements Serializable {
+
+	private static final long serialVersionUID = -4701253361920894157L;
+
+	private final long requestId;
+
+	private final byte[] canvasData;
+
+	private final String errorMessage;
+
+	private PersistenceResponse(final long requestId, final byte[] canvasData, final String errorMessage) {
+		this.requestId = requestId;
+		this.canvasData = canvasData;
+		this.errorMessage = errorMessage;
+	}
+
+	public static PersistenceResponse success(final long requestId) {
+		return new PersistenceResponse(requestId, null, null);
+	}
+
+	/**
+	 * @param canvasData The canvas read, as stored by the persistence manager.
+	 */
+	public static PersistenceResponse success(final long requestId, final byte[] canvasData) {
+		return new PersistenceResponse(requestId, canvasData, null);
+	}
+
+	PersistenceResponse withCanvasData(final byte[] canvasData) {
+		return new PersistenceResponse(requestId, canvasData, errorMessage);
+	}
+
+	public static PersistenceResponse failure(final long requestId, final String errorMessage) {
+		return new PersistenceResponse(requestId, null, errorMessage == null ? "Request failed" : errorMessage);
+	}
+
+	public long getRequestId() {
+		return requestId;
+	}
+
+	/**
+	 * @return The bytes of the canvas read, or {@code null} if the request did not
+	 *         read a canvas.
+	 */
+	public byte[] getCanvasData() {
+		return canvasData;
+	}
+
+	/**
+	 * @return The canvas read, or {@code null} if the request did not read a
+	 *         canvas.
+	 * @throws IOException If the canvas cannot be decoded.
+	 */
+	public Canvas readCanvas() throws IOException {
+		return canvasData == null ? null : readCanvas(canvasData);
+	}
+
+	public static Canvas readCanvas(final byte[] canvasData) throws IOException {
+		return FactoryPersistenceManager.read(new ByteArrayInputStream(canvasData));
+	}
+
+	public boolean isSuccessful() {
+		return errorMessage == null;
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+}
@@ -0,0 +1,163 @@
+package persistence.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import persistence.model.FileCanvasStore;
+
+/**
+ * Cache of the files of the persisted canvases, holding their bytes as written
+ * by the persistence manager so that a canvas read again is neither read from
+ * the disk nor deserialized by the server. The bytes are read through the
+ * store of the files, and an entry is only used while the last modification
+ * time and the length of its file are unchanged. The least recently used
+ * entries are evicted to keep the cached bytes under a maximum size.
+ */
+public class CanvasDataCache {
+
+	public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+	private static class Entry {
+
+		private final byte[] data;
+
+		private final FileTime lastModified;
+
+		private Entry(final byte[] data, final FileTime lastModified) {
+			this.data = data;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private final FileCanvasStore canvasStore;
+
+	private final long maxSize;
+
+	private final Map<String, Entry> entries;
+
+	private long size;
+
+	private long hitCount;
+
+	private long missCount;
+
+	public CanvasDataCache(final FileCanvasStore canvasStore, final long maxSize) {
+		this.canvasStore = canvasStore;
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.size = 0;
+		this.hitCount = 0;
+		this.missCount = 0;
+	}
+
+	public FileCanvasStore getCanvasStore() {
+		return canvasStore;
+	}
+
+	/**
+	 * @return The bytes of the file of the canvas, read from the store only if
+	 *         they are not cached or the file changed since they were.
+	 * @throws java.io.FileNotFoundException If no canvas has this id.
+	 */
+	public byte[] get(final String canvasId) throws IOException {
+		final BasicFileAttributes attributes = canvasStore.readAttributes(canvasId);
+		final FileTime lastModified = attributes.lastModifiedTime();
+
+		synchronized (this) {
+			final Entry entry = entries.get(canvasId);
+
+			if (entry != null && entry.lastModified.equals(lastModified) && entry.data.length == attributes.size()) {
+				hitCount++;
+
+				return entry.data;
+			}
+
+			missCount++;
+		}
+
+		final byte[] data = toBytes(canvasStore.read(canvasId));
+
+		// Only cache the bytes if the file was not modified while being read
+		if (canvasStore.readAttributes(canvasId).lastModifiedTime().equals(lastModified)) {
+			put(canvasId, new Entry(data, lastModified));
+		}
+
+		return data;
+	}
+
+	/**
+	 * @return The bytes of the buffer, which are only copied if the buffer does
+	 *         not wrap an array holding exactly them.
+	 */
+	private static byte[] toBytes(final ByteBuffer canvasData) {
+		if (canvasData.hasArray() && canvasData.arrayOffset() + canvasData.position() == 0
+				&& canvasData.remaining() == canvasData.array().length) {
+			return canvasData.array();
+		}
+
+		final byte[] data = new byte[canvasData.remaining()];
+		canvasData.duplicate().get(data);
+
+		return data;
+	}
+
+	private synchronized void put(final String canvasId, final Entry entry) {
+		remove(canvasId);
+
+		if (entry.data.length > maxSize) {
+			return;
+		}
+
+		entries.put(canvasId, entry);
+		size += entry.data.length;
+
+		final Iterator<Entry> iterator = entries.values().iterator();
+
+		while (size > maxSize && iterator.hasNext()) {
+			size -= iterator.next().data.length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Forgets the bytes of a canvas, which must be called when it is persisted or
+	 * deleted.
+	 */
+	public synchronized void invalidate(final String canvasId) {
+		remove(canvasId);
+	}
+
+	private void remove(final String canvasId) {
+		final Entry entry = entries.remove(canvasId);
+
+		if (entry != null) {
+			size -= entry.data.length;
+		}
+	}
+
+	/**
+	 * @return The number of bytes cached.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "entries=" + entries.size() + ", size=" + size / 1024 + " KiB, hits=" + hitCount + ", misses="
+				+ missCount;
+	}
+}
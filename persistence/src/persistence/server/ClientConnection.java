@@ -0,0 +1,215 @@
+package persistence.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+import persistence.model.StoredCanvas;
+import persistence.protocol.PersistenceFrames;
+import persistence.protocol.PersistenceRequest;
+import persistence.protocol.PersistenceResponse;
+
+/**
+ * State of a connection to the persistence server. Its thread only reads the
+ * requests and hands them to the workers of the server, which write the
+ * responses back in the order they complete.
+ *
+ * A client either sends objects on an object stream, or selects the raw
+ * transfer mode of {@link PersistenceFrames}, in which the canvases read are
+ * written to the socket straight from the store.
+ */
+class ClientConnection implements Runnable {
+
+	private static final Logger LOGGER = Logger.getLogger(ClientConnection.class.getName());
+
+	private final FactoryPersistenceServer server;
+
+	private final SocketChannel channel;
+
+	private volatile boolean rawTransfer;
+
+	private ObjectOutputStream out;
+
+	ClientConnection(final FactoryPersistenceServer server, final SocketChannel channel) {
+		this.server = server;
+		this.channel = channel;
+	}
+
+	/**
+	 * @return {@code true} if the client selected the raw transfer mode.
+	 */
+	boolean isRawTransfer() {
+		return rawTransfer;
+	}
+
+	@Override
+	public void run() {
+		try (channel) {
+			channel.socket().setTcpNoDelay(true);
+
+			final InputStream in = new BufferedInputStream(channel.socket().getInputStream());
+			in.mark(Integer.BYTES);
+			final DataInputStream dataIn = new DataInputStream(in);
+			final int magic;
+
+			try {
+				magic = dataIn.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+
+			if (magic == PersistenceFrames.MAGIC) {
+				rawTransfer = true;
+				readFrames(dataIn);
+			} else {
+				in.reset();
+				readObjects(in);
+			}
+		} catch (Exception e) {
+			if (channel.isOpen()) {
+				LOGGER.log(Level.WARNING, e.getMessage(), e);
+			}
+		} finally {
+			server.connectionClosed(this);
+		}
+	}
+
+	private void readFrames(final DataInputStream in) throws IOException {
+		while (true) {
+			final Object request;
+
+			try {
+				request = PersistenceFrames.read(in);
+			} catch (EOFException e) {
+				break;
+			}
+
+			final long receptionTime = System.nanoTime();
+
+			if (request instanceof PersistenceRequest) {
+				server.submit(this, (PersistenceRequest) request, receptionTime);
+			} else {
+				LOGGER.log(Level.INFO, "frame is not a request");
+			}
+		}
+	}
+
+	private void readObjects(final InputStream inputStream) throws IOException, ClassNotFoundException {
+		out = new ObjectOutputStream(new BufferedOutputStream(channel.socket().getOutputStream()));
+		out.flush();
+		final ObjectInputStream in = new ObjectInputStream(inputStream);
+
+		while (true) {
+			final Object obj;
+
+			try {
+				obj = in.readObject();
+			} catch (EOFException e) {
+				break;
+			}
+
+			final long receptionTime = System.nanoTime();
+
+			if (obj instanceof PersistenceRequest) {
+				server.submit(this, (PersistenceRequest) obj, receptionTime);
+			} else if (obj instanceof String || obj instanceof Canvas) {
+				serveLegacyRequest(obj, receptionTime);
+			} else {
+				LOGGER.log(Level.INFO, "obj is neither a request, String or Factory");
+			}
+		}
+	}
+
+	/**
+	 * Reads or persists a canvas sent without a request by a client predating
+	 * requests, which waits for the canvas read but not for an acknowledgement.
+	 */
+	private void serveLegacyRequest(final Object obj, final long receptionTime) throws IOException {
+		final PersistenceRequest request = obj instanceof String ? PersistenceRequest.read(0, (String) obj)
+				: PersistenceRequest.persist(0, (Canvas) obj);
+		final PersistenceResponse response = server.handle(request);
+
+		if (request.getType() == PersistenceRequest.Type.READ) {
+			write(response.isSuccessful() ? response.readCanvas() : null);
+		}
+
+		server.getMetrics().requestServed(System.nanoTime() - receptionTime, response.isSuccessful());
+	}
+
+	void sendResponse(final PersistenceResponse response) {
+		try {
+			if (rawTransfer) {
+				writeFrame(response, response.getCanvasData() == null ? null
+						: StoredCanvas.of(ByteBuffer.wrap(response.getCanvasData())));
+			} else {
+				write(response);
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.INFO, "Unable to send response to " + getRemoteAddress(), e);
+			close();
+		}
+	}
+
+	/**
+	 * Sends a successful response to a read in raw transfer mode, followed by the
+	 * bytes of the canvas transferred from the store.
+	 */
+	void sendCanvas(final long requestId, final StoredCanvas storedCanvas) {
+		try {
+			writeFrame(PersistenceResponse.success(requestId), storedCanvas);
+		} catch (IOException e) {
+			LOGGER.log(Level.INFO, "Unable to send canvas to " + getRemoteAddress(), e);
+			close();
+		}
+	}
+
+	private void writeFrame(final PersistenceResponse response, final StoredCanvas storedCanvas)
+			throws IOException {
+		// The data are not sent in the message but after it
+		final PersistenceResponse message = response.getCanvasData() == null ? response
+				: PersistenceResponse.success(response.getRequestId());
+		final ByteBuffer header = PersistenceFrames.encodeHeader(message,
+				storedCanvas == null ? 0 : storedCanvas.getLength());
+
+		synchronized (channel) {
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+
+			if (storedCanvas != null) {
+				storedCanvas.transferTo(channel);
+			}
+		}
+	}
+
+	private void write(final Object response) throws IOException {
+		synchronized (channel) {
+			out.writeObject(response);
+			// Forget the objects written so far so that a canvas written again is sent with its current state
+			out.reset();
+			out.flush();
+		}
+	}
+
+	private Object getRemoteAddress() {
+		return channel.socket().getRemoteSocketAddress();
+	}
+
+	void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, e.getMessage(), e);
+		}
+	}
+}
@@ -1,92 +1,399 @@
 package persistence.server;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.view.FileCanvasChooser;
-import model.Factory;
+import persistence.model.CanvasStore;
 import persistence.model.FactoryPersistenceManager;
+import persistence.model.FileCanvasStore;
+import persistence.model.SegmentCanvasStore;
+import persistence.model.StoredCanvas;
+import persistence.protocol.PersistenceRequest;
+import persistence.protocol.PersistenceResponse;
 
+/**
+ * Persistence server serving any number of clients at once. Each connection is
+ * read by its own thread, while the requests are served by a bounded pool of
+ * workers fed by a bounded queue, so that a slow request only delays the
+ * requests queued behind it and a burst of requests is refused instead of
+ * exhausting the server.
+ */
 public class FactoryPersistenceServer {
 	private static transient Logger LOGGER = Logger.getLogger(FactoryPersistenceServer.class.getName());
 
-	private ServerSocket serverSocket;
-	private Socket clientSocket;
-	private ObjectOutputStream out;
-	private ObjectInputStream in;
+	private static final int DEFAULT_WORKERS = 4;
+
+	private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+	private static final int MAX_CONNECTIONS = 64;
+
+	/**
+	 * Number of locks shared by the canvases, a power of two. Canvases whose ids
+	 * hash to the same lock are serialized, but the number of locks stays bounded
+	 * however many canvases are served.
+	 */
+	private static final int CANVAS_LOCK_COUNT = 64;
+
+	/**
+	 * Period in seconds at which the metrics are logged.
+	 */
+	private static final long METRICS_LOG_PERIOD = 60;
+
+	/**
+	 * Time in seconds given to the workers to finish their requests before the
+	 * store is closed.
+	 */
+	private static final long SHUTDOWN_TIMEOUT = 10;
+
+	private final FactoryPersistenceManager fpm;
+	private final CanvasDataCache canvasDataCache;
+	private final ThreadPoolExecutor workers;
+	private final ScheduledExecutorService metricsLogger;
+	private final PersistenceServerMetrics metrics;
+	private final Set<ClientConnection> connections;
+	private final ReadWriteLock[] canvasLocks;
+	private final AtomicInteger connectionCount;
+
+	private ServerSocketChannel serverChannel;
+
+	/**
+	 * Creates a server storing each canvas in its own file.
+	 *
+	 * @param cacheSize The maximum number of bytes of canvases kept in memory.
+	 */
+	public FactoryPersistenceServer(final int workerCount, final int queueCapacity, final long cacheSize) {
+		this(workerCount, queueCapacity, new CanvasDataCache(new FileCanvasStore(), cacheSize));
+	}
+
+	/**
+	 * Creates a server storing the canvases in a segment, whose mapped pages
+	 * serve as the cache of the canvases.
+	 */
+	public FactoryPersistenceServer(final int workerCount, final int queueCapacity,
+			final SegmentCanvasStore canvasStore) {
+		this(workerCount, queueCapacity, canvasStore, null);
+	}
+
+	private FactoryPersistenceServer(final int workerCount, final int queueCapacity,
+			final CanvasDataCache canvasDataCache) {
+		this(workerCount, queueCapacity, canvasDataCache.getCanvasStore(), canvasDataCache);
+	}
+
+	private FactoryPersistenceServer(final int workerCount, final int queueCapacity, final CanvasStore canvasStore,
+			final CanvasDataCache canvasDataCache) {
+		FileCanvasChooser fcc = new FileCanvasChooser("factory", "factory simulation");
+		this.fpm = new FactoryPersistenceManager(fcc, canvasStore);
+		this.canvasDataCache = canvasDataCache;
+
+		final AtomicInteger workerIndex = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					final Thread thread = new Thread(runnable, "persistence-worker-" + workerIndex.incrementAndGet());
+					thread.setDaemon(true);
+
+					return thread;
+				});
+		this.metricsLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "persistence-metrics");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+		this.metrics = new PersistenceServerMetrics();
+		this.connections = ConcurrentHashMap.newKeySet();
+		this.connectionCount = new AtomicInteger();
+		this.canvasLocks = new ReadWriteLock[CANVAS_LOCK_COUNT];
+
+		for (int index = 0; index < canvasLocks.length; index++) {
+			canvasLocks[index] = new ReentrantReadWriteLock();
+		}
+	}
+
+	public PersistenceServerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return The cache of the canvas files, or {@code null} if the canvases are
+	 *         stored in a segment.
+	 */
+	public CanvasDataCache getCanvasDataCache() {
+		return canvasDataCache;
+	}
+
+	/**
+	 * @return The number of requests waiting for a worker.
+	 */
+	public int getQueueDepth() {
+		return workers.getQueue().size();
+	}
 
 	private void run(int port) throws Exception {
-		serverSocket = new ServerSocket(port);
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
 		LOGGER.info("server running on port: " + port);
 
+		metricsLogger.scheduleAtFixedRate(
+				() -> LOGGER.info("metrics: " + metrics + ", queueDepth=" + getQueueDepth() + ", "
+						+ (canvasDataCache == null ? "store: " + fpm.getCanvasStore() : "cache: " + canvasDataCache)),
+				METRICS_LOG_PERIOD, METRICS_LOG_PERIOD, TimeUnit.SECONDS);
+
 		while (true) {
-			try {
-				clientSocket = serverSocket.accept();
-				LOGGER.info("accepted connection");
-
-				out = new ObjectOutputStream(clientSocket.getOutputStream());
-				in = new ObjectInputStream(clientSocket.getInputStream());
-
-				FileCanvasChooser fcc = new FileCanvasChooser("factory", "factory simulation");
-				FactoryPersistenceManager fpm = new FactoryPersistenceManager(fcc);
-
-				Object obj = in.readObject();
-
-				LOGGER.info("received: " + obj.toString());
-				
-				if (obj instanceof String) {
-					LOGGER.info("retrieving: " + obj.toString());
-					final Canvas canvasModel = fpm.read((String) obj);
-					out.writeObject(canvasModel);
-					out.flush();
-				} else if (obj instanceof Canvas) {
-					LOGGER.info("persisting: " + ((Factory) obj).toString());
-					fpm.persist((Factory) obj);
-				} else {
-					LOGGER.log(Level.INFO, "obj is neither String or Factory");
-				}
-			} catch (Exception e) {
-				LOGGER.log(Level.WARNING, e.getMessage(), e);
-			} finally {
-				clientSocket.close();
+			final SocketChannel clientChannel = serverChannel.accept();
+
+			if (connections.size() >= MAX_CONNECTIONS) {
+				LOGGER.warning("refused connection from " + clientChannel.getRemoteAddress()
+						+ ": too many connections");
+				clientChannel.close();
+				continue;
 			}
+
+			LOGGER.info("accepted connection");
+
+			final ClientConnection connection = new ClientConnection(this, clientChannel);
+			connections.add(connection);
+			metrics.connectionOpened();
+
+			final Thread connectionThread = new Thread(connection,
+					"persistence-connection-" + connectionCount.incrementAndGet());
+			connectionThread.setDaemon(true);
+			connectionThread.start();
 		}
 	}
 
-	private void stop() {
+	void connectionClosed(final ClientConnection connection) {
+		if (connections.remove(connection)) {
+			metrics.connectionClosed();
+		}
+	}
+
+	/**
+	 * Queues a request for the workers, or answers it with a failure right away if
+	 * the queue is full.
+	 */
+	void submit(final ClientConnection connection, final PersistenceRequest request, final long receptionTime) {
 		try {
-			if (in != null) {
-				in.close();
-			}
+			workers.execute(() -> {
+				if (connection.isRawTransfer() && request.getType() == PersistenceRequest.Type.READ) {
+					metrics.requestServed(System.nanoTime() - receptionTime, transfer(connection, request));
 
-			if (out != null) {
-				out.close();
-			}
+					return;
+				}
 
-			if (clientSocket != null) {
-				clientSocket.close();
+				final PersistenceResponse response = handle(request);
+				connection.sendResponse(response);
+				metrics.requestServed(System.nanoTime() - receptionTime, response.isSuccessful());
+			});
+		} catch (RejectedExecutionException e) {
+			metrics.requestRejected();
+			connection.sendResponse(PersistenceResponse.failure(request.getId(), "Persistence server is busy"));
+		}
+	}
+
+	/**
+	 * Serves a read in raw transfer mode, sending the bytes of the canvas to the
+	 * socket without decoding them, from the cache when the canvases are stored in
+	 * files and else from the store without reading them into the heap.
+	 *
+	 * @return {@code true} if the canvas was sent.
+	 */
+	private boolean transfer(final ClientConnection connection, final PersistenceRequest request) {
+		if (request.getCanvasId() == null) {
+			connection.sendResponse(PersistenceResponse.failure(request.getId(), "Canvas missing ID"));
+
+			return false;
+		}
+
+		LOGGER.fine("transferring: " + request.getCanvasId());
+		final ReadWriteLock canvasLock = getCanvasLock(request.getCanvasId());
+		canvasLock.readLock().lock();
+
+		try (final StoredCanvas storedCanvas = openCanvasData(request.getCanvasId())) {
+			connection.sendCanvas(request.getId(), storedCanvas);
+
+			return true;
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, e.getMessage(), e);
+			connection.sendResponse(PersistenceResponse.failure(request.getId(), e.getMessage()));
+
+			return false;
+		} finally {
+			canvasLock.readLock().unlock();
+		}
+	}
+
+	private ReadWriteLock getCanvasLock(final String canvasId) {
+		final int hash = canvasId.hashCode();
+
+		return canvasLocks[(hash ^ hash >>> 16) & (canvasLocks.length - 1)];
+	}
+
+	/**
+	 * Serves a request, the requests on the same canvas being serialized when one
+	 * of them persists or deletes it so that a canvas is never read while being
+	 * written. A canvas read is served from the cache when its file did not change.
+	 */
+	PersistenceResponse handle(final PersistenceRequest request) {
+		if (request.getCanvasId() == null) {
+			return PersistenceResponse.failure(request.getId(), "Canvas missing ID");
+		}
+
+		final ReadWriteLock canvasLock = getCanvasLock(request.getCanvasId());
+
+		try {
+			switch (request.getType()) {
+			case READ:
+				LOGGER.fine("retrieving: " + request.getCanvasId());
+				canvasLock.readLock().lock();
+
+				try {
+					return PersistenceResponse.success(request.getId(), readCanvasData(request.getCanvasId()));
+				} finally {
+					canvasLock.readLock().unlock();
+				}
+			case PERSIST:
+				LOGGER.fine("persisting: " + request.getCanvasId());
+				canvasLock.writeLock().lock();
+
+				try {
+					invalidateCanvasData(request.getCanvasId());
+
+					if (request.getCanvasData() != null) {
+						fpm.persistData(request.getCanvasId(), request.getCanvasData());
+					} else if (request.getCanvas() != null) {
+						fpm.persist(request.getCanvas());
+					} else {
+						return PersistenceResponse.failure(request.getId(), "Missing canvas to persist");
+					}
+				} finally {
+					canvasLock.writeLock().unlock();
+				}
+
+				return PersistenceResponse.success(request.getId());
+			case DELETE:
+				LOGGER.fine("deleting: " + request.getCanvasId());
+				canvasLock.writeLock().lock();
+
+				try {
+					invalidateCanvasData(request.getCanvasId());
+
+					if (!fpm.delete(request.getCanvasId())) {
+						return PersistenceResponse.failure(request.getId(),
+								"Unable to delete canvas " + request.getCanvasId());
+					}
+				} finally {
+					canvasLock.writeLock().unlock();
+				}
+
+				return PersistenceResponse.success(request.getId());
+			default:
+				return PersistenceResponse.failure(request.getId(), "Unknown request type: " + request.getType());
 			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, e.getMessage(), e);
+
+			return PersistenceResponse.failure(request.getId(), e.getMessage());
+		}
+	}
+
+	private StoredCanvas openCanvasData(final String canvasId) throws IOException {
+		if (canvasDataCache != null) {
+			return StoredCanvas.of(ByteBuffer.wrap(canvasDataCache.get(canvasId)));
+		}
+
+		return fpm.openData(canvasId);
+	}
 
-			if (serverSocket != null) {
-				serverSocket.close();
+	private byte[] readCanvasData(final String canvasId) throws IOException {
+		if (canvasDataCache != null) {
+			return canvasDataCache.get(canvasId);
+		}
+
+		final ByteBuffer canvasData = fpm.readData(canvasId);
+		final byte[] canvasBytes = new byte[canvasData.remaining()];
+		canvasData.get(canvasBytes);
+
+		return canvasBytes;
+	}
+
+	private void invalidateCanvasData(final String canvasId) {
+		if (canvasDataCache != null) {
+			canvasDataCache.invalidate(canvasId);
+		}
+	}
+
+	private void stop() {
+		try {
+			if (serverChannel != null) {
+				serverChannel.close();
 			}
 		} catch (Exception e) {
 		}
+
+		for (final ClientConnection connection : connections) {
+			connection.close();
+		}
+
+		workers.shutdown();
+		metricsLogger.shutdown();
+
+		try {
+			workers.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+			fpm.getCanvasStore().close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, e.getMessage(), e);
+		}
 	}
 
+	/**
+	 * @param args The port, then optionally the number of workers, the capacity
+	 *             of their queue, the size in bytes of the canvas cache and the
+	 *             path of a segment file in which to store the canvases instead of
+	 *             a file per canvas.
+	 */
 	public static void main(String[] args) {
-		FactoryPersistenceServer server = new FactoryPersistenceServer();
-
 		int port = 9000;
 		if (args.length > 0) {
 			port = Integer.parseInt(args[0]);
 		}
 
+		final int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WORKERS;
+		final int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_QUEUE_CAPACITY;
+
+		final long cacheSize = args.length > 3 ? Long.parseLong(args[3]) : CanvasDataCache.DEFAULT_MAX_SIZE;
+
+		final FactoryPersistenceServer server;
+
+		try {
+			server = args.length > 4
+					? new FactoryPersistenceServer(workerCount, queueCapacity, new SegmentCanvasStore(Path.of(args[4])))
+					: new FactoryPersistenceServer(workerCount, queueCapacity, cacheSize);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, e.getMessage(), e);
+
+			return;
+		}
+
 		try {
 			server.run(port);
 		} catch (Exception e) {
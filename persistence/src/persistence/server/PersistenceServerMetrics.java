@@ -0,0 +1,98 @@
+package persistence.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the requests served by the persistence server. The latency of a
+ * request runs from its reception to the writing of its response, so that it
+ * includes the time spent waiting for a worker.
+ */
+public class PersistenceServerMetrics {
+
+	private final LongAdder requestCount;
+
+	private final LongAdder failedRequestCount;
+
+	private final LongAdder rejectedRequestCount;
+
+	private final LongAdder totalLatency;
+
+	private final AtomicLong maxLatency;
+
+	private final AtomicLong openConnectionCount;
+
+	public PersistenceServerMetrics() {
+		this.requestCount = new LongAdder();
+		this.failedRequestCount = new LongAdder();
+		this.rejectedRequestCount = new LongAdder();
+		this.totalLatency = new LongAdder();
+		this.maxLatency = new AtomicLong();
+		this.openConnectionCount = new AtomicLong();
+	}
+
+	void requestServed(final long latency, final boolean successful) {
+		requestCount.increment();
+		totalLatency.add(latency);
+		maxLatency.accumulateAndGet(latency, Math::max);
+
+		if (!successful) {
+			failedRequestCount.increment();
+		}
+	}
+
+	void requestRejected() {
+		rejectedRequestCount.increment();
+	}
+
+	void connectionOpened() {
+		openConnectionCount.incrementAndGet();
+	}
+
+	void connectionClosed() {
+		openConnectionCount.decrementAndGet();
+	}
+
+	public long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	public long getFailedRequestCount() {
+		return failedRequestCount.sum();
+	}
+
+	/**
+	 * @return The number of requests refused because the queue of the workers was
+	 *         full.
+	 */
+	public long getRejectedRequestCount() {
+		return rejectedRequestCount.sum();
+	}
+
+	/**
+	 * @return The mean latency of the requests in nanoseconds.
+	 */
+	public long getAverageLatency() {
+		final long count = requestCount.sum();
+
+		return count == 0 ? 0 : totalLatency.sum() / count;
+	}
+
+	/**
+	 * @return The latency of the slowest request in nanoseconds.
+	 */
+	public long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	public long getOpenConnectionCount() {
+		return openConnectionCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "requests=" + getRequestCount() + ", failed=" + getFailedRequestCount() + ", rejected="
+				+ getRejectedRequestCount() + ", averageLatency=" + getAverageLatency() / 1000 + " us, maxLatency="
+				+ getMaxLatency() / 1000 + " us, openConnections=" + getOpenConnectionCount();
+	}
+}
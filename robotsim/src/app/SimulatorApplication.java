@@ -56,16 +56,21 @@ public class SimulatorApplication {
 		final ChargingStation chargingStation = new ChargingStation(factory, new RectangularShape(150, 145, 15, 15),
 				"Charging Station");
 
-		final FactoryPathFinder jgraphPahtFinder = new JGraphTDijkstraFactoryPathFinder(factory, 5);
-		final Robot robot1 = new Robot(factory, jgraphPahtFinder, new CircularShape(5, 5, 2), new Battery(10),
+		// All robots route on the same graph and share the paths they compute
+		final RoutingGraph routingGraph = new RoutingGraph(factory, 5);
+		final PathCache pathCache = new PathCache(factory, 5);
+		final FactoryPathFinder pathFinder1 = new CachingFactoryPathFinder(
+				new SparseIntAStarFactoryPathFinder(routingGraph), pathCache);
+		final Robot robot1 = new Robot(factory, pathFinder1, new CircularShape(5, 5, 2), new Battery(10),
 				"Robot 1");
 		robot1.addTargetComponent(machine1);
 		robot1.addTargetComponent(machine2);
 		robot1.addTargetComponent(new Conveyor(factory, conveyorShape, "Conveyor 1"));
 		robot1.addTargetComponent(chargingStation);
 
-		final FactoryPathFinder customPathFinder = new CustomDijkstraFactoryPathFinder(factory, 5);
-		final Robot robot2 = new Robot(factory, customPathFinder, new CircularShape(45, 5, 2), new Battery(10),
+		final FactoryPathFinder pathFinder2 = new CachingFactoryPathFinder(
+				new SparseIntAStarFactoryPathFinder(routingGraph), pathCache);
+		final Robot robot2 = new Robot(factory, pathFinder2, new CircularShape(45, 5, 2), new Battery(10),
 				"Robot 2");
 		robot2.addTargetComponent(machine1);
 		robot2.addTargetComponent(machine2);
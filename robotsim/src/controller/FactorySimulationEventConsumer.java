@@ -2,23 +2,47 @@ package controller;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
 
+import simulation.SimulationEvent;
+import simulation.SimulationEventCodec;
 import simulation.SimulationServiceUtils;
 
+/**
+ * Consumes the events of a simulated factory. The records of each poll are
+ * decoded on the consuming thread and merged into the frame that the controller
+ * hands to the event dispatch thread, so that Swing is never given more than
+ * one frame to apply however far the consumer lags behind.
+ */
 public class FactorySimulationEventConsumer {
     private static final Logger LOGGER = Logger.getLogger(FactorySimulationEventConsumer.class.getName());
 
-    private final KafkaConsumer<String, String> consumer;
+    /**
+     * Minimum time between two refreshes of the consumer lag, which requires a
+     * request to the brokers.
+     */
+    private static final long LAG_REFRESH_PERIOD = 1000;
+
+    private final KafkaConsumer<String, byte[]> consumer;
     private final RemoteSimulationController controller;
+    private final SimulationEventCodec simulationEventCodec;
+
+    private volatile long lag;
+    private long lastLagRefreshTime;
 
-    public FactorySimulationEventConsumer(final RemoteSimulationController controller) {
+    public FactorySimulationEventConsumer(final RemoteSimulationController controller,
+            final SimulationEventCodec simulationEventCodec) {
         this.controller = controller;
+        this.simulationEventCodec = simulationEventCodec;
         
         final Properties props = SimulationServiceUtils.getDefaultConsumerProperties();
         
@@ -26,26 +50,66 @@ public class FactorySimulationEventConsumer {
         
         final String topicName = SimulationServiceUtils.getTopicName(controller.getFactoryId());
         this.consumer.subscribe(Collections.singletonList(topicName));
+        this.lag = 0;
+        this.lastLagRefreshTime = 0;
+    }
+
+    /**
+     * @return The number of records published on the topic that were not
+     *         consumed yet, as of the last refresh.
+     */
+    public long getLag() {
+        return lag;
     }
 
     public void consumeMessages() {
         try {
             while (controller.isAnimationRunning()) {
-                final ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(100));
+                final ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(100));
                 
                 if (!records.isEmpty()) {
-                    LOGGER.info("Received " + records.count() + " records from Kafka.");
-                    for (final ConsumerRecord<String, String> record : records) {
-                        controller.updateCanvasFromJSON(record.value());
+                    LOGGER.fine("Received " + records.count() + " records from Kafka.");
+
+                    for (final ConsumerRecord<String, byte[]> record : records) {
+                        try {
+                            final SimulationEvent event = simulationEventCodec.decode(record.value());
+                            controller.mergeEvent(event);
+                        } catch (Exception e) {
+                            LOGGER.log(Level.WARNING, "Error decoding simulation event from Kafka", e);
+                        }
                     }
+
+                    controller.publishFrame();
                 }
-                
-                for (final ConsumerRecord<String, String> record : records) {
-                    controller.updateCanvasFromJSON(record.value());
-                }
+
+                refreshLag();
             }
         } finally {
             consumer.close();
         }
     }
-}
\ No newline at end of file
+
+    private void refreshLag() {
+        final long currentTime = System.currentTimeMillis();
+
+        if (currentTime - lastLagRefreshTime < LAG_REFRESH_PERIOD) {
+            return;
+        }
+
+        lastLagRefreshTime = currentTime;
+
+        final Set<TopicPartition> partitions = consumer.assignment();
+
+        if (partitions.isEmpty()) {
+            return;
+        }
+
+        long totalLag = 0;
+
+        for (final Map.Entry<TopicPartition, Long> endOffset : consumer.endOffsets(partitions).entrySet()) {
+            totalLag += Math.max(0, endOffset.getValue() - consumer.position(endOffset.getKey()));
+        }
+
+        lag = totalLag;
+    }
+}
@@ -6,29 +6,21 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.SwingUtilities;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.JsonCreator;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
-import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
-
 import fr.tp.inf112.projects.canvas.controller.Observer;
 import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasPersistenceManager;
-import fr.tp.inf112.projects.canvas.model.impl.BasicVertex;
-import model.Component;
 import model.Factory;
 import model.LocalFactoryModelChangedNotifier;
-import model.shapes.PositionedShape;
+import simulation.ComponentState;
+import simulation.SimulationEvent;
+import simulation.SimulationEventCodec;
+import simulation.SimulationServiceUtils;
 
 public class RemoteSimulationController extends SimulatorController {
 	private static transient final Logger LOGGER = Logger.getLogger(RemoteSimulationController.class.getName());
@@ -36,50 +28,58 @@ public class RemoteSimulationController extends SimulatorController {
 	private final String simulationServiceUrl;
 	private final String factoryId;
 	private final HttpClient httpClient;
-	private final ObjectMapper objectMapper;
+	private final SimulationEventCodec simulationEventCodec;
 	private volatile boolean simulationRunning;
 	private Thread consumerThread;
+	private volatile FactorySimulationEventConsumer eventConsumer;
 	private final LocalFactoryModelChangedNotifier viewNotifier;
 
+	/**
+	 * Guards the pending frame and the sequence of the events merged into it,
+	 * shared by the consuming thread and the event dispatch thread.
+	 */
+	private final Object frameLock;
+
+	/**
+	 * Changes received since the last repaint, or {@code null} if there are none.
+	 */
+	private SimulationFrame pendingFrame;
+
+	/**
+	 * Whether the pending frame was handed to the event dispatch thread and not
+	 * applied yet.
+	 */
+	private boolean frameScheduled;
+
+	/**
+	 * Sequence of the last event merged into the pending frame, or {@code -1}
+	 * until a keyframe is received.
+	 */
+	private long lastSequence;
+
+	/**
+	 * Whether a keyframe was requested and not received yet, so that it is not
+	 * requested again for each dropped delta.
+	 */
+	private boolean keyframeRequested;
+
+	private final AtomicLong droppedFrameCount;
+
 	public RemoteSimulationController(Factory factoryModel, CanvasPersistenceManager persistenceManager,
 			String simulationServiceUrl) {
 		super(factoryModel, persistenceManager);
 		this.factoryId = factoryModel.getId();
 		this.simulationServiceUrl = simulationServiceUrl;
 		this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
-		this.objectMapper = createObjectMapper();
+		this.simulationEventCodec = SimulationServiceUtils.createCodec();
 		this.simulationRunning = false;
 		this.viewNotifier = new LocalFactoryModelChangedNotifier();
-	}
-
-	@JsonAutoDetect(getterVisibility = JsonAutoDetect.Visibility.ANY)
-	abstract static class BasicVertexMixin {
-		@JsonCreator
-		public BasicVertexMixin(@JsonProperty("xCoordinate") int xCoordinate,
-				@JsonProperty("yCoordinate") int yCoordinate) {
-		}
-
-		@JsonProperty("xCoordinate")
-		abstract int getxCoordinate();
-
-		@JsonProperty("yCoordinate")
-		abstract int getyCoordinate();
-	}
-
-	private ObjectMapper createObjectMapper() {
-		final ObjectMapper mapper = new ObjectMapper();
-
-		PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
-				.allowIfSubType(PositionedShape.class.getPackageName()).allowIfSubType(Component.class.getPackageName())
-				.allowIfSubType(BasicVertex.class.getPackageName()).allowIfSubType(ArrayList.class.getName())
-				.allowIfSubType(LinkedHashSet.class.getName()).build();
-
-		mapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL);
-		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-		mapper.addMixIn(BasicVertex.class, BasicVertexMixin.class);
-
-		return mapper;
+		this.frameLock = new Object();
+		this.pendingFrame = null;
+		this.frameScheduled = false;
+		this.lastSequence = -1;
+		this.keyframeRequested = false;
+		this.droppedFrameCount = new AtomicLong();
 	}
 
 	private String getEncodedFactoryId() {
@@ -103,13 +103,20 @@ public class RemoteSimulationController extends SimulatorController {
 
 			if (response.statusCode() == 200) {
 				simulationRunning = true;
+				synchronized (frameLock) {
+					pendingFrame = null;
+					lastSequence = -1;
+					keyframeRequested = false;
+				}
 
 				if (consumerThread != null && consumerThread.isAlive()) {
 					consumerThread.interrupt();
 				}
 
 				consumerThread = new Thread(() -> {
-					FactorySimulationEventConsumer consumer = new FactorySimulationEventConsumer(this);
+					FactorySimulationEventConsumer consumer = new FactorySimulationEventConsumer(this,
+							simulationEventCodec);
+					eventConsumer = consumer;
 					consumer.consumeMessages();
 				});
 				consumerThread.start();
@@ -126,6 +133,8 @@ public class RemoteSimulationController extends SimulatorController {
 		try {
 			simulationRunning = false;
 
+			LOGGER.info("Consumer lag: " + getConsumerLag() + ", dropped frames: " + getDroppedFrameCount());
+
 			String url = String.format("%s/stop?factoryId=%s", simulationServiceUrl, getEncodedFactoryId());
 			HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url))
 					.POST(HttpRequest.BodyPublishers.noBody()).build();
@@ -143,25 +152,135 @@ public class RemoteSimulationController extends SimulatorController {
 		return simulationRunning;
 	}
 
-	public void updateCanvasFromJSON(String json) {
-		try {
-			Factory remoteFactory = objectMapper.readValue(json, Factory.class);
+	/**
+	 * @return The number of simulation events published and not consumed yet, as
+	 *         of the last refresh of the consumer.
+	 */
+	public long getConsumerLag() {
+		final FactorySimulationEventConsumer consumer = eventConsumer;
 
-			SwingUtilities.invokeLater(() -> {
-				Factory localFactory = (Factory) getCanvas();
+		return consumer == null ? 0 : consumer.getLag();
+	}
 
-				if (localFactory == null) {
+	/**
+	 * @return The number of simulation events that were merged into a later frame
+	 *         instead of being displayed.
+	 */
+	public long getDroppedFrameCount() {
+		return droppedFrameCount.get();
+	}
+
+	/**
+	 * Merges a simulation event into the frame pending for the next repaint. A
+	 * delta is only merged on top of the event preceding it, otherwise a keyframe
+	 * is requested and the deltas are dropped until it is received.
+	 */
+	void mergeEvent(final SimulationEvent event) {
+		synchronized (frameLock) {
+			if (event.isKeyframe()) {
+				if (event.getFactory() == null) {
 					return;
 				}
-				localFactory.getComponents().clear();
-				localFactory.getComponents().addAll(remoteFactory.getComponents());
 
-				viewNotifier.notifyObservers();
+				keyframeRequested = false;
+			} else if (lastSequence < 0 || event.getSequence() > lastSequence + 1) {
+				lastSequence = -1;
+				requestKeyframe();
 
-			});
-		} catch (Exception e) {
-			LOGGER.log(Level.WARNING, "Error parsing JSON from Kafka", e);
+				return;
+			} else if (event.getSequence() <= lastSequence) {
+				// Already merged
+				return;
+			}
+
+			if (pendingFrame == null) {
+				pendingFrame = new SimulationFrame();
+			}
+
+			pendingFrame.merge(event);
+			lastSequence = event.getSequence();
+		}
+	}
+
+	/**
+	 * Hands the pending frame to the event dispatch thread, unless a frame is
+	 * already waiting there, in which case the pending changes will be applied
+	 * with it.
+	 */
+	void publishFrame() {
+		synchronized (frameLock) {
+			if (pendingFrame == null || frameScheduled) {
+				return;
+			}
+
+			frameScheduled = true;
+		}
+
+		SwingUtilities.invokeLater(this::applyPendingFrame);
+	}
+
+	private void applyPendingFrame() {
+		final SimulationFrame frame;
+
+		synchronized (frameLock) {
+			frame = pendingFrame;
+			pendingFrame = null;
+			frameScheduled = false;
+		}
+
+		Factory localFactory = (Factory) getCanvas();
+
+		if (frame == null || localFactory == null) {
+			return;
+		}
+
+		droppedFrameCount.addAndGet(frame.getEventCount() - 1);
+
+		if (frame.getFactory() != null) {
+			localFactory.getComponents().clear();
+			localFactory.getComponents().addAll(frame.getFactory().getComponents());
+		}
+
+		for (final ComponentState componentState : frame.getComponentStates()) {
+			if (!componentState.applyTo(localFactory)) {
+				synchronized (frameLock) {
+					lastSequence = -1;
+					requestKeyframe();
+				}
+
+				break;
+			}
+		}
+
+		viewNotifier.notifyObservers();
+	}
+
+	/**
+	 * Asks the simulation service for a keyframe. Must be called while holding the
+	 * frame lock.
+	 */
+	private void requestKeyframe() {
+		if (keyframeRequested) {
+			return;
 		}
+
+		keyframeRequested = true;
+
+		String url = String.format("%s/keyframe?factoryId=%s", simulationServiceUrl, getEncodedFactoryId());
+		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).POST(HttpRequest.BodyPublishers.noBody())
+				.build();
+
+		LOGGER.info(request.toString());
+
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).exceptionally(ex -> {
+			LOGGER.log(Level.WARNING, "Error requesting a keyframe", ex);
+
+			synchronized (frameLock) {
+				keyframeRequested = false;
+			}
+
+			return null;
+		});
 	}
 
 	@Override
@@ -0,0 +1,58 @@
+package controller;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.Factory;
+import simulation.ComponentState;
+import simulation.SimulationEvent;
+
+/**
+ * Changes to apply to the local factory at the next repaint, merged from the
+ * simulation events received since the previous one. Only the newest state of
+ * each component is kept, and a keyframe discards the states that precede it.
+ */
+class SimulationFrame {
+
+	private Factory factory;
+
+	private final Map<Integer, ComponentState> componentStates;
+
+	private int eventCount;
+
+	SimulationFrame() {
+		this.factory = null;
+		this.componentStates = new LinkedHashMap<>();
+		this.eventCount = 0;
+	}
+
+	void merge(final SimulationEvent event) {
+		if (event.isKeyframe()) {
+			factory = event.getFactory();
+			componentStates.clear();
+		} else {
+			for (final ComponentState componentState : event.getComponentStates()) {
+				componentStates.put(componentState.getIndex(), componentState);
+			}
+		}
+
+		eventCount++;
+	}
+
+	/**
+	 * @return The factory of the last keyframe merged into this frame, or
+	 *         {@code null} if the frame only holds deltas.
+	 */
+	Factory getFactory() {
+		return factory;
+	}
+
+	Collection<ComponentState> getComponentStates() {
+		return componentStates.values();
+	}
+
+	int getEventCount() {
+		return eventCount;
+	}
+}
@@ -1,12 +1,14 @@
 package controller;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -16,32 +18,52 @@ import org.springframework.web.bind.annotation.RestController;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.tp.inf112.projects.canvas.model.CanvasPersistenceManager;
+import model.BatchingFactoryModelChangedNotifier;
+import model.Component;
+import model.EnergyModel;
 import model.Factory;
-import model.FactoryModelChangedNotifier;
+import model.FleetDispatcher;
+import model.Robot;
+import model.SimulationScheduler;
 import server.KafkaFactoryModelChangeNotifier;
+import simulation.SimulationEventCodec;
 
 @RestController
 public class SimulationController {
 	private static Logger LOGGER = Logger.getLogger(SimulationController.class.getName());
 
 	private Map<String, Factory> models;
+	private Map<String, KafkaFactoryModelChangeNotifier> notifiers;
+	private Map<String, BatchingFactoryModelChangedNotifier> batchingNotifiers;
 	private CanvasPersistenceManager persistenceManager;
 	
 	@Autowired
 	private ObjectMapper objectMapper;
 	
 	@Autowired
-    private KafkaTemplate<String, Factory> simulationEventTemplate;
+    private KafkaTemplate<String, byte[]> simulationEventTemplate;
+
+	@Autowired
+	private SimulationEventCodec simulationEventCodec;
+
+	@Value("${simulation.keyframe-interval-millis:5000}")
+	private long keyframeInterval;
+
+	@Value("${simulation.frame-window-millis:50}")
+	private long defaultFrameWindow;
 
 	public SimulationController(CanvasPersistenceManager canvasPersistenceManager) {
 		persistenceManager = canvasPersistenceManager;
 		models = new ConcurrentHashMap<>();
+		notifiers = new ConcurrentHashMap<>();
+		batchingNotifiers = new ConcurrentHashMap<>();
 
 		LOGGER.info("SimulationController initialized.");
 	}
 
 	@PostMapping("/start")
-	public boolean startSimulation(@RequestParam String factoryId) {
+	public boolean startSimulation(@RequestParam String factoryId,
+			@RequestParam(required = false) Long frameWindowMillis) {
 		LOGGER.info("Request received to start simulation for factoryId: " + factoryId);
 
 		Factory factory;
@@ -52,11 +74,23 @@ public class SimulationController {
 			return false;
 		}
 		
-		FactoryModelChangedNotifier notifier = new KafkaFactoryModelChangeNotifier(factory, simulationEventTemplate);
-        factory.setNotifier(notifier);
+		final long frameWindow = frameWindowMillis == null ? defaultFrameWindow : frameWindowMillis;
+
+		if (frameWindow < 0) {
+			LOGGER.warning("Invalid frame window " + frameWindow + " for factoryId: " + factoryId);
+			return false;
+		}
+
+		KafkaFactoryModelChangeNotifier notifier = new KafkaFactoryModelChangeNotifier(factory, simulationEventTemplate,
+				simulationEventCodec, keyframeInterval);
+		BatchingFactoryModelChangedNotifier batchingNotifier = new BatchingFactoryModelChangedNotifier(notifier,
+				frameWindow, "notifier-" + factoryId);
+        factory.setNotifier(batchingNotifier);
 
 		factory.startSimulation();
 		models.put(factoryId, factory);
+		notifiers.put(factoryId, notifier);
+		batchingNotifiers.put(factoryId, batchingNotifier);
 
 		LOGGER.info("Simulation started successfully for factoryId: " + factoryId);
 
@@ -88,6 +122,8 @@ public class SimulationController {
 	public boolean stopSimulation(@RequestParam String factoryId) {
 		LOGGER.info("Request received to stop simulation for factoryId: " + factoryId);
 		Factory factoryModel = models.remove(factoryId);
+		notifiers.remove(factoryId);
+		BatchingFactoryModelChangedNotifier batchingNotifier = batchingNotifiers.remove(factoryId);
 
 		if (factoryModel == null) {
 			LOGGER.warning("Cannot stop simulation: No active model found for factoryId: " + factoryId);
@@ -95,12 +131,104 @@ public class SimulationController {
 		}
 
 		factoryModel.stopSimulation();
+
+		if (batchingNotifier != null) {
+			batchingNotifier.close();
+		}
 		
 		factoryModel.setNotifier(null);
 
 		return true;
 	}
 
+	@PostMapping("/keyframe")
+	public boolean requestKeyframe(@RequestParam String factoryId) {
+		final KafkaFactoryModelChangeNotifier notifier = notifiers.get(factoryId);
+
+		if (notifier == null) {
+			LOGGER.warning("No active simulation found for factoryId: " + factoryId);
+			return false;
+		}
+
+		notifier.requestKeyframe();
+
+		final BatchingFactoryModelChangedNotifier batchingNotifier = batchingNotifiers.get(factoryId);
+
+		if (batchingNotifier != null) {
+			batchingNotifier.notifyObservers();
+		}
+
+		return true;
+	}
+
+	@GetMapping("metrics")
+	public Map<String, Object> getSimulationMetrics(@RequestParam String factoryId) {
+		final Factory factoryModel = models.get(factoryId);
+
+		if (factoryModel == null || factoryModel.getScheduler() == null) {
+			LOGGER.warning("No active simulation found for factoryId: " + factoryId);
+			return null;
+		}
+
+		final SimulationScheduler scheduler = factoryModel.getScheduler();
+		final Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("tickPeriodMillis", scheduler.getTickPeriod());
+		metrics.put("tickCount", scheduler.getTickCount());
+		metrics.put("lastTickDurationNanos", scheduler.getLastTickDuration());
+		metrics.put("averageTickDurationNanos", scheduler.getAverageTickDuration());
+		metrics.put("maxTickDurationNanos", scheduler.getMaxTickDuration());
+
+		final BatchingFactoryModelChangedNotifier batchingNotifier = batchingNotifiers.get(factoryId);
+
+		if (batchingNotifier != null) {
+			metrics.put("frameWindowMillis", batchingNotifier.getFrameWindow());
+			metrics.put("notificationCount", batchingNotifier.getNotificationCount());
+			metrics.put("coalescedNotificationCount", batchingNotifier.getCoalescedCount());
+			metrics.put("droppedNotificationCount", batchingNotifier.getDroppedCount());
+			metrics.put("publishedNotificationCount", batchingNotifier.getFlushCount());
+		}
+
+		long blockedTickCount = 0;
+		long replanCount = 0;
+		long tourSavedDistance = 0;
+
+		for (final Component component : factoryModel.getComponents()) {
+			if (component instanceof Robot) {
+				blockedTickCount += ((Robot) component).getBlockedTickCount();
+				replanCount += ((Robot) component).getReplanCount();
+				tourSavedDistance += ((Robot) component).getTourSavedDistance();
+			}
+		}
+
+		metrics.put("robotBlockedTickCount", blockedTickCount);
+		metrics.put("robotReplanCount", replanCount);
+		metrics.put("robotTourSavedDistance", tourSavedDistance);
+
+		final FleetDispatcher dispatcher = factoryModel.getDispatcher();
+
+		if (dispatcher != null) {
+			metrics.put("pendingTargetCount", dispatcher.getPendingCount());
+			metrics.put("assignedTargetCount", dispatcher.getAssignedCount());
+			metrics.put("completedTargetCount", dispatcher.getCompletedCount());
+			metrics.put("averageCompletionTicks", dispatcher.getAverageCompletionTicks());
+			metrics.put("lastDispatchDurationNanos", dispatcher.getLastDispatchDuration());
+		}
+
+		final EnergyModel energyModel = factoryModel.getEnergyModel();
+
+		if (energyModel != null) {
+			metrics.put("fleetBatteryLevel", energyModel.getFleetLevel());
+			metrics.put("consumedEnergy", energyModel.getConsumedEnergy());
+			metrics.put("chargedEnergy", energyModel.getChargedEnergy());
+			metrics.put("chargeCount", energyModel.getChargeCount());
+			metrics.put("chargingWaitingTickCount", energyModel.getWaitingTickCount());
+			metrics.put("chargingStationUtilization", energyModel.getStationUtilization());
+			metrics.put("depletedRobotTickCount", energyModel.getDepletedTickCount());
+		}
+
+		return metrics;
+	}
+
 	@GetMapping("health")
 	public boolean health() {
 		return true;
@@ -1,5 +1,10 @@
 package server;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -11,41 +16,137 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 
 import fr.tp.inf112.projects.canvas.controller.Observer;
+import model.Component;
 import model.Factory;
 import model.FactoryModelChangedNotifier;
+import simulation.ComponentState;
+import simulation.SimulationEvent;
+import simulation.SimulationEventCodec;
 import simulation.SimulationServiceUtils;
 
+/**
+ * Publishes the changes of a simulated factory on its Kafka topic. A keyframe
+ * with the whole factory is sent first, then each time components are added or
+ * removed, when a keyframe is requested, and at least once per keyframe interval.
+ * Otherwise only the states of the components that changed are sent.
+ */
 public class KafkaFactoryModelChangeNotifier implements FactoryModelChangedNotifier {
     private static final Logger LOGGER = Logger.getLogger(KafkaFactoryModelChangeNotifier.class.getName());
-    
+
     private final Factory factoryModel;
-    private final KafkaTemplate<String, Factory> simulationEventTemplate;
+    private final KafkaTemplate<String, byte[]> simulationEventTemplate;
+    private final SimulationEventCodec simulationEventCodec;
+    private final long keyframeInterval;
+
+    private long sequence;
+    private long lastKeyframeTime;
+    private long lastLayoutEpoch;
+    private volatile boolean keyframeRequested;
+
+    /**
+     * Indexes of the components in the factory, rebuilt when components are added
+     * or removed.
+     */
+    private final Map<Component, Integer> componentIndexes;
+    private long componentIndexesEpoch;
 
-    public KafkaFactoryModelChangeNotifier(Factory factoryModel, KafkaTemplate<String, Factory> simulationEventTemplate) {
+    public KafkaFactoryModelChangeNotifier(Factory factoryModel,
+            KafkaTemplate<String, byte[]> simulationEventTemplate, SimulationEventCodec simulationEventCodec,
+            long keyframeInterval) {
         this.factoryModel = factoryModel;
         this.simulationEventTemplate = simulationEventTemplate;
+        this.simulationEventCodec = simulationEventCodec;
+        this.keyframeInterval = keyframeInterval;
+        this.sequence = 0;
+        this.lastKeyframeTime = 0;
+        this.lastLayoutEpoch = factoryModel.getLayoutEpoch();
+        this.keyframeRequested = true;
+        this.componentIndexes = new IdentityHashMap<>();
+        this.componentIndexesEpoch = -1;
+    }
+
+    /**
+     * Makes the next notification send a keyframe, for instance when a new
+     * consumer subscribes to the topic.
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
     }
 
     @Override
-    public void notifyObservers() {
+    public synchronized void notifyObservers() {
+        final SimulationEvent event = nextEvent();
+
+        if (event == null) {
+            return;
+        }
+
+        final byte[] payload;
+
+        try {
+            payload = simulationEventCodec.encode(event);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to encode message=[" + event + "]", e);
+            return;
+        }
+
         String topicName = SimulationServiceUtils.getTopicName(factoryModel);
-        
-        final Message<Factory> factoryMessage = MessageBuilder
-                .withPayload(factoryModel)
+
+        final Message<byte[]> eventMessage = MessageBuilder
+                .withPayload(payload)
                 .setHeader(KafkaHeaders.TOPIC, topicName)
                 .build();
 
-        final CompletableFuture<SendResult<String, Factory>> sendResult = simulationEventTemplate.send(factoryMessage);
+        final CompletableFuture<SendResult<String, byte[]>> sendResult = simulationEventTemplate.send(eventMessage);
 
         sendResult.whenComplete((result, ex) -> {
             if (ex != null) {
-                LOGGER.log(Level.SEVERE, "Unable to send message=[" + factoryModel + "] due to : " + ex.getMessage());
+                LOGGER.log(Level.SEVERE, "Unable to send message=[" + event + "] due to : " + ex.getMessage());
             } else {
-                 LOGGER.info("Sent message=[" + factoryModel + "] with offset=[" + result.getRecordMetadata().offset() + "]");
+                 LOGGER.info("Sent message=[" + event + "] with offset=[" + result.getRecordMetadata().offset() + "]");
             }
         });
     }
 
+    private SimulationEvent nextEvent() {
+        final long currentTime = System.currentTimeMillis();
+        final long layoutEpoch = factoryModel.getLayoutEpoch();
+        final List<ComponentState> componentStates = new ArrayList<>();
+
+        if (componentIndexesEpoch != layoutEpoch) {
+            final List<Component> components = factoryModel.getComponents();
+            componentIndexes.clear();
+
+            for (int index = 0; index < components.size(); index++) {
+                componentIndexes.put(components.get(index), index);
+            }
+
+            componentIndexesEpoch = layoutEpoch;
+        }
+
+        for (final Component component : factoryModel.pollChangedComponents()) {
+            final Integer index = componentIndexes.get(component);
+
+            if (index != null) {
+                componentStates.add(ComponentState.of(index, component));
+            }
+        }
+
+        if (keyframeRequested || layoutEpoch != lastLayoutEpoch || currentTime - lastKeyframeTime >= keyframeInterval) {
+            keyframeRequested = false;
+            lastLayoutEpoch = layoutEpoch;
+            lastKeyframeTime = currentTime;
+
+            return SimulationEvent.keyframe(sequence++, factoryModel);
+        }
+
+        if (componentStates.isEmpty()) {
+            return null;
+        }
+
+        return SimulationEvent.delta(sequence++, componentStates);
+    }
+
     @Override
     public boolean addObserver(Observer observer) {
         return false;
@@ -55,4 +156,4 @@ public class KafkaFactoryModelChangeNotifier implements FactoryModelChangedNotif
     public boolean removeObserver(Observer observer) {
         return false;
     }
-}
\ No newline at end of file
+}
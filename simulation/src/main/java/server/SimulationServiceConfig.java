@@ -4,19 +4,21 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import model.Factory;
+import simulation.JsonSimulationEventCodec;
+import simulation.SimulationEventCodec;
 import simulation.SimulationServiceUtils;
 
 @Configuration
@@ -26,23 +28,30 @@ public class SimulationServiceConfig {
     private ObjectMapper objectMapper;
 
     @Bean
-    ProducerFactory<String, Factory> producerFactory() {
+    ProducerFactory<String, byte[]> producerFactory() {
         final Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, SimulationServiceUtils.BOOTSTRAP_SERVERS);
         
-        @SuppressWarnings("deprecation")
-		final JsonSerializer<Factory> factorySerializer = new JsonSerializer<>(objectMapper);
-        
         return new DefaultKafkaProducerFactory<>(
                 config,
                 new StringSerializer(),
-                factorySerializer
+                new ByteArraySerializer()
         );
     }
 
     @Bean
     @Primary
-    KafkaTemplate<String, Factory> kafkaTemplate() {
+    KafkaTemplate<String, byte[]> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
-}
\ No newline at end of file
+
+    @Bean
+    SimulationEventCodec simulationEventCodec(
+            @Value("${" + SimulationServiceUtils.CODEC_PROPERTY + ":" + SimulationServiceUtils.DEFAULT_CODEC + "}") String codecName) {
+        if (JsonSimulationEventCodec.NAME.equals(codecName)) {
+            return new JsonSimulationEventCodec(objectMapper);
+        }
+
+        return SimulationServiceUtils.createCodec(codecName);
+    }
+}